@@ -0,0 +1,58 @@
+package org.unique_events_queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures addAll() of a whole batch of new records, including the trims it triggers.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AddAllBenchmark {
+    private static final int POOL_SIZE = 1 << 18;
+    private static final int QUEUE_LIMIT = 1 << 16;
+
+    @Param({"MONITOR", "LOCK_FREE", "SHARDED", "KEY_AFFINITY"})
+    public QueueEngine engine;
+
+    @Param({"10", "500", "10000"})
+    public int batchSize;
+
+    private List<List<Record>> batches;
+    private IUniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateBatches() {
+        batches = BenchmarkRecords.splitIntoBatches(BenchmarkRecords.generate(POOL_SIZE), batchSize);
+    }
+
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        queue = new UniqueEventsQueueBuilder()
+                .engine(engine)
+                .queueLimit(QUEUE_LIMIT)
+                .build();
+    }
+
+    @Benchmark
+    public void addAll() {
+        queue.addAll(batches.get(cursor++ % batches.size()));
+    }
+}
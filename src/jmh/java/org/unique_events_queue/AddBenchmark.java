@@ -0,0 +1,82 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single add() of a new record and of a duplicate.
+ * Run it with "-t N" to see how the engines scale with the number of producers.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AddBenchmark {
+    /*
+     * The first DUPLICATES_COUNT records are put into the queue before every iteration and feed the duplicate path.
+     * The rest feed the unique path. The pool is much larger than the queue limit, so by the time a producer wraps
+     * around the pool, its old records have been trimmed away and are unique again.
+     */
+    private static final int POOL_SIZE = 1 << 18;
+    private static final int DUPLICATES_COUNT = 1 << 10;
+    private static final int QUEUE_LIMIT = 1 << 16;
+    private static final AtomicInteger producerCounter = new AtomicInteger();
+
+    @Param({"MONITOR", "LOCK_FREE", "SHARDED", "KEY_AFFINITY"})
+    public QueueEngine engine;
+
+    private Record[] records;
+    private IUniqueEventsQueue queue;
+
+    @State(Scope.Thread)
+    public static class ProducerCursor {
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Every producer starts in its own region of the pool to avoid adding the same records as the others.
+            cursor = producerCounter.getAndIncrement() * (POOL_SIZE / 64);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+    }
+
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        queue = new UniqueEventsQueueBuilder()
+                .engine(engine)
+                .queueLimit(QUEUE_LIMIT)
+                .build();
+        for (int i = 0; i < DUPLICATES_COUNT; i++) {
+            queue.add(records[i]);
+        }
+    }
+
+    @Benchmark
+    public void addUnique(ProducerCursor producerCursor) {
+        int index = DUPLICATES_COUNT + (producerCursor.cursor++ & Integer.MAX_VALUE) % (POOL_SIZE - DUPLICATES_COUNT);
+        queue.add(records[index]);
+    }
+
+    @Benchmark
+    public void addDuplicate(ProducerCursor producerCursor) {
+        queue.add(records[producerCursor.cursor++ & (DUPLICATES_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,62 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the benchmark data with the same seeded factory as the tests, so every run sees the same records.
+ */
+final class BenchmarkRecords {
+    private BenchmarkRecords() {}
+
+    static Record[] generate(int numberOfRecords) {
+        RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+        Record[] records = new Record[numberOfRecords];
+        for (int i = 0; i < numberOfRecords; i++) {
+            records[i] = factory.generateRandomFakeRecord();
+        }
+        return records;
+    }
+
+    /**
+     * Splits the records into immutable batches of the given size. The remainder that does not fill a batch is dropped.
+     */
+    static List<List<Record>> splitIntoBatches(Record[] records, int batchSize) {
+        List<List<Record>> batches = new ArrayList<>();
+        for (int start = 0; start + batchSize <= records.length; start += batchSize) {
+            List<Record> batch = new ArrayList<>(batchSize);
+            for (int i = start; i < start + batchSize; i++) {
+                batch.add(records[i]);
+            }
+            batches.add(Collections.unmodifiableList(batch));
+        }
+        return batches;
+    }
+
+    /**
+     * Retrieves a record, giving up after the timeout, so blocked consumers can leave when a benchmark iteration ends.
+     *
+     * @return the oldest record or null if there was none within the timeout.
+     */
+    static Record getOrNull(IUniqueEventsQueue queue, long milliseconds) {
+        try {
+            if (queue instanceof LockFreeUniqueEventsQueue) {
+                return ((LockFreeUniqueEventsQueue) queue).get(milliseconds, true);
+            }
+            if (queue instanceof ShardedUniqueEventsQueue) {
+                return ((ShardedUniqueEventsQueue) queue).get(milliseconds, true);
+            }
+            if (queue instanceof SharedMemoryUniqueEventsQueue) {
+                return ((SharedMemoryUniqueEventsQueue) queue).get(milliseconds, true);
+            }
+            return ((UniqueEventsQueue) queue).poll(TimeUnit.MILLISECONDS.toNanos(milliseconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a stream of price updates, many per id, with the whole record as the identity,
+ * with the id as the identity and with the id as the identity in the coalescing mode.
+ * With the whole record as the identity, every update is a new record, so the queue fills up to its limit.
+ * With the id, it never holds more than one record per id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoalescingBenchmark {
+    private static final int ID_COUNT = 1 << 10;
+    private static final int POOL_SIZE = 1 << 16;
+    private static final int QUEUE_LIMIT = 1 << 16;
+
+    @Param({"RECORD", "ID", "ID_COALESCING"})
+    public String identity;
+
+    private Record[] updates;
+    private UniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateUpdates() {
+        Record[] records = BenchmarkRecords.generate(ID_COUNT);
+        updates = new Record[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            Record record = records[i & (ID_COUNT - 1)];
+            updates[i] = new Record(record.getId(), i, record.getDate());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder().queueLimit(QUEUE_LIMIT);
+        if (!identity.equals("RECORD")) {
+            builder.identityKey(Record::getId).coalescing(identity.equals("ID_COALESCING"));
+        }
+        queue = (UniqueEventsQueue) builder.build();
+    }
+
+    @Benchmark
+    public void addUpdate() {
+        queue.add(updates[cursor++ & (POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,68 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares emptying a deep queue record by record with get() against taking it in batches with drainTo().
+ * Both benchmarks refill the queue with the same addAll(), so the difference between them is the retrieval cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DrainBenchmark {
+    private static final int POOL_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"MONITOR", "LOCK_FREE", "SHARDED"})
+    public QueueEngine engine;
+
+    @Param({"1000", "10000"})
+    public int queueDepth;
+
+    private List<List<Record>> refills;
+    private IUniqueEventsQueue queue;
+    private final List<Record> batch = new ArrayList<>(BATCH_SIZE);
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRefills() {
+        refills = BenchmarkRecords.splitIntoBatches(BenchmarkRecords.generate(POOL_SIZE), queueDepth);
+        queue = new UniqueEventsQueueBuilder().engine(engine).build();
+    }
+
+    @Benchmark
+    public void drainWithGet(Blackhole blackhole) {
+        queue.addAll(refills.get(cursor++ % refills.size()));
+        for (int i = 0; i < queueDepth; i++) {
+            blackhole.consume(queue.get());
+        }
+    }
+
+    @Benchmark
+    public void drainWithDrainTo(Blackhole blackhole) {
+        queue.addAll(refills.get(cursor++ % refills.size()));
+        for (int i = 0; i < queueDepth; i += BATCH_SIZE) {
+            queue.drainTo(batch, BATCH_SIZE);
+            blackhole.consume(batch);
+            batch.clear();
+        }
+    }
+}
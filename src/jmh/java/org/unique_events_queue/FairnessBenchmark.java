@@ -0,0 +1,153 @@
+package org.unique_events_queue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Compares the default and the fair mode of the monitor engine with 400 consumers fed by one producer.
+ * JMH reports the get() latency percentiles, including p99.9. Next to them, it reports the longest time any
+ * consumer went without a record and how many records the least and the most served consumers got,
+ * which is where the starvation shows. These come from the producer's {@link ConsumerSpread} counters,
+ * reported as their mean over the measured iterations.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FairnessBenchmark {
+    private static final int POOL_SIZE = 1 << 18;
+    private static final int QUEUE_LIMIT = 1 << 16;
+    private static final long CONSUMER_TIMEOUT_MILLISECONDS = 10;
+
+    @State(Scope.Group)
+    public static class Shared {
+        @Param({"false", "true"})
+        public boolean fair;
+
+        private Record[] records;
+        private IUniqueEventsQueue queue;
+        private int cursor;
+        private final Queue<Consumer> consumers = new ConcurrentLinkedQueue<>();
+        private ConsumerSpread spread;
+
+        @Setup(Level.Trial)
+        public void generateRecords() {
+            records = BenchmarkRecords.generate(POOL_SIZE);
+        }
+
+        @Setup(Level.Iteration)
+        public void createQueue() {
+            queue = new UniqueEventsQueueBuilder()
+                    .queueLimit(QUEUE_LIMIT)
+                    .fair(fair)
+                    .build();
+        }
+
+        /**
+         * Runs after every thread of the group has finished the iteration and before JMH reads the counters.
+         */
+        @TearDown(Level.Iteration)
+        public void measureConsumerSpread() {
+            long now = System.nanoTime();
+            long longestWaitNanos = 0;
+            long fewestRecords = Long.MAX_VALUE;
+            long mostRecords = 0;
+            for (Consumer consumer : consumers) {
+                longestWaitNanos =
+                        Math.max(longestWaitNanos, Math.max(consumer.longestWaitNanos, now - consumer.lastServedNanos));
+                fewestRecords = Math.min(fewestRecords, consumer.servedRecords);
+                mostRecords = Math.max(mostRecords, consumer.servedRecords);
+            }
+            spread.record(longestWaitNanos, fewestRecords, mostRecords);
+            consumers.clear();
+        }
+    }
+
+    /**
+     * The starvation measures of an iteration, reported by JMH as secondary results.
+     * Only the producer thread has this state, so the counters are not summed over the consumers.
+     * JMH sums the counters over the iterations too, so every iteration records its share of the mean.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ConsumerSpread {
+        public double longestConsumerWaitMilliseconds;
+        public double fewestRecordsPerConsumer;
+        public double mostRecordsPerConsumer;
+        private int measuredIterations;
+
+        @Setup(Level.Iteration)
+        public void register(Shared shared, BenchmarkParams params) {
+            longestConsumerWaitMilliseconds = 0;
+            fewestRecordsPerConsumer = 0;
+            mostRecordsPerConsumer = 0;
+            measuredIterations = params.getMeasurement().getCount();
+            shared.spread = this;
+        }
+
+        void record(long longestWaitNanos, long fewestRecords, long mostRecords) {
+            longestConsumerWaitMilliseconds = longestWaitNanos / 1e6 / measuredIterations;
+            fewestRecordsPerConsumer = (double) fewestRecords / measuredIterations;
+            mostRecordsPerConsumer = (double) mostRecords / measuredIterations;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+        private long lastServedNanos;
+        private long longestWaitNanos;
+        private long servedRecords;
+
+        @Setup(Level.Iteration)
+        public void register(Shared shared) {
+            lastServedNanos = System.nanoTime();
+            longestWaitNanos = 0;
+            servedRecords = 0;
+            shared.consumers.add(this);
+        }
+
+        void served() {
+            long now = System.nanoTime();
+            longestWaitNanos = Math.max(longestWaitNanos, now - lastServedNanos);
+            lastServedNanos = now;
+            servedRecords++;
+        }
+    }
+
+    @Benchmark
+    @Group("consumers400")
+    @GroupThreads(1)
+    public void produce(Shared shared, ConsumerSpread spread) {
+        shared.queue.add(shared.records[shared.cursor++ & (POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @Group("consumers400")
+    @GroupThreads(400)
+    public Record consume(Shared shared, Consumer consumer) {
+        Record record = BenchmarkRecords.getOrNull(shared.queue, CONSUMER_TIMEOUT_MILLISECONDS);
+        if (record != null) {
+            consumer.served();
+        }
+        return record;
+    }
+}
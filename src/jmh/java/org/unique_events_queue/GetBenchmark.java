@@ -0,0 +1,105 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures blocking get() with 1, 10 and 400 consumers fed by one producer.
+ * Consumers give up waiting after a short timeout, so they can leave when an iteration ends.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GetBenchmark {
+    private static final int POOL_SIZE = 1 << 18;
+    private static final int QUEUE_LIMIT = 1 << 16;
+    private static final long CONSUMER_TIMEOUT_MILLISECONDS = 10;
+
+    @Param({"MONITOR", "LOCK_FREE", "SHARDED"})
+    public QueueEngine engine;
+
+    private Record[] records;
+    private IUniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+    }
+
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        queue = new UniqueEventsQueueBuilder()
+                .engine(engine)
+                .queueLimit(QUEUE_LIMIT)
+                .build();
+    }
+
+    // region 1 consumer
+    @Benchmark
+    @Group("consumers1")
+    @GroupThreads(1)
+    public void produceFor1() {
+        produce();
+    }
+
+    @Benchmark
+    @Group("consumers1")
+    @GroupThreads(1)
+    public Record consume1() {
+        return BenchmarkRecords.getOrNull(queue, CONSUMER_TIMEOUT_MILLISECONDS);
+    }
+    // endregion
+
+    // region 10 consumers
+    @Benchmark
+    @Group("consumers10")
+    @GroupThreads(1)
+    public void produceFor10() {
+        produce();
+    }
+
+    @Benchmark
+    @Group("consumers10")
+    @GroupThreads(10)
+    public Record consume10() {
+        return BenchmarkRecords.getOrNull(queue, CONSUMER_TIMEOUT_MILLISECONDS);
+    }
+    // endregion
+
+    // region 400 consumers
+    @Benchmark
+    @Group("consumers400")
+    @GroupThreads(1)
+    public void produceFor400() {
+        produce();
+    }
+
+    @Benchmark
+    @Group("consumers400")
+    @GroupThreads(400)
+    public Record consume400() {
+        return BenchmarkRecords.getOrNull(queue, CONSUMER_TIMEOUT_MILLISECONDS);
+    }
+    // endregion
+
+    private void produce() {
+        queue.add(records[cursor++ & (POOL_SIZE - 1)]);
+    }
+}
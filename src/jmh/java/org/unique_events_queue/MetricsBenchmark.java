@@ -0,0 +1,60 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the metrics on the uncontended add() and get() path.
+ * The disabled metrics are expected to be indistinguishable from a queue that never had them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsBenchmark {
+    private static final int POOL_SIZE = 1 << 16;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private Record[] records;
+    private Record duplicate;
+    private UniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE + 1);
+        duplicate = records[POOL_SIZE];
+        queue = (UniqueEventsQueue)
+                new UniqueEventsQueueBuilder().metrics(metrics).build();
+        queue.add(duplicate);
+    }
+
+    @Benchmark
+    public Record addAndGet() {
+        queue.add(records[cursor++ & (POOL_SIZE - 1)]);
+        return queue.get();
+    }
+
+    /**
+     * A duplicate goes through the admission without changing the queue, so only the counting is left to measure.
+     */
+    @Benchmark
+    public void addDuplicate() {
+        queue.add(duplicate);
+    }
+}
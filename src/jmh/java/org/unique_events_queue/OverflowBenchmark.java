@@ -0,0 +1,88 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many records per second go through the queue when a burst fits into memory
+ * and when most of it is spilled to the overflow tier and read back.
+ * Every invocation adds a burst of records one by one and then drains them in batches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OverflowBenchmark {
+    private static final int BURST_SIZE = 1 << 16;
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    @Param({"IN_MEMORY", "SPILLING"})
+    public String tier;
+
+    @Param({"4096"})
+    public long memoryLimit;
+
+    private Record[] records;
+    private Path directory;
+    private UniqueEventsQueue queue;
+    private final List<Record> drained = new ArrayList<>(BURST_SIZE);
+
+    @Setup(Level.Trial)
+    public void createQueue() throws IOException {
+        records = BenchmarkRecords.generate(BURST_SIZE);
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder();
+        if (tier.equals("SPILLING")) {
+            directory = Files.createTempDirectory("overflow-benchmark");
+            builder.queueLimit(memoryLimit).overflowToDisk(directory);
+        } else {
+            builder.queueLimit(BURST_SIZE);
+        }
+        queue = (UniqueEventsQueue) builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSegments() throws IOException {
+        queue.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder())
+                        .forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public int addAndDrainBurst() {
+        for (Record record : records) {
+            queue.add(record);
+        }
+        drained.clear();
+        while (drained.size() < BURST_SIZE) {
+            drained.addAll(queue.getBatch(DRAIN_BATCH_SIZE, 1, TimeUnit.SECONDS));
+        }
+        return drained.size();
+    }
+}
@@ -0,0 +1,72 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the serial addAll() of the monitor engine with the one that deduplicates the batch in parallel first.
+ * Every invocation adds one large batch into an empty queue. A share of the batch are copies of its other records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParallelAddAllBenchmark {
+    @Param({"SERIAL", "PARALLEL"})
+    public String path;
+
+    @Param({"10000", "100000", "1000000"})
+    public int batchSize;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double duplicateRatio;
+
+    private List<Record> batch;
+    private UniqueEventsQueue queue;
+
+    @Setup(Level.Trial)
+    public void generateBatch() {
+        int distinctCount = Math.max(1, (int) (batchSize * (1 - duplicateRatio)));
+        Record[] distinctRecords = BenchmarkRecords.generate(distinctCount);
+        Random random = new Random(42);
+        List<Record> records = new ArrayList<>(batchSize);
+        for (Record record : distinctRecords) {
+            records.add(record);
+        }
+        while (records.size() < batchSize) {
+            records.add(new Record(distinctRecords[random.nextInt(distinctCount)]));
+        }
+        Collections.shuffle(records, random);
+        batch = Collections.unmodifiableList(records);
+    }
+
+    @Setup(Level.Invocation)
+    public void createQueue() {
+        queue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .parallelAddAllThreshold(path.equals("PARALLEL") ? 0 : Integer.MAX_VALUE)
+                .build();
+    }
+
+    @Benchmark
+    public UniqueEventsQueue addAll() {
+        queue.addAll(batch);
+        return queue;
+    }
+}
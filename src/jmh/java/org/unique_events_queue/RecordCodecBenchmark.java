@@ -0,0 +1,92 @@
+package org.unique_events_queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the round trip through RecordCodec with the round trip through Java serialization,
+ * and both with checking an encoded record through a RecordView without decoding it.
+ * Record is not Serializable, so Java serialization gets a holder of the same three fields.
+ * Run it with "-prof gc" to compare the allocations as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecordCodecBenchmark {
+    private static final int POOL_SIZE = 1 << 10;
+
+    private Record[] records;
+    private ByteBuffer buffer;
+    private RecordView view;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+        buffer = ByteBuffer.allocateDirect(1024);
+        view = new RecordView();
+    }
+
+    @Benchmark
+    public Record codecRoundTrip() {
+        RecordCodec.encode(records[cursor++ & (POOL_SIZE - 1)], buffer, 0);
+        return RecordCodec.decode(buffer, 0);
+    }
+
+    @Benchmark
+    public boolean viewMatch() {
+        Record record = records[cursor++ & (POOL_SIZE - 1)];
+        RecordCodec.encode(record, buffer, 0);
+        return view.wrap(buffer, 0).matches(record) && view.recordHashCode() == record.hashCode();
+    }
+
+    @Benchmark
+    public Record javaSerializationRoundTrip() throws IOException, ClassNotFoundException {
+        Record record = records[cursor++ & (POOL_SIZE - 1)];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(new SerializableRecord(record));
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return ((SerializableRecord) input.readObject()).toRecord();
+        }
+    }
+
+    private static final class SerializableRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+        private final float value;
+        private final long dateMillis;
+
+        SerializableRecord(Record record) {
+            this.id = record.getId();
+            this.value = record.getValue();
+            this.dateMillis = record.getDate().getTime();
+        }
+
+        Record toRecord() {
+            return new Record(id, value, dateMillis);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the identity checks the queue runs on every add() and remove().
+ * Run it with "-prof gc" to see the allocation rate: gc.alloc.rate.norm is the number of bytes allocated per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecordIdentityBenchmark {
+    private static final int POOL_SIZE = 1 << 10;
+
+    private Record[] records;
+    private Record[] copies;
+    private UniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+        copies = new Record[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            copies[i] = new Record(records[i]);
+        }
+        queue = new UniqueEventsQueue();
+        for (Record record : records) {
+            queue.add(record);
+        }
+    }
+
+    @Benchmark
+    public int hashCodeOfRecord() {
+        return records[cursor++ & (POOL_SIZE - 1)].hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfCopies() {
+        int index = cursor++ & (POOL_SIZE - 1);
+        return records[index].equals(copies[index]);
+    }
+
+    /**
+     * A duplicate is rejected without changing the queue, so this add() must not allocate at all.
+     */
+    @Benchmark
+    public void addDuplicate() {
+        queue.add(copies[cursor++ & (POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,149 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the shared memory engine within one process and against a second JVM started for the trial.
+ * The round trip puts a record into a queue that the other JVM echoes into a second queue and waits for the echo.
+ * The stream takes the records that the other JVM adds as fast as it can.
+ * The files are kept under /dev/shm when it exists.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SharedMemoryBenchmark {
+    private static final long QUEUE_LIMIT = 1 << 16;
+    private static final long CAPACITY_IN_BYTES = 16 * 1024 * 1024;
+    private static final int POOL_SIZE = 1 << 16;
+
+    @State(Scope.Thread)
+    public static class OneProcess {
+        @Param({"MONITOR", "OFF_HEAP", "SHARED_MEMORY"})
+        public QueueEngine engine;
+
+        private Record[] records;
+        private IUniqueEventsQueue queue;
+        private Path directory;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void createQueue() throws IOException {
+            records = BenchmarkRecords.generate(POOL_SIZE);
+            directory = createDirectory();
+            queue = new UniqueEventsQueueBuilder()
+                    .engine(engine)
+                    .queueLimit(QUEUE_LIMIT)
+                    .offHeapCapacityInBytes(CAPACITY_IN_BYTES)
+                    .sharedMemoryFile(directory.resolve("queue"))
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteFiles() throws IOException {
+            deleteDirectory(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TwoProcesses {
+        private SharedMemoryUniqueEventsQueue requests;
+        private SharedMemoryUniqueEventsQueue replies;
+        private Process echo;
+        private Path directory;
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void startEcho() throws IOException {
+            directory = createDirectory();
+            requests = new SharedMemoryUniqueEventsQueue(directory.resolve("requests"), QUEUE_LIMIT, CAPACITY_IN_BYTES);
+            replies = new SharedMemoryUniqueEventsQueue(directory.resolve("replies"), QUEUE_LIMIT, CAPACITY_IN_BYTES);
+            echo = SharedMemoryQueueProcess.start(
+                    directory.resolve("requests"),
+                    QUEUE_LIMIT,
+                    CAPACITY_IN_BYTES,
+                    "echo",
+                    directory.resolve("replies").toString());
+        }
+
+        @TearDown(Level.Trial)
+        public void stopEcho() throws IOException, InterruptedException {
+            echo.destroy();
+            echo.waitFor();
+            deleteDirectory(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Flood {
+        private SharedMemoryUniqueEventsQueue queue;
+        private Process flood;
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void startFlood() throws IOException {
+            directory = createDirectory();
+            queue = new SharedMemoryUniqueEventsQueue(directory.resolve("queue"), QUEUE_LIMIT, CAPACITY_IN_BYTES);
+            flood = SharedMemoryQueueProcess.start(directory.resolve("queue"), QUEUE_LIMIT, CAPACITY_IN_BYTES, "flood");
+        }
+
+        @TearDown(Level.Trial)
+        public void stopFlood() throws IOException, InterruptedException {
+            flood.destroy();
+            flood.waitFor();
+            deleteDirectory(directory);
+        }
+    }
+
+    @Benchmark
+    public Record addAndGetInOneProcess(OneProcess state) {
+        state.queue.add(state.records[state.cursor++ & (POOL_SIZE - 1)]);
+        return BenchmarkRecords.getOrNull(state.queue, 1000);
+    }
+
+    @Benchmark
+    public Record roundTripToOtherProcess(TwoProcesses state) {
+        state.requests.add(new Record("request", 1, state.sequence++));
+        return state.replies.get();
+    }
+
+    @Benchmark
+    public Record streamFromOtherProcess(Flood state) {
+        return state.queue.get();
+    }
+
+    private static Path createDirectory() throws IOException {
+        Path sharedMemory = Paths.get("/dev/shm");
+        return Files.isDirectory(sharedMemory)
+                ? Files.createTempDirectory(sharedMemory, "shared-queue")
+                : Files.createTempDirectory("shared-queue");
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
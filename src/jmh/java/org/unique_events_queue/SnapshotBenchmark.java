@@ -0,0 +1,61 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a snapshot of a full queue and building a queue from it.
+ * Every invocation handles the whole queue, so the mode is single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+    @Param({"100000", "1000000"})
+    public int recordCount;
+
+    private Path file;
+    private UniqueEventsQueue queue;
+
+    @Setup(Level.Trial)
+    public void fillQueue() throws IOException {
+        file = Files.createTempFile("queue", ".snapshot");
+        queue = new UniqueEventsQueue();
+        queue.addAll(Arrays.asList(BenchmarkRecords.generate(recordCount)));
+        queue.writeSnapshot(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeSnapshot() {
+        queue.writeSnapshot(file);
+    }
+
+    @Benchmark
+    public IUniqueEventsQueue restore() {
+        return new UniqueEventsQueueBuilder().restoreFromSnapshot(file).build();
+    }
+}
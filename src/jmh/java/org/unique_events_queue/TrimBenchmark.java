@@ -0,0 +1,62 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures add() into a full queue, so that every insertion runs into the limit.
+ * The sample mode shows the tail latency, which used to spike for the producers that happened to run a periodic trim.
+ * With the eviction policies, every insertion into a full queue does the same constant work.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TrimBenchmark {
+    private static final int POOL_SIZE = 1 << 16;
+    private static final int QUEUE_LIMIT = 1 << 10;
+
+    @Param({"DROP_OLDEST", "REJECT_NEWEST"})
+    public String evictionPolicy;
+
+    private Record[] records;
+    private UniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+    }
+
+    @Setup(Level.Iteration)
+    public void createFullQueue() {
+        queue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(QUEUE_LIMIT)
+                .evictionPolicy(
+                        "REJECT_NEWEST".equals(evictionPolicy)
+                                ? EvictionPolicy.REJECT_NEWEST
+                                : EvictionPolicy.DROP_OLDEST)
+                .build();
+        for (cursor = 0; cursor < QUEUE_LIMIT; cursor++) {
+            queue.add(records[cursor]);
+        }
+    }
+
+    @Benchmark
+    public void addIntoFullQueue() {
+        queue.add(records[cursor++ & (POOL_SIZE - 1)]);
+    }
+}
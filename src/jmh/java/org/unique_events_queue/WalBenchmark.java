@@ -0,0 +1,71 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures add() and get() with the write-ahead log under every sync policy.
+ * DISABLED is the queue without a log and serves as the baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WalBenchmark {
+    private static final int POOL_SIZE = 1 << 16;
+
+    @Param({"DISABLED", "NEVER", "INTERVAL", "EVERY_WRITE"})
+    public String syncPolicy;
+
+    private Record[] records;
+    private Path directory;
+    private UniqueEventsQueue queue;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void createQueue() throws IOException {
+        records = BenchmarkRecords.generate(POOL_SIZE);
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder();
+        if (!syncPolicy.equals("DISABLED")) {
+            directory = Files.createTempDirectory("wal-benchmark");
+            builder.writeAheadLog(directory, WalSyncPolicy.valueOf(syncPolicy));
+        }
+        queue = (UniqueEventsQueue) builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        queue.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder())
+                        .forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public Record addAndGet() {
+        queue.add(records[cursor++ & (POOL_SIZE - 1)]);
+        return queue.get();
+    }
+}
@@ -0,0 +1,169 @@
+package org.unique_events_queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The monitor engine behind the {@link BlockingQueue} interface, for the code that drains or polls standard queues.
+ * Every method is a single call into the engine, so the adapter adds no locking and no copies of its own.
+ *
+ * The deduplication is kept: a record that is already queued is not inserted again,
+ * and the methods that report an insertion return false for it. Unlike {@link UniqueEventsQueue#add(Record)},
+ * the methods of this interface never evict anything: a full queue makes {@link #offer(Record)} return false,
+ * {@link #add(Record)} throw and {@link #put(Record)} wait. The capacity is the queue limit,
+ * or unbounded with an overflow tier.
+ *
+ * The records leave the queue only from its head, so {@link #remove(Object)} is not supported,
+ * and the iterator walks a copy of the records in memory taken when it is created.
+ * As with any blocking queue, null records are rejected with a NullPointerException.
+ */
+public final class BlockingUniqueEventsQueue extends AbstractQueue<Record> implements BlockingQueue<Record> {
+    private final UniqueEventsQueue queue;
+
+    /**
+     * @param queue the queue to expose. It can still be used directly alongside this adapter.
+     */
+    public BlockingUniqueEventsQueue(UniqueEventsQueue queue) {
+        if (queue == null) {
+            throw new NullPointerException("Queue cannot be null.");
+        }
+        this.queue = queue;
+    }
+
+    /**
+     * @return true if the record was inserted, false if it was a duplicate.
+     * @throws IllegalStateException if the queue is full.
+     */
+    @Override
+    public boolean add(Record record) {
+        Boolean inserted = queue.offerWithoutEviction(requireRecord(record));
+        if (inserted == null) {
+            throw new IllegalStateException("Queue full");
+        }
+        return inserted;
+    }
+
+    /**
+     * @return true if the record was inserted, false if it was a duplicate or the queue is full.
+     */
+    @Override
+    public boolean offer(Record record) {
+        return Boolean.TRUE.equals(queue.offerWithoutEviction(requireRecord(record)));
+    }
+
+    /**
+     * Waits for room as long as it takes. A duplicate returns immediately.
+     */
+    @Override
+    public void put(Record record) throws InterruptedException {
+        queue.put(requireRecord(record));
+    }
+
+    /**
+     * @return true if the record was inserted, false if it was a duplicate or the time ran out.
+     */
+    @Override
+    public boolean offer(Record record, long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.offer(requireRecord(record), timeout, unit);
+    }
+
+    @Override
+    public Record take() throws InterruptedException {
+        return queue.poll(Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits up to a deadline in nanoseconds. Nothing is allocated, whether a record comes or the time runs out.
+     */
+    @Override
+    public Record poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(unit.toNanos(timeout));
+    }
+
+    @Override
+    public Record poll() {
+        return queue.pollNow();
+    }
+
+    @Override
+    public Record peek() {
+        return queue.peek();
+    }
+
+    /**
+     * Does not take the lock of the queue.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, queue.size());
+    }
+
+    /**
+     * Does not take the lock of the queue.
+     */
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Does not take the lock of the queue.
+     *
+     * @return how many more records fit under the queue limit or Integer.MAX_VALUE with an overflow tier.
+     */
+    @Override
+    public int remainingCapacity() {
+        if (queue.hasOverflowTier()) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, queue.getQueueLimit() - queue.size()));
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Record && queue.contains((Record) object);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since the records leave the queue only from its head.
+     */
+    @Override
+    public boolean remove(Object object) {
+        throw new UnsupportedOperationException("Records can only be taken from the head of the queue.");
+    }
+
+    @Override
+    public int drainTo(Collection<? super Record> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null) {
+            throw new NullPointerException("Collection cannot be null.");
+        }
+        if (collection == this) {
+            throw new IllegalArgumentException("A queue cannot be drained into itself.");
+        }
+        return queue.drainTo(collection, maxElements);
+    }
+
+    /**
+     * @return an iterator over a copy of the records in memory, from the oldest. It does not support removal.
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return Collections.unmodifiableList(queue.toList()).iterator();
+    }
+
+    private static Record requireRecord(Record record) {
+        if (record == null) {
+            throw new NullPointerException("Record cannot be null.");
+        }
+        return record;
+    }
+}
@@ -0,0 +1,149 @@
+package org.unique_events_queue;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the identities of the records that have left the queue for a bounded time and number of records.
+ * It is not thread-safe.
+ *
+ * The window is a ring of buckets, and each bucket is an open-addressing set of 64-bit record fingerprints.
+ * New fingerprints go into the current bucket. When the current bucket has covered its share of the duration
+ * or has been filled up, the oldest bucket is cleared and becomes the current one. Therefore, an identity is
+ * remembered for at least (bucketCount - 1) / bucketCount of the window, and at most for the whole window.
+ *
+ * Each bucket starts small and doubles as it fills up, so an idle or lightly used window costs a few hundred bytes
+ * instead of the memory for the maximum number of identities. A bucket keeps its table when it is cleared,
+ * so the memory follows the highest load a bucket has seen: it is 16 to 32 bytes per remembered identity.
+ * Distinct records may share a fingerprint with a probability of about 2^-64, in which case the newer one
+ * would be wrongly rejected.
+ */
+final class DedupWindow {
+    static final int DEFAULT_BUCKET_COUNT = 8;
+    static final long DEFAULT_MAX_REMEMBERED_RECORDS = 1 << 20;
+
+    private static final long EMPTY_SLOT = 0;
+    private static final int MAX_BUCKET_LIMIT = 1 << 26;
+    private static final int INITIAL_SLOTS = 16;
+
+    private final long[][] buckets;
+    private final int[] bucketSizes;
+    private final int maxSlots;
+    private final int bucketLimit;
+    private final long bucketDurationNanos;
+    private final LongSupplier nanoClock;
+    private int currentBucket;
+    private long currentBucketStart;
+
+    /**
+     * @param windowNanos how long to remember an identity. Long.MAX_VALUE limits the window only by count.
+     * @param maxRememberedRecords how many identities to remember at most.
+     */
+    DedupWindow(long windowNanos, long maxRememberedRecords) {
+        this(windowNanos, maxRememberedRecords, DEFAULT_BUCKET_COUNT, System::nanoTime);
+    }
+
+    DedupWindow(long windowNanos, long maxRememberedRecords, int bucketCount, LongSupplier nanoClock) {
+        if (windowNanos < 1 || maxRememberedRecords < bucketCount || bucketCount < 2) {
+            throw new RuntimeException("Deduplication window is too small.");
+        }
+        this.bucketLimit = (int) Math.min(MAX_BUCKET_LIMIT, maxRememberedRecords / bucketCount);
+        this.bucketDurationNanos = windowNanos == Long.MAX_VALUE ? Long.MAX_VALUE : windowNanos / bucketCount;
+        this.nanoClock = nanoClock;
+
+        // The slots are kept at most half full, so the probe sequences stay short.
+        this.maxSlots = Integer.highestOneBit(bucketLimit) << 2;
+        this.buckets = new long[bucketCount][];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new long[Math.min(INITIAL_SLOTS, maxSlots)];
+        }
+        this.bucketSizes = new int[bucketCount];
+        this.currentBucketStart = nanoClock.getAsLong();
+    }
+
+    void remember(long fingerprint) {
+        rotateIfNeeded();
+        if (bucketSizes[currentBucket] >= bucketLimit) {
+            rotate();
+        }
+        if ((bucketSizes[currentBucket] + 1) * 2 > buckets[currentBucket].length) {
+            grow(currentBucket);
+        }
+        if (insert(buckets[currentBucket], fingerprint)) {
+            bucketSizes[currentBucket]++;
+        }
+    }
+
+    /**
+     * Doubles the table of the bucket and moves its fingerprints over. The bucket limit keeps the table
+     * within maxSlots.
+     */
+    private void grow(int bucketIndex) {
+        long[] oldBucket = buckets[bucketIndex];
+        long[] newBucket = new long[Math.min(oldBucket.length << 1, maxSlots)];
+        for (long fingerprint : oldBucket) {
+            if (fingerprint != EMPTY_SLOT) {
+                insert(newBucket, fingerprint);
+            }
+        }
+        buckets[bucketIndex] = newBucket;
+    }
+
+    boolean contains(long fingerprint) {
+        rotateIfNeeded();
+        for (long[] bucket : buckets) {
+            if (contains(bucket, fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rotateIfNeeded() {
+        if (bucketDurationNanos == Long.MAX_VALUE) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        // After a long idle period every bucket has expired, so there is no point in rotating more than all of them.
+        for (int i = 0; i < buckets.length && now - currentBucketStart >= bucketDurationNanos; i++) {
+            rotate();
+            currentBucketStart += bucketDurationNanos;
+        }
+        if (now - currentBucketStart >= bucketDurationNanos) {
+            currentBucketStart = now;
+        }
+    }
+
+    private void rotate() {
+        currentBucket = (currentBucket + 1) % buckets.length;
+        if (bucketSizes[currentBucket] > 0) {
+            Arrays.fill(buckets[currentBucket], EMPTY_SLOT);
+            bucketSizes[currentBucket] = 0;
+        }
+    }
+
+    private boolean insert(long[] bucket, long fingerprint) {
+        int bucketMask = bucket.length - 1;
+        for (int slot = (int) fingerprint & bucketMask; ; slot = (slot + 1) & bucketMask) {
+            if (bucket[slot] == fingerprint) {
+                return false;
+            }
+            if (bucket[slot] == EMPTY_SLOT) {
+                bucket[slot] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    private boolean contains(long[] bucket, long fingerprint) {
+        int bucketMask = bucket.length - 1;
+        for (int slot = (int) fingerprint & bucketMask; ; slot = (slot + 1) & bucketMask) {
+            if (bucket[slot] == fingerprint) {
+                return true;
+            }
+            if (bucket[slot] == EMPTY_SLOT) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.unique_events_queue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * A batch of records reduced to one record per identity key, in the order of the first occurrence of every key.
+ * It is built on the common fork/join pool, so a large batch is deduplicated by all the cores
+ * before the queue takes its lock, and the locked section admits only the distinct records.
+ */
+final class DistinctBatch {
+    private final Record[] records;
+    private final Object[] keys;
+    private final int mergedCount;
+
+    private DistinctBatch(Record[] records, Object[] keys, int mergedCount) {
+        this.records = records;
+        this.keys = keys;
+        this.mergedCount = mergedCount;
+    }
+
+    /**
+     * @param recordList the batch. Nulls are dropped.
+     * @param identityKey extracts the key from a record, or null if the record itself is the key.
+     * It is called from several threads at once.
+     * @param lastWins if true, every key keeps the position of its first record and the value of its last one,
+     * as the coalescing mode would do one record at a time. Otherwise, the first record of every key is kept.
+     */
+    static DistinctBatch of(List<Record> recordList, Function<Record, ?> identityKey, boolean lastWins) {
+        Record[] batch = recordList.toArray(new Record[0]);
+        Object[] batchKeys = new Object[batch.length];
+        int[] batchSlots = new int[batch.length];
+        int mask = tableSizeFor(batch.length) - 1;
+        /*
+         * An open addressing table with a slot per distinct key, shared by all the workers.
+         * The slots hold the index of the first and the last record with the key plus one, so 0 marks an empty slot.
+         * The key of a record is written before its index is published by a CAS, so the workers may compare with it.
+         */
+        AtomicIntegerArray firstIndexes = new AtomicIntegerArray(mask + 1);
+        AtomicIntegerArray lastIndexes = lastWins ? new AtomicIntegerArray(mask + 1) : null;
+
+        IntStream.range(0, batch.length).parallel().forEach(i -> {
+            if (batch[i] == null) {
+                batchSlots[i] = -1;
+                return;
+            }
+            Object key = identityKey == null ? batch[i] : identityKey.apply(batch[i]);
+            batchKeys[i] = key;
+            int hash = key.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (true) {
+                int storedIndex = firstIndexes.get(slot);
+                if (storedIndex == 0 && firstIndexes.compareAndSet(slot, 0, i + 1)) {
+                    break;
+                }
+                if (storedIndex == 0) {
+                    continue;
+                }
+                if (batchKeys[storedIndex - 1].equals(key)) {
+                    lowerTo(firstIndexes, slot, i + 1);
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            batchSlots[i] = slot;
+            if (lastIndexes != null) {
+                raiseTo(lastIndexes, slot, i + 1);
+            }
+        });
+
+        int[] firstOccurrences = IntStream.range(0, batch.length)
+                .parallel()
+                .filter(i -> batchSlots[i] >= 0 && firstIndexes.get(batchSlots[i]) == i + 1)
+                .toArray();
+        Record[] records = new Record[firstOccurrences.length];
+        Object[] keys = new Object[firstOccurrences.length];
+        IntStream.range(0, firstOccurrences.length).parallel().forEach(j -> {
+            int first = firstOccurrences[j];
+            keys[j] = batchKeys[first];
+            records[j] = lastIndexes == null ? batch[first] : batch[lastIndexes.get(batchSlots[first]) - 1];
+        });
+
+        int nonNullCount = (int) IntStream.range(0, batch.length)
+                .parallel()
+                .filter(i -> batchSlots[i] >= 0)
+                .count();
+        return new DistinctBatch(records, keys, nonNullCount - records.length);
+    }
+
+    int size() {
+        return records.length;
+    }
+
+    Record recordAt(int index) {
+        return records[index];
+    }
+
+    Object keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return how many records of the batch were merged into an earlier record with the same key.
+     */
+    int mergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return the smallest power of two that keeps the table at most half full.
+     */
+    private static int tableSizeFor(int numberOfRecords) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, numberOfRecords) * 2 - 1) << 1);
+    }
+
+    private static void lowerTo(AtomicIntegerArray indexes, int slot, int index) {
+        int storedIndex;
+        while ((storedIndex = indexes.get(slot)) > index && !indexes.compareAndSet(slot, storedIndex, index)) {}
+    }
+
+    private static void raiseTo(AtomicIntegerArray indexes, int slot, int index) {
+        int storedIndex;
+        while ((storedIndex = indexes.get(slot)) < index && !indexes.compareAndSet(slot, storedIndex, index)) {}
+    }
+}
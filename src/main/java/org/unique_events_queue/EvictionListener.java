@@ -0,0 +1,14 @@
+package org.unique_events_queue;
+
+/**
+ * Receives the records that the monitor engine left out because of its limit.
+ * The queue calls the listener after it has released its lock, in the thread of the producer that caused the eviction.
+ */
+@FunctionalInterface
+public interface EvictionListener {
+    /**
+     * @param record the evicted oldest record or the rejected new one.
+     * @param action what the eviction policy did with the record.
+     */
+    void onEviction(Record record, EvictionPolicy.Action action);
+}
@@ -0,0 +1,47 @@
+package org.unique_events_queue;
+
+/**
+ * Decides what the monitor engine does with a new record when the queue has reached its limit.
+ * The queue asks the policy once per such record, under its lock, so an implementation must be fast and must not
+ * call back into the queue.
+ */
+@FunctionalInterface
+public interface EvictionPolicy {
+    /**
+     * Evicts the oldest record to make room for the new one.
+     */
+    EvictionPolicy DROP_OLDEST = incoming -> Action.EVICT_OLDEST;
+    /**
+     * Drops the new record and keeps the queue as it is.
+     */
+    EvictionPolicy REJECT_NEWEST = incoming -> Action.REJECT_INCOMING;
+    /**
+     * Makes the producer wait until a consumer takes a record out.
+     */
+    EvictionPolicy BLOCK_PRODUCER = incoming -> Action.BLOCK_PRODUCER;
+
+    /**
+     * @param incoming the record that does not fit into the queue.
+     * @return what to do with the record.
+     */
+    Action onFullQueue(Record incoming);
+
+    /**
+     * The ways to handle a record that does not fit into the queue.
+     */
+    enum Action {
+        /**
+         * Remove the oldest record, then insert the new one.
+         */
+        EVICT_OLDEST,
+        /**
+         * Leave the new record out.
+         */
+        REJECT_INCOMING,
+        /**
+         * Wait until there is room for the new record.
+         * If the producer is interrupted while waiting, the record is left out and the interrupt flag is kept.
+         */
+        BLOCK_PRODUCER
+    }
+}
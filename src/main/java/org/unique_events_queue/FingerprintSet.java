@@ -0,0 +1,103 @@
+package org.unique_events_queue;
+
+/**
+ * A growing open-addressing set of 64-bit record fingerprints. It is not thread-safe.
+ *
+ * The fingerprints are never 0, see {@link RecordCodec#fingerprint(Record)}, so 0 marks an empty slot.
+ * The table is kept at most half full and doubles when it gets there, so it takes 16 to 32 bytes per fingerprint.
+ * Removed fingerprints are closed with backward shifting instead of tombstones, like in {@link OffHeapRecordStore}.
+ */
+final class FingerprintSet {
+    private static final long EMPTY_SLOT = 0;
+    private static final int MIN_SLOTS = 16;
+
+    private long[] slots = new long[MIN_SLOTS];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long fingerprint) {
+        int mask = slots.length - 1;
+        for (int slot = homeOf(fingerprint, mask); slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            if (slots[slot] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the fingerprint was in the set already.
+     */
+    boolean add(long fingerprint) {
+        if (size + 1 > slots.length / 2) {
+            grow();
+        }
+        if (!insert(slots, fingerprint)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * @return false if the fingerprint was not in the set.
+     */
+    boolean remove(long fingerprint) {
+        int mask = slots.length - 1;
+        int hole = homeOf(fingerprint, mask);
+        while (slots[hole] != fingerprint) {
+            if (slots[hole] == EMPTY_SLOT) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+
+        // Backward shift: pull later entries of the probe sequence into the hole, so no lookup stops early.
+        for (int next = (hole + 1) & mask; slots[next] != EMPTY_SLOT; next = (next + 1) & mask) {
+            int home = homeOf(slots[next], mask);
+            boolean homeIsBetweenHoleAndNext = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!homeIsBetweenHoleAndNext) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = EMPTY_SLOT;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        slots = new long[MIN_SLOTS];
+        size = 0;
+    }
+
+    private void grow() {
+        long[] grownSlots = new long[slots.length * 2];
+        for (long fingerprint : slots) {
+            if (fingerprint != EMPTY_SLOT) {
+                insert(grownSlots, fingerprint);
+            }
+        }
+        slots = grownSlots;
+    }
+
+    private static boolean insert(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        int slot = homeOf(fingerprint, mask);
+        while (table[slot] != EMPTY_SLOT) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+        return true;
+    }
+
+    private static int homeOf(long fingerprint, int mask) {
+        return (int) fingerprint & mask;
+    }
+}
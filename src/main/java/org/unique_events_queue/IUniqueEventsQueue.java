@@ -0,0 +1,51 @@
+package org.unique_events_queue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The public contract of a thread-safe queue of unique records.
+ * Every engine works on the First-In-First-Out (FIFO) principle and silently ignores duplicates and nulls.
+ */
+public interface IUniqueEventsQueue {
+    /**
+     * Puts a record into the queue unless an equal record is already there.
+     *
+     * @param record the record to put into the queue
+     */
+    void add(Record record);
+
+    /**
+     * Adds a list of records into the queue, skipping the duplicates.
+     *
+     * @param recordList a list of records to put into the queue.
+     */
+    void addAll(List<Record> recordList);
+
+    /**
+     * Retrieves the oldest record from the queue, waiting for one if the queue is empty.
+     *
+     * @return the oldest record from the queue.
+     */
+    Record get();
+
+    /**
+     * Moves up to the given number of the oldest records into the collection without waiting.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    int drainTo(Collection<? super Record> collection, int maxElements);
+
+    /**
+     * Retrieves up to the given number of the oldest records, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the oldest records. Empty if the waiting time ran out.
+     */
+    List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit);
+}
@@ -0,0 +1,564 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * A thread-safe queue of unique elements that routes every record to a consumer slot by a key taken from its id.
+ * A consumer registers for a slot and receives only the records of the keys that map to it,
+ * so all the records of one key are processed by one consumer in their FIFO order,
+ * and the per-key state downstream needs neither locking nor moving between cores.
+ *
+ * The key-to-slot mapping depends only on the key and the number of slots, never on which consumers are registered,
+ * so the records of a key wait for the consumer of their slot even if it registers later.
+ * With work stealing enabled, a consumer whose slot is empty takes the oldest record of another slot instead
+ * of waiting, which trades the affinity of that record for throughput.
+ * The methods of the queue itself, such as {@link #get()}, take records from any slot.
+ * The queue limit is shared by all the slots. Over the limit, the oldest record of the whole queue is evicted.
+ */
+public final class KeyAffinityUniqueEventsQueue implements IUniqueEventsQueue {
+    /*
+     * Equal records have equal ids and therefore equal keys, so they always land in the same slot,
+     * and the per-slot deduplication keeps the whole queue free of duplicates.
+     *
+     * A consumer that finds nothing to take announces itself before it checks the slots once more and parks:
+     * the consumer of a slot in the slot's owner field, and a consumer that may take from any slot in the roaming
+     * waiters queue. A producer links its record first and only then looks for somebody to unpark, the owner of the
+     * slot before a roaming waiter. Either the last check of the consumer sees the record or the producer sees the
+     * consumer, so no record is left behind while a consumer that may take it sleeps.
+     * A consumer that was unparked but took another record, or none, passes the wake-up on to a roaming waiter.
+     *
+     * The size counts the records of all the slots against the one queue limit, as in ShardedUniqueEventsQueue.
+     * A slot adds to it when it links a record and subtracts from it when a consumer takes one. An eviction first
+     * reserves its record by lowering the size with a compare-and-set from a value over the limit, so concurrent
+     * producers never evict more than the excess, and it unlinks the slot head with the smallest sequence number.
+     * If the consumers have taken every record in the meantime, the reservation is undone.
+     */
+    static final int DEFAULT_SLOT_COUNT = 16;
+
+    private final Slot[] slots;
+    private final Function<String, ?> routingKey;
+    private final boolean workStealing;
+    private final long queueLimit;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentLinkedQueue<Thread> roamingWaiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates an instance with a default parameters: 16 slots routed by the whole id and no work stealing.
+     */
+    public KeyAffinityUniqueEventsQueue() {
+        this(UniqueEventsQueue.DEFAULT_QUEUE_LIMIT, DEFAULT_SLOT_COUNT, id -> id, false);
+    }
+
+    /**
+     * Creates an instance with the specified routing.
+     *
+     * @param queueLimitParameter how many elements at most there may be in all the slots together.
+     * @param slotCount how many consumers can register.
+     * @param routingKey extracts the routing key from the record id. Equal ids must give equal keys.
+     * @param workStealing whether a consumer with an empty slot may take the records of the other slots.
+     */
+    public KeyAffinityUniqueEventsQueue(
+            long queueLimitParameter, int slotCount, Function<String, ?> routingKey, boolean workStealing) {
+        if (queueLimitParameter < 1) {
+            throw new RuntimeException("Queue size cannot be 0 or negative.");
+        }
+        if (slotCount < 1) {
+            throw new RuntimeException("Slot count cannot be 0 or negative.");
+        }
+        if (routingKey == null) {
+            throw new RuntimeException("Routing key cannot be null.");
+        }
+        this.queueLimit = queueLimitParameter;
+        this.routingKey = routingKey;
+        this.workStealing = workStealing;
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(size);
+        }
+    }
+
+    /**
+     * Claims the first free slot for the calling consumer.
+     *
+     * @return the consumer handle. Close it to free the slot.
+     * @throws RuntimeException if every slot is taken.
+     */
+    public SlotConsumer registerConsumer() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].claim()) {
+                return new SlotConsumer(i);
+            }
+        }
+        throw new RuntimeException("All " + slots.length + " consumer slots are taken.");
+    }
+
+    /**
+     * @return the slot that the records with the given id are routed to.
+     */
+    public int slotOf(String id) {
+        int hash = routingKey.apply(id).hashCode();
+        // The keys are often similar strings, so the bits are spread before taking the remainder.
+        return Math.floorMod(hash ^ (hash >>> 16), slots.length);
+    }
+
+    /**
+     * Puts a record into the slot of its key.
+     *
+     * @param record the record to put into the queue
+     */
+    @Override
+    public void add(Record record) {
+        if (record == null) {
+            return;
+        }
+
+        Slot slot = slots[slotOf(record.getId())];
+        if (slot.link(record, sequence)) {
+            trimQueueToGivenLimit();
+            wakeUpConsumerOf(slot);
+        }
+    }
+
+    /**
+     * Adds a list of records into the queue.
+     * The records are grouped by slot first, so every slot is locked once per call.
+     * They get their sequence numbers in the order of the list, so the oldest of them are the first to be evicted.
+     *
+     * @param recordList a list of records to put into the queue.
+     */
+    @Override
+    public void addAll(List<Record> recordList) {
+        if (recordList == null) {
+            return;
+        }
+
+        Record[] records = recordList.toArray(new Record[0]);
+        int[] slotIndexes = new int[records.length];
+        int[] slotEnds = new int[slots.length + 1];
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                slotIndexes[i] = slotOf(records[i].getId());
+                slotEnds[slotIndexes[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < slots.length; i++) {
+            slotEnds[i + 1] += slotEnds[i];
+        }
+        // The positions of the records in the list, grouped by slot and kept in the order of the list within a slot.
+        int[] positionsBySlot = new int[slotEnds[slots.length]];
+        int[] nextSlots = Arrays.copyOf(slotEnds, slots.length);
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                positionsBySlot[nextSlots[slotIndexes[i]]++] = i;
+            }
+        }
+
+        long firstSequence = sequence.getAndAdd(records.length);
+        int[] insertedBySlot = new int[slots.length];
+        boolean inserted = false;
+        for (int i = 0; i < slots.length; i++) {
+            if (slotEnds[i] < slotEnds[i + 1]) {
+                insertedBySlot[i] =
+                        slots[i].linkAll(records, positionsBySlot, slotEnds[i], slotEnds[i + 1], firstSequence);
+                inserted |= insertedBySlot[i] > 0;
+            }
+        }
+        if (inserted) {
+            trimQueueToGivenLimit();
+        }
+        for (int i = 0; i < slots.length; i++) {
+            for (int j = 0; j < insertedBySlot[i]; j++) {
+                wakeUpConsumerOf(slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the oldest record of any slot, waiting for one if the queue is empty.
+     * Use a registered {@link SlotConsumer} to keep the key affinity.
+     *
+     * @return a record from the queue or null if the thread was interrupted while waiting.
+     */
+    @Override
+    public Record get() {
+        return await(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Moves up to the given number of records of any slot into the collection without waiting.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null) {
+            return 0;
+        }
+
+        int numberOfItemsDrained = 0;
+        for (Slot slot : slots) {
+            numberOfItemsDrained += slot.drainTo(collection, maxElements - numberOfItemsDrained);
+        }
+        return numberOfItemsDrained;
+    }
+
+    /**
+     * Retrieves up to the given number of records of any slot, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the records taken. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        Record record = await(null, timeUnit.toNanos(timeout));
+        if (record != null) {
+            batch.add(record);
+            drainTo(batch, maxElements - 1);
+        }
+        return batch;
+    }
+
+    /**
+     * Indicates if queue contains anything.
+     *
+     * @return true if all the slots are empty. False otherwise.
+     */
+    boolean isEmpty() {
+        for (Slot slot : slots) {
+            if (slot.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int slotCount() {
+        return slots.length;
+    }
+
+    /**
+     * Takes a record for the consumer of the home slot, or for a caller without a slot if the home is null,
+     * parking until one arrives or the time runs out.
+     *
+     * @return the record or null if the time ran out or the thread was interrupted.
+     */
+    private Record await(Slot home, long timeoutNanos) {
+        boolean roaming = home == null || workStealing;
+        Record record = take(home, roaming);
+        if (record != null || timeoutNanos <= 0) {
+            return record;
+        }
+
+        Thread thread = Thread.currentThread();
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            if (home != null) {
+                home.waitingOwner = thread;
+            }
+            if (roaming) {
+                roamingWaiters.add(thread);
+            }
+            record = take(home, roaming);
+            if (record == null && !thread.isInterrupted()) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos > 0) {
+                    if (timeoutNanos == Long.MAX_VALUE) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, remainingNanos);
+                    }
+                    record = take(home, roaming);
+                }
+            }
+            if (home != null) {
+                home.waitingOwner = null;
+            }
+            if (roaming) {
+                roamingWaiters.remove(thread);
+            }
+            // A producer may have picked this thread for a record it did not take. Somebody else must look at it.
+            passOnWakeUp();
+            if (record != null || thread.isInterrupted() || deadline - System.nanoTime() <= 0) {
+                return record;
+            }
+        }
+    }
+
+    private Record take(Slot home, boolean roaming) {
+        if (home != null) {
+            Record record = home.unlinkOldest();
+            if (record != null || !roaming) {
+                return record;
+            }
+        }
+        int start = home == null ? (int) (Thread.currentThread().getId() % slots.length) : 0;
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[(start + i) % slots.length];
+            if (slot != home && slot.size > 0) {
+                Record record = slot.unlinkOldest();
+                if (record != null) {
+                    return record;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evicts the oldest records of the whole queue while it exceeds the limit.
+     */
+    private void trimQueueToGivenLimit() {
+        while (true) {
+            long currentSize = size.get();
+            if (currentSize <= queueLimit) {
+                return;
+            }
+            if (!size.compareAndSet(currentSize, currentSize - 1)) {
+                continue;
+            }
+            if (!evictOldest()) {
+                // Consumers have taken every record, and they have brought the size down themselves.
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unlinks the oldest record of the whole queue without counting it off the size.
+     *
+     * @return false if all the slots are empty.
+     */
+    private boolean evictOldest() {
+        while (true) {
+            Slot oldestSlot = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (Slot slot : slots) {
+                long headSequence = slot.headSequence();
+                if (headSequence < oldestSequence) {
+                    oldestSlot = slot;
+                    oldestSequence = headSequence;
+                }
+            }
+            if (oldestSlot == null) {
+                return false;
+            }
+            if (oldestSlot.evictOldest(oldestSequence)) {
+                return true;
+            }
+        }
+    }
+
+    private void wakeUpConsumerOf(Slot slot) {
+        Thread owner = slot.waitingOwner;
+        if (owner != null) {
+            LockSupport.unpark(owner);
+            return;
+        }
+        Thread roamingWaiter = roamingWaiters.poll();
+        if (roamingWaiter != null) {
+            LockSupport.unpark(roamingWaiter);
+        }
+    }
+
+    private void passOnWakeUp() {
+        if (!roamingWaiters.isEmpty() && !isEmpty()) {
+            Thread roamingWaiter = roamingWaiters.poll();
+            if (roamingWaiter != null) {
+                LockSupport.unpark(roamingWaiter);
+            }
+        }
+    }
+
+    /**
+     * A consumer registered for one slot. It is meant to be used by one thread at a time.
+     */
+    public final class SlotConsumer implements AutoCloseable {
+        private final int slotIndex;
+        private boolean closed;
+
+        private SlotConsumer(int slotIndex) {
+            this.slotIndex = slotIndex;
+        }
+
+        /**
+         * @return the index of the slot, the same as {@link KeyAffinityUniqueEventsQueue#slotOf(String)} returns
+         * for the ids routed to this consumer.
+         */
+        public int slot() {
+            return slotIndex;
+        }
+
+        /**
+         * Retrieves the oldest record of the slot, waiting for one if it is empty.
+         * With work stealing, the record may come from another slot.
+         *
+         * @return a record or null if the thread was interrupted while waiting.
+         */
+        public Record get() {
+            return await(ownSlot(), Long.MAX_VALUE);
+        }
+
+        /**
+         * Retrieves the oldest record of the slot, waiting at most the given time.
+         * With work stealing, the record may come from another slot.
+         *
+         * @return a record or null if the waiting time ran out or the thread was interrupted.
+         */
+        public Record get(long timeout, TimeUnit timeUnit) {
+            return await(ownSlot(), timeUnit.toNanos(timeout));
+        }
+
+        /**
+         * Moves up to the given number of the records of the slot into the collection without waiting.
+         *
+         * @return how many records were taken.
+         */
+        public int drainTo(Collection<? super Record> collection, int maxElements) {
+            return collection == null ? 0 : ownSlot().drainTo(collection, maxElements);
+        }
+
+        /**
+         * Frees the slot. Its records stay in the queue for the next consumer of the slot.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                slots[slotIndex].release();
+            }
+        }
+
+        private Slot ownSlot() {
+            if (closed) {
+                throw new RuntimeException("The consumer has been closed.");
+            }
+            return slots[slotIndex];
+        }
+    }
+
+    /**
+     * The records of one slot in their FIFO order, each with its sequence number.
+     */
+    private static final class Slot {
+        private final LinkedHashMap<Record, Long> queue = new LinkedHashMap<>();
+        private final AtomicLong queueSize;
+        private volatile int size;
+        private volatile Thread waitingOwner;
+        private boolean claimed;
+
+        Slot(AtomicLong queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        synchronized boolean claim() {
+            if (claimed) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+
+        synchronized void release() {
+            claimed = false;
+        }
+
+        synchronized boolean link(Record record, AtomicLong sequence) {
+            if (queue.containsKey(record)) {
+                return false;
+            }
+            queue.put(record, sequence.getAndIncrement());
+            size = queue.size();
+            queueSize.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Links the records at the given positions of the array, numbering them from the first sequence number
+         * by their positions.
+         */
+        synchronized int linkAll(Record[] records, int[] positions, int from, int to, long firstSequence) {
+            int numberOfItemsInserted = 0;
+            for (int i = from; i < to; i++) {
+                if (queue.putIfAbsent(records[positions[i]], firstSequence + positions[i]) == null) {
+                    numberOfItemsInserted++;
+                }
+            }
+            size = queue.size();
+            queueSize.addAndGet(numberOfItemsInserted);
+            return numberOfItemsInserted;
+        }
+
+        synchronized Record unlinkOldest() {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            Iterator<Record> iterator = queue.keySet().iterator();
+            Record recordToReturn = iterator.next();
+            iterator.remove();
+            size = queue.size();
+            queueSize.decrementAndGet();
+            return recordToReturn;
+        }
+
+        /**
+         * Unlinks the head of the slot for an eviction that has already counted it off the size,
+         * if the head still has the given sequence number.
+         *
+         * @return true if the head was unlinked.
+         */
+        synchronized boolean evictOldest(long headSequence) {
+            if (queue.isEmpty()) {
+                return false;
+            }
+            Iterator<Map.Entry<Record, Long>> iterator = queue.entrySet().iterator();
+            if (iterator.next().getValue() != headSequence) {
+                return false;
+            }
+            iterator.remove();
+            size = queue.size();
+            return true;
+        }
+
+        /**
+         * @return the sequence number of the head or Long.MAX_VALUE if the slot is empty.
+         */
+        synchronized long headSequence() {
+            return queue.isEmpty() ? Long.MAX_VALUE : queue.values().iterator().next();
+        }
+
+        synchronized int drainTo(Collection<? super Record> collection, int maxElements) {
+            int numberOfItemsDrained = 0;
+            Iterator<Record> iterator = queue.keySet().iterator();
+            while (numberOfItemsDrained < maxElements && iterator.hasNext()) {
+                collection.add(iterator.next());
+                iterator.remove();
+                numberOfItemsDrained++;
+            }
+            size = queue.size();
+            queueSize.addAndGet(-numberOfItemsDrained);
+            return numberOfItemsDrained;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs producers and consumers against the monitor engine for a fixed duration and measures the end-to-end latency
+ * of every record, from the moment it should have been added to the moment a consumer got it.
+ *
+ * In the open loop, the producers add their batches on a fixed schedule that makes up the target rate.
+ * A batch that is late because the queue or the machine stalled is still measured from its scheduled time,
+ * so a stall shows up in the latencies of all the records it delayed instead of being hidden
+ * by the producer sending less (the coordinated omission).
+ * In the closed loop, every producer adds its next batch as soon as the previous one is in,
+ * so the queue sets the pace and the latency is measured from the actual add.
+ *
+ * Duplicates are copies of records added earlier in the same batch. The queue rejects a copy unless a waiting consumer
+ * has already taken its original, in which case the copy is a new record again.
+ * The records that the producers outrun the consumers with are evicted at the queue limit.
+ * The counts of the added, duplicate and evicted records come from the metrics of the queue.
+ * Every record carries its scheduled time as its date, which costs nothing to read on the consumer side.
+ */
+final class LoadGenerator {
+    static final String USAGE = "Options: --loop=open|closed --producers=N --consumers=M --duration-seconds=S"
+            + " --rate=<records per second in the open loop> --batch-size=B --duplicate-ratio=<0 to 1>"
+            + " --queue-limit=L";
+
+    private static final int CONSUMER_BATCH_SIZE = 256;
+    private static final long CONSUMER_POLL_MILLISECONDS = 10;
+
+    private boolean openLoop = true;
+    private int producers = 1;
+    private int consumers = 1;
+    private long durationSeconds = 10;
+    private long rate = 100_000;
+    private int batchSize = 1;
+    private double duplicateRatio = 0;
+    private long queueLimit = UniqueEventsQueue.DEFAULT_QUEUE_LIMIT;
+
+    private final LogHistogram latencies = new LogHistogram();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator lastConsumedNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private volatile boolean producing;
+    private long startNanos;
+
+    /**
+     * @param args the options in the form of --name=value, see {@link #USAGE}. Missing options keep their defaults.
+     * @return a generator with the given settings.
+     */
+    static LoadGenerator fromArguments(String... args) {
+        LoadGenerator generator = new LoadGenerator();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new RuntimeException("Cannot parse the option " + arg + ". " + USAGE);
+            }
+            String value = arg.substring(separator + 1);
+            try {
+                switch (arg.substring(2, separator)) {
+                    case "loop":
+                        if (!value.equals("open") && !value.equals("closed")) {
+                            throw new RuntimeException("Loop must be open or closed.");
+                        }
+                        generator.openLoop = value.equals("open");
+                        break;
+                    case "producers":
+                        generator.producers = Integer.parseInt(value);
+                        break;
+                    case "consumers":
+                        generator.consumers = Integer.parseInt(value);
+                        break;
+                    case "duration-seconds":
+                        generator.durationSeconds = Long.parseLong(value);
+                        break;
+                    case "rate":
+                        generator.rate = Long.parseLong(value);
+                        break;
+                    case "batch-size":
+                        generator.batchSize = Integer.parseInt(value);
+                        break;
+                    case "duplicate-ratio":
+                        generator.duplicateRatio = Double.parseDouble(value);
+                        break;
+                    case "queue-limit":
+                        generator.queueLimit = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown option " + arg + ". " + USAGE);
+                }
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Cannot parse the option " + arg + ". " + USAGE, e);
+            }
+        }
+        generator.validate();
+        return generator;
+    }
+
+    private void validate() {
+        if (producers < 1 || consumers < 1) {
+            throw new RuntimeException("There must be at least one producer and one consumer.");
+        }
+        if (durationSeconds < 1) {
+            throw new RuntimeException("Duration must be at least one second.");
+        }
+        if (openLoop && rate < 1) {
+            throw new RuntimeException("Rate must be positive.");
+        }
+        if (batchSize < 1) {
+            throw new RuntimeException("Batch size must be positive.");
+        }
+        if (duplicateRatio < 0 || duplicateRatio >= 1) {
+            throw new RuntimeException("Duplicate ratio must be at least 0 and less than 1.");
+        }
+        if (duplicateRatio > 0 && batchSize < 2) {
+            throw new RuntimeException(
+                    "Duplicates are copies within a batch, so they need a batch size of at least 2.");
+        }
+    }
+
+    /**
+     * Runs the load for the configured duration, then lets the consumers take what is left in the queue.
+     *
+     * @return the throughput and the latencies.
+     */
+    Report run() throws InterruptedException {
+        UniqueEventsQueue queue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(queueLimit)
+                .metrics(true)
+                .build();
+        List<Thread> producerThreads = new ArrayList<>();
+        List<Thread> consumerThreads = new ArrayList<>();
+        producing = true;
+        startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (int i = 0; i < consumers; i++) {
+            consumerThreads.add(start("load-consumer-" + i, () -> consume(queue)));
+        }
+        for (int i = 0; i < producers; i++) {
+            int producer = i;
+            producerThreads.add(start("load-producer-" + i, () -> produce(queue, producer, endNanos)));
+        }
+        for (Thread thread : producerThreads) {
+            thread.join();
+        }
+        producing = false;
+        for (Thread thread : consumerThreads) {
+            thread.join();
+        }
+        QueueMetricsSnapshot metrics = queue.metricsSnapshot();
+        return new Report(
+                sent.sum(),
+                metrics.getAddedCount(),
+                metrics.getDuplicateCount(),
+                metrics.getEvictedCount(),
+                consumed.sum(),
+                Math.max(1, lastConsumedNanos.get()),
+                latencies.counts(),
+                maxLatency.get());
+    }
+
+    private void produce(UniqueEventsQueue queue, int producer, long endNanos) {
+        double nanosBetweenBatches = (double) TimeUnit.SECONDS.toNanos(1) * batchSize / rate;
+        long batchNumber = producer;
+        long scheduledNanos = startNanos;
+        String idPrefix = "producer" + producer + "-";
+        long sequence = 0;
+        List<Record> batch = new ArrayList<>(batchSize);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long now = System.nanoTime();
+            if (openLoop) {
+                scheduledNanos = startNanos + (long) (batchNumber * nanosBetweenBatches);
+                if (scheduledNanos >= endNanos) {
+                    return;
+                }
+                if (scheduledNanos > now) {
+                    LockSupport.parkNanos(scheduledNanos - now);
+                }
+            } else {
+                if (now >= endNanos) {
+                    return;
+                }
+                scheduledNanos = now;
+            }
+
+            batch.clear();
+            for (int i = 0; i < batchSize; i++) {
+                if (i > 0 && random.nextDouble() < duplicateRatio) {
+                    batch.add(new Record(batch.get(random.nextInt(i))));
+                } else {
+                    batch.add(new Record(idPrefix + sequence++, 1, scheduledNanos - startNanos));
+                }
+            }
+            sent.add(batchSize);
+            if (batchSize == 1) {
+                queue.add(batch.get(0));
+            } else {
+                queue.addAll(batch);
+            }
+            batchNumber += producers;
+        }
+    }
+
+    private void consume(UniqueEventsQueue queue) {
+        while (true) {
+            boolean lastPoll = !producing;
+            List<Record> records =
+                    queue.getBatch(CONSUMER_BATCH_SIZE, CONSUMER_POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+            long now = System.nanoTime() - startNanos;
+            for (Record record : records) {
+                long latency = now - record.getDateMillis();
+                latencies.record(latency);
+                maxLatency.accumulate(latency);
+            }
+            if (!records.isEmpty()) {
+                consumed.add(records.size());
+                lastConsumedNanos.accumulate(now);
+            } else if (lastPoll) {
+                return;
+            }
+        }
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * What a run measured. The latencies are in nanoseconds. The percentiles are the upper bounds
+     * of their power-of-two buckets, capped by the exact maximum, so they overestimate by less than a factor of two.
+     */
+    static final class Report {
+        final long sent;
+        final long added;
+        final long duplicates;
+        final long evicted;
+        final long consumed;
+        final long elapsedNanos;
+        final long[] latencyCounts;
+        final long maxLatencyNanos;
+
+        Report(
+                long sent,
+                long added,
+                long duplicates,
+                long evicted,
+                long consumed,
+                long elapsedNanos,
+                long[] latencyCounts,
+                long maxLatencyNanos) {
+            this.sent = sent;
+            this.added = added;
+            this.duplicates = duplicates;
+            this.evicted = evicted;
+            this.consumed = consumed;
+            this.elapsedNanos = elapsedNanos;
+            this.latencyCounts = latencyCounts;
+            this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        long percentile(double percentile) {
+            return Math.min(LogHistogram.percentile(latencyCounts, percentile), maxLatencyNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ROOT,
+                    "sent %d records, added %d, rejected %d duplicates, evicted %d, consumed %d%n"
+                            + "throughput %.0f records/s%n"
+                            + "latency p50 %s, p99 %s, p99.9 %s, max %s",
+                    sent,
+                    added,
+                    duplicates,
+                    evicted,
+                    consumed,
+                    consumed * 1e9 / elapsedNanos,
+                    formatNanos(percentile(50)),
+                    formatNanos(percentile(99)),
+                    formatNanos(percentile(99.9)),
+                    formatNanos(maxLatencyNanos));
+        }
+
+        private static String formatNanos(long nanos) {
+            if (nanos < 1_000_000) {
+                return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+            }
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        }
+    }
+}
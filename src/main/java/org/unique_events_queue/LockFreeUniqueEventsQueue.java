@@ -0,0 +1,238 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe queue of unique elements that does not serialize producers and consumers on a global lock.
+ * It works on the First-In-First-Out (FIFO) principle.
+ */
+public final class LockFreeUniqueEventsQueue implements IUniqueEventsQueue {
+    /*
+     * The membership index decides whether a record is a duplicate, the linked queue keeps the FIFO order and
+     * the semaphore counts the records that consumers may take.
+     *
+     * The invariant is that the number of permits never exceeds the number of records in the linked queue:
+     * a producer releases a permit only after its record is linked, and a consumer polls only after it has
+     * acquired a permit. Therefore, a poll that follows a successful acquire never returns null.
+     *
+     * A record is removed from the index right after it is polled. An equal record that arrives in between is
+     * treated as a duplicate of the one being handed out, as if it had arrived a moment earlier.
+     *
+     * The size counts the linked records for the queue limit. A producer adds to it after linking, and a consumer
+     * subtracts from it after polling. An eviction first reserves its record by lowering the size with
+     * a compare-and-set from a value over the limit, so concurrent producers never evict more than the excess.
+     */
+    private final Set<Record> index = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore availableRecords = new Semaphore(0);
+    private final AtomicLong size = new AtomicLong();
+    private final long queueLimit;
+
+    /**
+     * Creates an instance with a default parameters.
+     */
+    public LockFreeUniqueEventsQueue() {
+        this(UniqueEventsQueue.DEFAULT_QUEUE_LIMIT);
+    }
+
+    /**
+     * Creates an instance with a specified queue limit.
+     * Like {@link UniqueEventsQueue}, the queue is trimmed on every insertion.
+     *
+     * @param queueLimitParameter how many elements at most there may be in the queue.
+     */
+    public LockFreeUniqueEventsQueue(long queueLimitParameter) {
+        if (queueLimitParameter < 1) {
+            throw new RuntimeException("Queue size cannot be 0 or negative.");
+        }
+        queueLimit = queueLimitParameter;
+    }
+
+    /**
+     * Puts a record into the queue.
+     *
+     * @param record the record to put into the queue
+     */
+    @Override
+    public void add(Record record) {
+        if (link(record)) {
+            size.incrementAndGet();
+            availableRecords.release();
+            trimQueueToGivenLimit();
+        }
+    }
+
+    /**
+     * Adds a list of records into the queue.
+     * Only as many waiting consumers are woken up as there were records inserted.
+     *
+     * @param recordList a list of records to put into the queue.
+     */
+    @Override
+    public void addAll(List<Record> recordList) {
+        if (recordList == null) {
+            return;
+        }
+
+        int numberOfItemsInserted = 0;
+        for (Record record : recordList) {
+            if (link(record)) {
+                numberOfItemsInserted++;
+            }
+        }
+        if (numberOfItemsInserted > 0) {
+            size.addAndGet(numberOfItemsInserted);
+            availableRecords.release(numberOfItemsInserted);
+            trimQueueToGivenLimit();
+        }
+    }
+
+    /**
+     * Retrieves the oldest record from the queue. FIFO principle.
+     *
+     * @return the oldest record from the queue or null if the thread was interrupted while waiting.
+     */
+    @Override
+    public Record get() {
+        try {
+            availableRecords.acquire();
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return takeOldest();
+    }
+
+    /**
+     * Retrieves a record from the queue.
+     *
+     * @param milliseconds wait for how many milliseconds before checking the queue state again.
+     * @param shouldItThrow a flag to allow throwing an unchecked exception if the waiting time ran out.
+     * @return a Record from the queue on the FIFO principle.
+     */
+    Record get(long milliseconds, boolean shouldItThrow) {
+        try {
+            while (!availableRecords.tryAcquire(milliseconds, TimeUnit.MILLISECONDS)) {
+                if (shouldItThrow) {
+                    throw new RuntimeException("Timed out. There were no elements in the queue.");
+                }
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return takeOldest();
+    }
+
+    /**
+     * Moves up to the given number of the oldest records into the collection without waiting. FIFO principle.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null) {
+            return 0;
+        }
+
+        int numberOfItemsDrained = 0;
+        while (numberOfItemsDrained < maxElements && availableRecords.tryAcquire()) {
+            collection.add(takeOldest());
+            numberOfItemsDrained++;
+        }
+        return numberOfItemsDrained;
+    }
+
+    /**
+     * Retrieves up to the given number of the oldest records, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the oldest records on the FIFO principle. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        try {
+            if (!availableRecords.tryAcquire(timeout, timeUnit)) {
+                return batch;
+            }
+        } catch (InterruptedException e) {
+            return batch;
+        }
+        batch.add(takeOldest());
+        drainTo(batch, maxElements - 1);
+        return batch;
+    }
+
+    /**
+     * Indicates if queue contains anything.
+     *
+     * @return true if the queue is empty. False otherwise.
+     */
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    long waitingThreadsCount() {
+        return availableRecords.getQueueLength();
+    }
+
+    private boolean link(Record record) {
+        if (record == null || !index.add(record)) {
+            return false;
+        }
+        queue.offer(record);
+        return true;
+    }
+
+    /**
+     * Takes the oldest record for a consumer. The caller must hold a permit.
+     */
+    private Record takeOldest() {
+        Record recordToReturn = unlinkOldest();
+        size.decrementAndGet();
+        return recordToReturn;
+    }
+
+    private Record unlinkOldest() {
+        Record recordToReturn = queue.poll();
+        index.remove(recordToReturn);
+        return recordToReturn;
+    }
+
+    /**
+     * Evicts the oldest records while the queue exceeds the limit.
+     * The eviction competes with consumers for the permits, so a record is never handed out twice.
+     */
+    private void trimQueueToGivenLimit() {
+        while (true) {
+            long currentSize = size.get();
+            if (currentSize <= queueLimit) {
+                return;
+            }
+            if (!size.compareAndSet(currentSize, currentSize - 1)) {
+                continue;
+            }
+            if (!availableRecords.tryAcquire()) {
+                // Consumers hold the permits of all the remaining records, so they bring the size down themselves.
+                size.incrementAndGet();
+                return;
+            }
+            unlinkOldest();
+        }
+    }
+}
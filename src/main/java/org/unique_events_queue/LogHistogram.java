@@ -0,0 +1,75 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative values with power-of-two buckets.
+ * Bucket 0 counts the zeros, and bucket i counts the values from 2^(i-1) to 2^i - 1.
+ * Every bucket is a striped counter, so concurrent recording does not contend on a single cache line.
+ */
+final class LogHistogram {
+    static final int BUCKET_COUNT = Long.SIZE + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+    LogHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value the value to count. Negative values are counted as zeros.
+     */
+    void record(long value) {
+        buckets[bucketOf(value)].increment();
+    }
+
+    /**
+     * @return the counts of the buckets. Not an atomic snapshot if values are being recorded concurrently.
+     */
+    long[] counts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    static int bucketOf(long value) {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return the largest value the bucket counts.
+     */
+    static long upperBoundOf(int bucket) {
+        return bucket >= Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * Estimates a percentile of the counted values.
+     *
+     * @param counts the counts of the buckets.
+     * @param percentile the percentile from 0 to 100.
+     * @return the upper bound of the bucket the percentile falls into or 0 if nothing was counted.
+     */
+    static long percentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(counts.length - 1);
+    }
+}
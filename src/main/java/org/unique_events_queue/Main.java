@@ -1,5 +1,14 @@
 package org.unique_events_queue;
 
+/**
+ * Runs the load generator with the given options and prints its report, see {@link LoadGenerator#USAGE}.
+ */
 public class Main {
-    public static void main(String[] args) {}
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 1 && args[0].equals("--help")) {
+            System.out.println(LoadGenerator.USAGE);
+            return;
+        }
+        System.out.println(LoadGenerator.fromArguments(args).run());
+    }
 }
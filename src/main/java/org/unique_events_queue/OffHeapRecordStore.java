@@ -0,0 +1,281 @@
+package org.unique_events_queue;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A FIFO set of encoded records that lives outside the Java heap. It is not thread-safe.
+ *
+ * The records are kept in a ring of direct buffer slabs. Every entry is
+ * the entry length (int), the fingerprint (long) and the encoded record, see {@link RecordCodec}.
+ * An entry never crosses a slab boundary: when it does not fit into the rest of a slab, the rest is skipped,
+ * and a wrap marker is written there if there is room for it.
+ *
+ * The duplicates are found with an open-addressing index of (fingerprint, entry position) pairs,
+ * which lives in a direct buffer too. Equal fingerprints are confirmed by comparing the records in place,
+ * so the deduplication is exact. Deleted slots are closed with backward shifting instead of tombstones.
+ */
+final class OffHeapRecordStore {
+    static final int ENTRY_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    static final int COUNTERS_SIZE = 3 * Long.BYTES;
+
+    private static final int WRAP_MARKER = -1;
+    private static final int INDEX_SLOT_SIZE = 2 * Long.BYTES;
+    private static final int MIN_INDEX_SLOTS = 16;
+    private static final int MAX_INDEX_SLOTS = 1 << 26;
+    private static final long EMPTY_SLOT = 0;
+
+    private final ByteBuffer[] slabs;
+    private final int slabSize;
+    private final long capacity;
+    private final ByteBuffer index;
+    private final int indexMask;
+    private final int maxEntries;
+
+    /*
+     * The head and the tail grow forever; their physical position in the ring is the remainder of the capacity.
+     * Their difference is the number of bytes in use, including the skipped slab ends.
+     */
+    private long head;
+    private long tail;
+    private int size;
+
+    /**
+     * @param capacityInBytes how many bytes the records may take. Rounded up to whole slabs.
+     * @param slabSize the size of one direct buffer. The largest entry must fit into it.
+     */
+    OffHeapRecordStore(long capacityInBytes, int slabSize) {
+        this(
+                allocateSlabs(capacityInBytes, slabSize),
+                ByteBuffer.allocateDirect(indexSizeInBytes((capacityInBytes + slabSize - 1) / slabSize * slabSize)));
+    }
+
+    /**
+     * Creates a store over the given memory, for example a file mapped by several processes.
+     * The index must be zeroed when the store is used for the first time.
+     *
+     * @param slabs the ring of the records. All the slabs must have the same capacity.
+     * @param index the memory for the index, at least {@link #indexSizeInBytes(long)} of the ring capacity.
+     */
+    OffHeapRecordStore(ByteBuffer[] slabs, ByteBuffer index) {
+        this.slabs = slabs;
+        this.slabSize = slabs[0].capacity();
+        this.capacity = (long) slabs.length * slabSize;
+        int indexSlots = indexSlotsFor(capacity);
+        this.index = index;
+        this.indexMask = indexSlots - 1;
+        this.maxEntries = indexSlots / 4 * 3;
+    }
+
+    /**
+     * @return how many bytes the index of a ring with the given capacity takes.
+     */
+    static int indexSizeInBytes(long capacityInBytes) {
+        return indexSlotsFor(capacityInBytes) * INDEX_SLOT_SIZE;
+    }
+
+    /*
+     * One index slot per 64 bytes of records is enough for entries of a typical size.
+     * The index is never filled by more than three quarters, so the probe sequences stay short.
+     * If the records are unusually small, the index fills up before the ring does, and the oldest records
+     * have to be evicted earlier.
+     */
+    private static int indexSlotsFor(long capacityInBytes) {
+        long desiredSlots = Math.max(MIN_INDEX_SLOTS, Math.min(MAX_INDEX_SLOTS, capacityInBytes / 64));
+        return Integer.highestOneBit((int) desiredSlots);
+    }
+
+    private static ByteBuffer[] allocateSlabs(long capacityInBytes, int slabSize) {
+        if (capacityInBytes < 1 || slabSize < ENTRY_HEADER_SIZE + RecordCodec.FIXED_SIZE) {
+            throw new RuntimeException("Off-heap capacity is too small.");
+        }
+        int slabCount = (int) ((capacityInBytes + slabSize - 1) / slabSize);
+        ByteBuffer[] slabs = new ByteBuffer[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(slabSize);
+        }
+        return slabs;
+    }
+
+    /**
+     * Loads the head, the tail and the size from the given position, where {@link #storeCounters} put them.
+     * Together, the two let several instances over the same memory take turns, one at a time.
+     */
+    void loadCounters(ByteBuffer buffer, int offset) {
+        head = buffer.getLong(offset);
+        tail = buffer.getLong(offset + Long.BYTES);
+        size = buffer.getInt(offset + 2 * Long.BYTES);
+    }
+
+    /**
+     * Stores the head, the tail and the size at the given position, taking {@link #COUNTERS_SIZE} bytes.
+     * The size comes last, as an int, so it can be read on its own.
+     */
+    void storeCounters(ByteBuffer buffer, int offset) {
+        buffer.putLong(offset, head);
+        buffer.putLong(offset + Long.BYTES, tail);
+        buffer.putInt(offset + 2 * Long.BYTES, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long capacityInBytes() {
+        return capacity;
+    }
+
+    static int entrySize(Record record) {
+        return ENTRY_HEADER_SIZE + RecordCodec.encodedSize(record);
+    }
+
+    boolean fitsIntoSlab(int entrySize) {
+        return entrySize <= slabSize;
+    }
+
+    boolean contains(Record record, long fingerprint) {
+        return findSlot(record, fingerprint) >= 0;
+    }
+
+    /**
+     * Indicates if an entry of the given size can be appended without evicting anything.
+     */
+    boolean hasRoomFor(int entrySize) {
+        if (size >= maxEntries) {
+            return false;
+        }
+        int offsetInSlab = (int) ((tail % capacity) % slabSize);
+        long skippedBytes = offsetInSlab + entrySize > slabSize ? slabSize - offsetInSlab : 0;
+        return capacity - (tail - head) >= skippedBytes + entrySize;
+    }
+
+    /**
+     * Appends a record that is not in the store yet. The caller must make sure there is room for it.
+     */
+    void append(Record record, long fingerprint, int entrySize) {
+        int offsetInSlab = (int) ((tail % capacity) % slabSize);
+        if (offsetInSlab + entrySize > slabSize) {
+            int skippedBytes = slabSize - offsetInSlab;
+            if (skippedBytes >= Integer.BYTES) {
+                slabOf(tail).putInt(offsetInSlab, WRAP_MARKER);
+            }
+            tail += skippedBytes;
+            offsetInSlab = 0;
+        }
+
+        ByteBuffer slab = slabOf(tail);
+        slab.putInt(offsetInSlab, entrySize);
+        slab.putLong(offsetInSlab + Integer.BYTES, fingerprint);
+        RecordCodec.encode(record, slab, offsetInSlab + ENTRY_HEADER_SIZE);
+        insertIntoIndex(fingerprint, tail % capacity);
+        tail += entrySize;
+        size++;
+    }
+
+    /**
+     * Removes the oldest record and creates an on-heap copy of it.
+     *
+     * @return the oldest record or null if the store is empty.
+     */
+    Record pollOldest() {
+        if (size == 0) {
+            return null;
+        }
+        skipWrapAtHead();
+        ByteBuffer slab = slabOf(head);
+        int offsetInSlab = (int) ((head % capacity) % slabSize);
+        Record record = RecordCodec.decode(slab, offsetInSlab + ENTRY_HEADER_SIZE);
+        unlinkHead(slab, offsetInSlab);
+        return record;
+    }
+
+    /**
+     * Removes the oldest record without creating an on-heap copy of it.
+     */
+    void evictOldest() {
+        if (size == 0) {
+            return;
+        }
+        skipWrapAtHead();
+        unlinkHead(slabOf(head), (int) ((head % capacity) % slabSize));
+    }
+
+    private void unlinkHead(ByteBuffer slab, int offsetInSlab) {
+        long fingerprint = slab.getLong(offsetInSlab + Integer.BYTES);
+        removeFromIndex(fingerprint, head % capacity);
+        head += slab.getInt(offsetInSlab);
+        size--;
+        if (size == 0) {
+            // Nothing refers to the old positions anymore, so the next entry may start at a slab boundary.
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    private void skipWrapAtHead() {
+        int offsetInSlab = (int) ((head % capacity) % slabSize);
+        int bytesLeftInSlab = slabSize - offsetInSlab;
+        if (bytesLeftInSlab < Integer.BYTES || slabOf(head).getInt(offsetInSlab) == WRAP_MARKER) {
+            head += bytesLeftInSlab;
+        }
+    }
+
+    private ByteBuffer slabOf(long position) {
+        return slabs[(int) ((position % capacity) / slabSize)];
+    }
+
+    // region index
+    private int findSlot(Record record, long fingerprint) {
+        for (int slot = (int) fingerprint & indexMask; ; slot = (slot + 1) & indexMask) {
+            long slotFingerprint = index.getLong(slot * INDEX_SLOT_SIZE);
+            if (slotFingerprint == EMPTY_SLOT) {
+                return -1;
+            }
+            if (slotFingerprint == fingerprint) {
+                long position = index.getLong(slot * INDEX_SLOT_SIZE + Long.BYTES);
+                int offsetInSlab = (int) (position % slabSize);
+                if (RecordCodec.equalsEncoded(record, slabOf(position), offsetInSlab + ENTRY_HEADER_SIZE)) {
+                    return slot;
+                }
+            }
+        }
+    }
+
+    private void insertIntoIndex(long fingerprint, long position) {
+        int slot = (int) fingerprint & indexMask;
+        while (index.getLong(slot * INDEX_SLOT_SIZE) != EMPTY_SLOT) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.putLong(slot * INDEX_SLOT_SIZE, fingerprint);
+        index.putLong(slot * INDEX_SLOT_SIZE + Long.BYTES, position);
+    }
+
+    private void removeFromIndex(long fingerprint, long position) {
+        int slot = (int) fingerprint & indexMask;
+        while (index.getLong(slot * INDEX_SLOT_SIZE) != fingerprint
+                || index.getLong(slot * INDEX_SLOT_SIZE + Long.BYTES) != position) {
+            slot = (slot + 1) & indexMask;
+        }
+
+        // Backward shift: pull later entries of the probe sequence into the hole, so no lookup stops early.
+        int hole = slot;
+        for (int next = (hole + 1) & indexMask; ; next = (next + 1) & indexMask) {
+            long nextFingerprint = index.getLong(next * INDEX_SLOT_SIZE);
+            if (nextFingerprint == EMPTY_SLOT) {
+                break;
+            }
+            int home = (int) nextFingerprint & indexMask;
+            boolean homeIsBetweenHoleAndNext = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!homeIsBetweenHoleAndNext) {
+                index.putLong(hole * INDEX_SLOT_SIZE, nextFingerprint);
+                index.putLong(hole * INDEX_SLOT_SIZE + Long.BYTES, index.getLong(next * INDEX_SLOT_SIZE + Long.BYTES));
+                hole = next;
+            }
+        }
+        index.putLong(hole * INDEX_SLOT_SIZE, EMPTY_SLOT);
+    }
+    // endregion
+}
@@ -0,0 +1,261 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe queue of unique elements that keeps the records outside the Java heap.
+ * It works on the First-In-First-Out (FIFO) principle.
+ *
+ * The queued records cost the garbage collector nothing: they are stored encoded in direct buffers,
+ * and an on-heap Record is created only when a consumer retrieves it.
+ * When the queue runs out of either the queue limit or the off-heap capacity, the oldest records are evicted.
+ * A record is stored within one slab of direct memory, which takes the off-heap capacity up to 16 MiB,
+ * so a record whose encoded size exceeds the slab is rejected with an exception.
+ */
+public final class OffHeapUniqueEventsQueue implements IUniqueEventsQueue {
+    /*
+     * The store is guarded by its own monitor. The semaphore counts the records that consumers may take,
+     * the same way as in LockFreeUniqueEventsQueue: a permit is released only after the record is stored,
+     * and a record is taken only after a permit is acquired.
+     *
+     * The eviction has to acquire a permit as well. It takes the permits that the current call has not released
+     * yet first. In the rare case that every queued record has already been promised to a consumer that has not
+     * taken it yet, nothing can be evicted and the new record is dropped.
+     */
+    static final long DEFAULT_CAPACITY_IN_BYTES = 64L * 1024 * 1024;
+    static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+    private final OffHeapRecordStore store;
+    private final Semaphore availableRecords = new Semaphore(0);
+    private final long queueLimit;
+    private int unreleasedPermits;
+
+    /**
+     * Creates an instance with a default parameters.
+     */
+    public OffHeapUniqueEventsQueue() {
+        this(UniqueEventsQueue.DEFAULT_QUEUE_LIMIT, DEFAULT_CAPACITY_IN_BYTES);
+    }
+
+    /**
+     * Creates an instance with a specified queue limit and off-heap capacity.
+     *
+     * @param queueLimitParameter how many elements at most there may be in the queue.
+     * @param capacityInBytes how many bytes of direct memory the records may take.
+     */
+    public OffHeapUniqueEventsQueue(long queueLimitParameter, long capacityInBytes) {
+        if (queueLimitParameter < 1) {
+            throw new RuntimeException("Queue size cannot be 0 or negative.");
+        }
+        queueLimit = queueLimitParameter;
+        store = new OffHeapRecordStore(capacityInBytes, (int) Math.min(capacityInBytes, DEFAULT_SLAB_SIZE));
+    }
+
+    /**
+     * Puts a record into the queue.
+     *
+     * @param record the record to put into the queue
+     * @throws RuntimeException if the record does not fit into an off-heap slab.
+     */
+    @Override
+    public void add(Record record) {
+        if (record == null) {
+            return;
+        }
+
+        int entrySize = entrySizeOf(record);
+        int numberOfItemsInserted;
+        synchronized (store) {
+            link(record, entrySize);
+            numberOfItemsInserted = takeUnreleasedPermits();
+        }
+        if (numberOfItemsInserted > 0) {
+            availableRecords.release(numberOfItemsInserted);
+        }
+    }
+
+    /**
+     * Adds a list of records into the queue under a single lock acquisition.
+     * Only as many waiting consumers are woken up as there were records inserted.
+     *
+     * @param recordList a list of records to put into the queue.
+     * @throws RuntimeException if any of the records does not fit into an off-heap slab. Nothing is inserted then.
+     */
+    @Override
+    public void addAll(List<Record> recordList) {
+        if (recordList == null) {
+            return;
+        }
+
+        Record[] records = recordList.toArray(new Record[0]);
+        int[] entrySizes = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                entrySizes[i] = entrySizeOf(records[i]);
+            }
+        }
+        int numberOfItemsInserted;
+        synchronized (store) {
+            for (int i = 0; i < records.length; i++) {
+                if (records[i] != null) {
+                    link(records[i], entrySizes[i]);
+                }
+            }
+            numberOfItemsInserted = takeUnreleasedPermits();
+        }
+        if (numberOfItemsInserted > 0) {
+            availableRecords.release(numberOfItemsInserted);
+        }
+    }
+
+    /**
+     * Retrieves the oldest record from the queue. FIFO principle.
+     *
+     * @return the oldest record from the queue or null if the thread was interrupted while waiting.
+     */
+    @Override
+    public Record get() {
+        try {
+            availableRecords.acquire();
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return unlinkOldest();
+    }
+
+    /**
+     * Retrieves a record from the queue.
+     *
+     * @param milliseconds wait for how many milliseconds before checking the queue state again.
+     * @param shouldItThrow a flag to allow throwing an unchecked exception if the waiting time ran out.
+     * @return a Record from the queue on the FIFO principle.
+     */
+    Record get(long milliseconds, boolean shouldItThrow) {
+        try {
+            while (!availableRecords.tryAcquire(milliseconds, TimeUnit.MILLISECONDS)) {
+                if (shouldItThrow) {
+                    throw new RuntimeException("Timed out. There were no elements in the queue.");
+                }
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return unlinkOldest();
+    }
+
+    /**
+     * Moves up to the given number of the oldest records into the collection without waiting. FIFO principle.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null || maxElements < 1) {
+            return 0;
+        }
+
+        int numberOfItemsDrained = 0;
+        while (numberOfItemsDrained < maxElements && availableRecords.tryAcquire()) {
+            numberOfItemsDrained++;
+        }
+        synchronized (store) {
+            for (int i = 0; i < numberOfItemsDrained; i++) {
+                collection.add(store.pollOldest());
+            }
+        }
+        return numberOfItemsDrained;
+    }
+
+    /**
+     * Retrieves up to the given number of the oldest records, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the oldest records on the FIFO principle. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        try {
+            if (!availableRecords.tryAcquire(timeout, timeUnit)) {
+                return batch;
+            }
+        } catch (InterruptedException e) {
+            return batch;
+        }
+        batch.add(unlinkOldest());
+        drainTo(batch, maxElements - 1);
+        return batch;
+    }
+
+    /**
+     * Indicates if queue contains anything.
+     *
+     * @return true if the queue is empty. False otherwise.
+     */
+    boolean isEmpty() {
+        synchronized (store) {
+            return store.isEmpty();
+        }
+    }
+
+    long waitingThreadsCount() {
+        return availableRecords.getQueueLength();
+    }
+
+    private int entrySizeOf(Record record) {
+        int entrySize = OffHeapRecordStore.entrySize(record);
+        if (!store.fitsIntoSlab(entrySize)) {
+            throw new RuntimeException("Record does not fit into an off-heap slab.");
+        }
+        return entrySize;
+    }
+
+    /**
+     * Stores the record, evicting the oldest ones if there is no room for it. The caller must hold the lock
+     * and release the permits of the stored records afterwards.
+     */
+    private void link(Record record, int entrySize) {
+        long fingerprint = RecordCodec.fingerprint(record);
+        if (store.contains(record, fingerprint)) {
+            return;
+        }
+
+        while (store.size() >= queueLimit || !store.hasRoomFor(entrySize)) {
+            if (store.isEmpty()) {
+                return;
+            }
+            if (unreleasedPermits > 0) {
+                unreleasedPermits--;
+            } else if (!availableRecords.tryAcquire()) {
+                return;
+            }
+            store.evictOldest();
+        }
+        store.append(record, fingerprint, entrySize);
+        unreleasedPermits++;
+    }
+
+    private int takeUnreleasedPermits() {
+        int permits = unreleasedPermits;
+        unreleasedPermits = 0;
+        return permits;
+    }
+
+    private Record unlinkOldest() {
+        synchronized (store) {
+            return store.pollOldest();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The records that do not fit into the memory of a queue, kept in append-only segment files on local disk
+ * and read back in their order. It is not thread-safe: the queue guards it with its lock,
+ * except for {@link Chunk#load()}, which reads the disk and is meant to run outside of the lock.
+ *
+ * A segment is a sequence of records encoded by {@link RecordCodec}. The records are buffered and written out
+ * when the buffer fills up or when the reader gets to them. A segment that has been read to the end is deleted.
+ * The files are never forced, and the directory is emptied when the tier is created: the tier only extends
+ * the memory of a running queue, while the write-ahead log is what makes a queue durable.
+ *
+ * The spilled records are deduplicated by their fingerprints, kept in an on-heap {@link FingerprintSet},
+ * which takes 16 to 32 bytes per record instead of a Record and its map entry.
+ * Two distinct records with the same fingerprint would be taken for duplicates, with a probability of about 2^-64.
+ */
+final class OverflowTier implements AutoCloseable {
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".overflow";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final FingerprintSet fingerprints = new FingerprintSet();
+    private long nextSegmentNumber;
+
+    /**
+     * @param directory where to keep the segment files. It is created if needed, and its old segments are deleted.
+     * @param segmentSize how many bytes a segment takes before the next one is started.
+     */
+    OverflowTier(Path directory, int segmentSize) {
+        if (segmentSize < RecordCodec.FIXED_SIZE) {
+            throw new RuntimeException("Overflow segment size is too small.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> oldSegments = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path oldSegment : oldSegments) {
+                    Files.delete(oldSegment);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot prepare the overflow directory " + directory + ".", e);
+        }
+    }
+
+    /**
+     * @return how many records have been spilled and not taken back yet, including those of a loaded chunk.
+     */
+    int size() {
+        return fingerprints.size();
+    }
+
+    boolean contains(long fingerprint) {
+        return fingerprints.contains(fingerprint);
+    }
+
+    /**
+     * Spills a record that is not in the tier yet.
+     */
+    void append(Record record, long fingerprint) {
+        int entrySize = RecordCodec.encodedSize(record);
+        Segment segment = segments.peekLast();
+        long segmentLength = segment == null ? 0 : segment.writtenBytes + writeBuffer.position();
+        if (segment == null || (segmentLength > 0 && segmentLength + entrySize > segmentSize)) {
+            flush();
+            segment = openSegment();
+        }
+        if (writeBuffer.remaining() < entrySize) {
+            flush();
+        }
+        if (entrySize > writeBuffer.capacity()) {
+            ByteBuffer entry = ByteBuffer.allocate(entrySize);
+            RecordCodec.encode(record, entry);
+            entry.flip();
+            write(segment, entry);
+        } else {
+            RecordCodec.encode(record, writeBuffer);
+        }
+        fingerprints.add(fingerprint);
+    }
+
+    /**
+     * Prepares the oldest unread records for loading, writing out the buffered ones first if the reader got to them.
+     * Only one chunk may be loaded at a time, and it must be committed before the next one is taken.
+     *
+     * @param maxRecords how many records the chunk may hold at most.
+     * @return the chunk or null if the tier is empty.
+     */
+    Chunk nextChunk(int maxRecords) {
+        Segment segment = segments.peekFirst();
+        while (segment != null && segment.isReadToEnd() && segment != segments.peekLast()) {
+            deleteOldestSegment();
+            segment = segments.peekFirst();
+        }
+        if (segment == null || size() == 0) {
+            return null;
+        }
+        if (segment.isReadToEnd()) {
+            flush();
+        }
+        return new Chunk(segment, segment.readBytes, segment.writtenBytes - segment.readBytes, maxRecords);
+    }
+
+    /**
+     * Takes the records of a loaded chunk out of the tier. Once the tier is empty, all its files are deleted.
+     */
+    void commit(Chunk chunk) {
+        for (long fingerprint : chunk.fingerprints) {
+            fingerprints.remove(fingerprint);
+        }
+        chunk.segment.readBytes += chunk.loadedBytes;
+        if (size() == 0 && writeBuffer.position() == 0) {
+            while (!segments.isEmpty()) {
+                deleteOldestSegment();
+            }
+        }
+    }
+
+    /**
+     * Deletes all the segments. The tier must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        while (!segments.isEmpty()) {
+            deleteOldestSegment();
+        }
+        fingerprints.clear();
+    }
+
+    /**
+     * @return how many segment files there are now.
+     */
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private Segment openSegment() {
+        Path file = directory.resolve(String.format("%019d%s", nextSegmentNumber++, SEGMENT_SUFFIX));
+        try {
+            Segment segment = new Segment(
+                    file,
+                    FileChannel.open(
+                            file,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE));
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create the overflow segment " + file + ".", e);
+        }
+    }
+
+    private void flush() {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        write(segments.peekLast(), writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private static void write(Segment segment, ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                segment.writtenBytes += segment.channel.write(bytes, segment.writtenBytes);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the overflow segment " + segment.file + ".", e);
+        }
+    }
+
+    private void deleteOldestSegment() {
+        Segment segment = segments.pollFirst();
+        if (segments.isEmpty()) {
+            writeBuffer.clear();
+        }
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot delete the overflow segment " + segment.file + ".", e);
+        }
+    }
+
+    /**
+     * A segment file with how far it has been written and read.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private long writtenBytes;
+        private long readBytes;
+
+        Segment(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+        boolean isReadToEnd() {
+            return readBytes == writtenBytes;
+        }
+    }
+
+    /**
+     * The next records of the oldest segment, read from the disk by {@link #load()}.
+     */
+    static final class Chunk {
+        private final Segment segment;
+        private final long start;
+        private final long availableBytes;
+        private final int maxRecords;
+        private final List<Record> records = new ArrayList<>();
+        private long[] fingerprints = new long[0];
+        private long loadedBytes;
+
+        private Chunk(Segment segment, long start, long availableBytes, int maxRecords) {
+            this.segment = segment;
+            this.start = start;
+            this.availableBytes = availableBytes;
+            this.maxRecords = maxRecords;
+        }
+
+        /**
+         * Reads and decodes up to a megabyte of whole records, or the one record that is larger than that.
+         * Does not need the lock of the queue, since the writer only appends after the bytes of the chunk.
+         */
+        void load() {
+            ByteBuffer bytes = read(Math.min(availableBytes, CHUNK_SIZE));
+            if (bytes.limit() >= Integer.BYTES && entrySizeAt(bytes, 0) > bytes.limit()) {
+                bytes = read(entrySizeAt(bytes, 0));
+            }
+            int offset = 0;
+            while (records.size() < maxRecords
+                    && bytes.limit() - offset >= RecordCodec.FIXED_SIZE
+                    && offset + entrySizeAt(bytes, offset) <= bytes.limit()) {
+                Record record = RecordCodec.decode(bytes, offset);
+                records.add(record);
+                offset += RecordCodec.encodedSize(record);
+            }
+            fingerprints = new long[records.size()];
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = RecordCodec.fingerprint(records.get(i));
+            }
+            loadedBytes = offset;
+        }
+
+        /**
+         * @return the loaded records in their order.
+         */
+        List<Record> records() {
+            return records;
+        }
+
+        private ByteBuffer read(long length) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) length);
+            try {
+                while (bytes.hasRemaining()) {
+                    if (segment.channel.read(bytes, start + bytes.position()) < 0) {
+                        throw new RuntimeException("The overflow segment " + segment.file + " is truncated.");
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read the overflow segment " + segment.file + ".", e);
+            }
+            bytes.flip();
+            return bytes;
+        }
+
+        private static long entrySizeAt(ByteBuffer bytes, int offset) {
+            return RecordCodec.FIXED_SIZE + (long) Character.BYTES * bytes.getInt(offset);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.unique_events_queue;
+
+/**
+ * The engines {@link UniqueEventsQueueBuilder} can build a queue on.
+ */
+public enum QueueEngine {
+    /**
+     * A single monitor guards the whole queue. See {@link UniqueEventsQueue}.
+     */
+    MONITOR,
+    /**
+     * A concurrent membership index combined with a lock-free linked queue. See {@link LockFreeUniqueEventsQueue}.
+     */
+    LOCK_FREE,
+    /**
+     * Shards keyed by the record hash code, each guarded by its own monitor. See {@link ShardedUniqueEventsQueue}.
+     */
+    SHARDED,
+    /**
+     * Records encoded into direct buffers outside the Java heap. See {@link OffHeapUniqueEventsQueue}.
+     * A record larger than one slab of the off-heap capacity, at most 16 MiB, is rejected with an exception.
+     */
+    OFF_HEAP,
+    /**
+     * Records routed by a key taken from their id to the slots of registered consumers.
+     * See {@link KeyAffinityUniqueEventsQueue}.
+     */
+    KEY_AFFINITY,
+    /**
+     * Records kept in a memory-mapped file that several processes on the host share.
+     * See {@link SharedMemoryUniqueEventsQueue}.
+     */
+    SHARED_MEMORY
+}
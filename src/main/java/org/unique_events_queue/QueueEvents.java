@@ -0,0 +1,207 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The Java Flight Recorder events of the monitor engine.
+ *
+ * Every event is a duration event with a threshold, so the recordings stay small enough to keep the events enabled
+ * in production: a consumer wait is recorded from 10 ms, and a producer call from 1 ms of holding the lock.
+ * The thresholds can be lowered in the recording settings, for example
+ * {@code org.unique_events_queue.DuplicateRejection#threshold=0 ms}.
+ *
+ * The queue checks the {@link EventType} of an event before creating it, so nothing is allocated
+ * while no recording has the event enabled.
+ */
+final class QueueEvents {
+    private static final EventType CONSUMER_WAIT = EventType.getEventType(ConsumerWait.class);
+    private static final EventType PRODUCER_LOCK_HOLD = EventType.getEventType(ProducerLockHold.class);
+    private static final EventType TRIM = EventType.getEventType(Trim.class);
+    private static final EventType DUPLICATE_REJECTION = EventType.getEventType(DuplicateRejection.class);
+
+    private QueueEvents() {}
+
+    /**
+     * @return a started consumer wait event or null if it is not enabled.
+     */
+    static ConsumerWait beginConsumerWait() {
+        if (!CONSUMER_WAIT.isEnabled()) {
+            return null;
+        }
+        ConsumerWait event = new ConsumerWait();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits the wait if the event was started and the wait took longer than the threshold.
+     */
+    static void endConsumerWait(ConsumerWait event, int recordsReceived) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.recordsReceived = recordsReceived;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Starts the events of a producer call that has just taken the lock.
+     *
+     * @param recordsOffered how many records the call got.
+     * @param duplicateCount how many duplicates the queue has rejected so far.
+     * @param evictionCount how many records the queue has evicted so far.
+     * @return the started events or null if none of them is enabled.
+     */
+    static ProducerCall beginProducerCall(int recordsOffered, long duplicateCount, long evictionCount) {
+        if (!PRODUCER_LOCK_HOLD.isEnabled() && !TRIM.isEnabled() && !DUPLICATE_REJECTION.isEnabled()) {
+            return null;
+        }
+        return new ProducerCall(recordsOffered, duplicateCount, evictionCount);
+    }
+
+    /**
+     * The events of one add() or addAll() call, from taking the lock to releasing it.
+     * It is ended while the lock is still held and committed after the lock is released.
+     * A call that waits for room records one lock hold for every stretch it held the lock, but one trim
+     * and one duplicate rejection for the whole call.
+     */
+    static final class ProducerCall {
+        private ProducerLockHold lockHold;
+        private List<ProducerLockHold> pausedLockHolds;
+        private final Trim trim = new Trim();
+        private final DuplicateRejection duplicateRejection = new DuplicateRejection();
+        private final int recordsOffered;
+        private final long duplicateCountAtStart;
+        private final long evictionCountAtStart;
+
+        private ProducerCall(int recordsOffered, long duplicateCount, long evictionCount) {
+            this.recordsOffered = recordsOffered;
+            duplicateCountAtStart = duplicateCount;
+            evictionCountAtStart = evictionCount;
+            lockHold = beginLockHold();
+            trim.begin();
+            duplicateRejection.begin();
+        }
+
+        /**
+         * Ends the current lock hold before the call releases the lock to wait for room,
+         * so the wait is not counted as holding the lock. The ended hold is committed with the rest of the call.
+         */
+        void pauseLockHold() {
+            lockHold.end();
+            if (lockHold.shouldCommit()) {
+                if (pausedLockHolds == null) {
+                    pausedLockHolds = new ArrayList<>();
+                }
+                pausedLockHolds.add(lockHold);
+            }
+        }
+
+        /**
+         * Starts a new lock hold after the call has taken the lock again.
+         */
+        void resumeLockHold() {
+            lockHold = beginLockHold();
+        }
+
+        private ProducerLockHold beginLockHold() {
+            ProducerLockHold event = new ProducerLockHold();
+            event.recordsOffered = recordsOffered;
+            event.begin();
+            return event;
+        }
+
+        /**
+         * Ends the events. The caller must still hold the lock.
+         *
+         * @param duplicateCount how many duplicates the queue has rejected so far.
+         * @param evictionCount how many records the queue has evicted so far.
+         */
+        void end(long duplicateCount, long evictionCount) {
+            lockHold.end();
+            trim.end();
+            duplicateRejection.end();
+            trim.recordsEvicted = evictionCount - evictionCountAtStart;
+            duplicateRejection.recordsOffered = recordsOffered;
+            duplicateRejection.duplicatesRejected = duplicateCount - duplicateCountAtStart;
+        }
+
+        /**
+         * Commits the events that exceeded their thresholds. Trims and rejections are committed only if there were any.
+         */
+        void commit() {
+            if (pausedLockHolds != null) {
+                for (ProducerLockHold pausedLockHold : pausedLockHolds) {
+                    pausedLockHold.commit();
+                }
+            }
+            if (lockHold.shouldCommit()) {
+                lockHold.commit();
+            }
+            if (trim.recordsEvicted > 0 && trim.shouldCommit()) {
+                trim.commit();
+            }
+            if (duplicateRejection.duplicatesRejected > 0 && duplicateRejection.shouldCommit()) {
+                duplicateRejection.commit();
+            }
+        }
+    }
+
+    @Name("org.unique_events_queue.ConsumerWait")
+    @Label("Consumer Wait")
+    @Category("Unique Events Queue")
+    @Description("A consumer waiting in the line for a record, from finding the queue empty to returning")
+    @Threshold("10 ms")
+    static final class ConsumerWait extends Event {
+        @Label("Records Received")
+        @Description("0 if the wait timed out or was interrupted")
+        int recordsReceived;
+    }
+
+    @Name("org.unique_events_queue.ProducerLockHold")
+    @Label("Producer Lock Hold")
+    @Category("Unique Events Queue")
+    @Description("An add() or addAll() call holding the lock of the queue. A wait for room under the "
+            + "BLOCK_PRODUCER eviction policy releases the lock and is not included")
+    @Threshold("1 ms")
+    static final class ProducerLockHold extends Event {
+        @Label("Records Offered")
+        int recordsOffered;
+    }
+
+    @Name("org.unique_events_queue.Trim")
+    @Label("Trim")
+    @Category("Unique Events Queue")
+    @Description("An add() or addAll() call that evicted the oldest records to keep the queue within its limit")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Trim extends Event {
+        @Label("Records Evicted")
+        long recordsEvicted;
+    }
+
+    @Name("org.unique_events_queue.DuplicateRejection")
+    @Label("Duplicate Rejection")
+    @Category("Unique Events Queue")
+    @Description("An add() or addAll() call that rejected records because they were already in the queue")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class DuplicateRejection extends Event {
+        @Label("Records Offered")
+        int recordsOffered;
+
+        @Label("Duplicates Rejected")
+        long duplicatesRejected;
+    }
+}
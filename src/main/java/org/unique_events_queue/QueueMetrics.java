@@ -0,0 +1,150 @@
+package org.unique_events_queue;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The counters and histograms of a queue. Recording is thread-safe and does not take any lock.
+ * A queue without metrics keeps no instance of this class at all, so the disabled metrics cost one null check
+ * per recording point.
+ */
+final class QueueMetrics implements QueueMetricsMXBean {
+    private final LongAdder added = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retrieved = new LongAdder();
+    private final LongAdder consumerWaits = new LongAdder();
+    private final LongAdder consumerTimeouts = new LongAdder();
+    private final LongAdder spuriousWakeups = new LongAdder();
+    private final LongAdder producerWaits = new LongAdder();
+    private final LogHistogram waitTimes = new LogHistogram();
+    private final LogHistogram queueDepths = new LogHistogram();
+    private final LongSupplier queueDepth;
+
+    /**
+     * @param queueDepth reads the current number of records in the queue.
+     */
+    QueueMetrics(LongSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    void recordAdded(long depthAfterInsertion) {
+        added.increment();
+        queueDepths.record(depthAfterInsertion);
+    }
+
+    void recordDuplicate() {
+        duplicates.increment();
+    }
+
+    void recordDuplicates(long numberOfRecords) {
+        duplicates.add(numberOfRecords);
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    void recordCoalesced(long numberOfRecords) {
+        coalesced.add(numberOfRecords);
+    }
+
+    void recordEvicted() {
+        evicted.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordRetrieved(long numberOfRecords) {
+        retrieved.add(numberOfRecords);
+    }
+
+    void recordConsumerWait() {
+        consumerWaits.increment();
+    }
+
+    void recordWaitTime(long nanoseconds) {
+        waitTimes.record(nanoseconds);
+    }
+
+    void recordConsumerTimeout() {
+        consumerTimeouts.increment();
+    }
+
+    void recordSpuriousWakeup() {
+        spuriousWakeups.increment();
+    }
+
+    void recordProducerWait() {
+        producerWaits.increment();
+    }
+
+    @Override
+    public long getAddedCount() {
+        return added.sum();
+    }
+
+    @Override
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getRetrievedCount() {
+        return retrieved.sum();
+    }
+
+    @Override
+    public long getConsumerWaitCount() {
+        return consumerWaits.sum();
+    }
+
+    @Override
+    public long getConsumerTimeoutCount() {
+        return consumerTimeouts.sum();
+    }
+
+    @Override
+    public long getSpuriousWakeupCount() {
+        return spuriousWakeups.sum();
+    }
+
+    @Override
+    public long getProducerWaitCount() {
+        return producerWaits.sum();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.getAsLong();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogram() {
+        return waitTimes.counts();
+    }
+
+    @Override
+    public long[] getQueueDepthHistogram() {
+        return queueDepths.counts();
+    }
+}
@@ -0,0 +1,72 @@
+package org.unique_events_queue;
+
+/**
+ * The management interface of the metrics of a queue.
+ * Register it with {@code ManagementFactory.getPlatformMBeanServer().registerMBean(queue.metricsMXBean(), name)}.
+ */
+public interface QueueMetricsMXBean {
+    /**
+     * @return how many records were inserted.
+     */
+    long getAddedCount();
+
+    /**
+     * @return how many records were left out because an equal record was queued or had just been retrieved.
+     */
+    long getDuplicateCount();
+
+    /**
+     * @return how many records replaced the queued record with the same identity key in the coalescing mode.
+     */
+    long getCoalescedCount();
+
+    /**
+     * @return how many queued records were evicted to make room for new ones.
+     */
+    long getEvictedCount();
+
+    /**
+     * @return how many new records the eviction policy rejected.
+     */
+    long getRejectedCount();
+
+    /**
+     * @return how many records the consumers took.
+     */
+    long getRetrievedCount();
+
+    /**
+     * @return how many times a consumer found the queue empty and had to wait.
+     */
+    long getConsumerWaitCount();
+
+    /**
+     * @return how many waiting consumers gave up because their time ran out.
+     */
+    long getConsumerTimeoutCount();
+
+    /**
+     * @return how many times a waiting consumer woke up with neither a record, a timeout nor an interrupt.
+     */
+    long getSpuriousWakeupCount();
+
+    /**
+     * @return how many times a producer found the queue full and had to wait.
+     */
+    long getProducerWaitCount();
+
+    /**
+     * @return how many records are in the queue now.
+     */
+    long getQueueDepth();
+
+    /**
+     * @return the power-of-two histogram of the consumer waiting times in nanoseconds.
+     */
+    long[] getWaitTimeHistogram();
+
+    /**
+     * @return the power-of-two histogram of the queue depth right after each insertion.
+     */
+    long[] getQueueDepthHistogram();
+}
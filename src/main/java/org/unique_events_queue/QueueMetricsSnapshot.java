@@ -0,0 +1,107 @@
+package org.unique_events_queue;
+
+/**
+ * The values of the metrics of a queue at one moment. Immutable.
+ * The meaning of every value is described in {@link QueueMetricsMXBean}.
+ * The counters are read one by one without a lock, so under load they may be slightly out of step with each other.
+ */
+public final class QueueMetricsSnapshot {
+    private final long addedCount;
+    private final long duplicateCount;
+    private final long coalescedCount;
+    private final long evictedCount;
+    private final long rejectedCount;
+    private final long retrievedCount;
+    private final long consumerWaitCount;
+    private final long consumerTimeoutCount;
+    private final long spuriousWakeupCount;
+    private final long producerWaitCount;
+    private final long queueDepth;
+    private final long[] waitTimeHistogram;
+    private final long[] queueDepthHistogram;
+
+    QueueMetricsSnapshot(QueueMetricsMXBean metrics) {
+        addedCount = metrics.getAddedCount();
+        duplicateCount = metrics.getDuplicateCount();
+        coalescedCount = metrics.getCoalescedCount();
+        evictedCount = metrics.getEvictedCount();
+        rejectedCount = metrics.getRejectedCount();
+        retrievedCount = metrics.getRetrievedCount();
+        consumerWaitCount = metrics.getConsumerWaitCount();
+        consumerTimeoutCount = metrics.getConsumerTimeoutCount();
+        spuriousWakeupCount = metrics.getSpuriousWakeupCount();
+        producerWaitCount = metrics.getProducerWaitCount();
+        queueDepth = metrics.getQueueDepth();
+        waitTimeHistogram = metrics.getWaitTimeHistogram();
+        queueDepthHistogram = metrics.getQueueDepthHistogram();
+    }
+
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getRetrievedCount() {
+        return retrievedCount;
+    }
+
+    public long getConsumerWaitCount() {
+        return consumerWaitCount;
+    }
+
+    public long getConsumerTimeoutCount() {
+        return consumerTimeoutCount;
+    }
+
+    public long getSpuriousWakeupCount() {
+        return spuriousWakeupCount;
+    }
+
+    public long getProducerWaitCount() {
+        return producerWaitCount;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long[] getWaitTimeHistogram() {
+        return waitTimeHistogram.clone();
+    }
+
+    public long[] getQueueDepthHistogram() {
+        return queueDepthHistogram.clone();
+    }
+
+    /**
+     * @param percentile the percentile from 0 to 100.
+     * @return the upper bound of the power-of-two bucket the percentile of the consumer waiting times falls into,
+     * in nanoseconds.
+     */
+    public long getWaitTimePercentileNanos(double percentile) {
+        return LogHistogram.percentile(waitTimeHistogram, percentile);
+    }
+
+    /**
+     * @param percentile the percentile from 0 to 100.
+     * @return the upper bound of the power-of-two bucket the percentile of the queue depths falls into.
+     */
+    public long getQueueDepthPercentile(double percentile) {
+        return LogHistogram.percentile(queueDepthHistogram, percentile);
+    }
+}
@@ -0,0 +1,246 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes the records of a queue to a file and reads them back in the same order.
+ *
+ * The file is columnar, in little-endian byte order:
+ * the header (magic, version, record count and dictionary size, an int each),
+ * the dictionary of the distinct ids (see {@link #writeId}),
+ * and three columns with one entry per record: the index of the id in the dictionary (int),
+ * the value (float) and the date in epoch milliseconds (long).
+ * The ids repeat far more often than the other fields, so each of them is stored once,
+ * and the restored records share one String instance per id.
+ *
+ * The columns are copied in bulk between primitive arrays and a small direct buffer that the channel writes and reads.
+ * The file is moved into place only when it is complete,
+ * so a crash while writing leaves the previous snapshot intact.
+ */
+final class QueueSnapshot {
+    private static final int MAGIC = 0x55455153;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private QueueSnapshot() {}
+
+    static void write(Record[] records, Path file) {
+        HashMap<String, Integer> dictionaryIndexes = new HashMap<>(records.length * 4 / 3 + 1);
+        List<String> dictionary = new ArrayList<>();
+        int[] idIndexes = new int[records.length];
+        float[] values = new float[records.length];
+        long[] dates = new long[records.length];
+        for (int i = 0; i < records.length; i++) {
+            idIndexes[i] = dictionaryIndexes.computeIfAbsent(records[i].getId(), id -> {
+                dictionary.add(id);
+                return dictionary.size() - 1;
+            });
+            values[i] = records[i].getValue();
+            dates[i] = records[i].getDateMillis();
+        }
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    temporaryFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(records.length).putInt(dictionary.size());
+                for (String id : dictionary) {
+                    writeId(channel, buffer, id);
+                }
+                for (int written = 0; written < records.length; ) {
+                    makeRoom(channel, buffer, Integer.BYTES);
+                    int count = Math.min(records.length - written, buffer.remaining() / Integer.BYTES);
+                    buffer.asIntBuffer().put(idIndexes, written, count);
+                    buffer.position(buffer.position() + count * Integer.BYTES);
+                    written += count;
+                }
+                for (int written = 0; written < records.length; ) {
+                    makeRoom(channel, buffer, Float.BYTES);
+                    int count = Math.min(records.length - written, buffer.remaining() / Float.BYTES);
+                    buffer.asFloatBuffer().put(values, written, count);
+                    buffer.position(buffer.position() + count * Float.BYTES);
+                    written += count;
+                }
+                for (int written = 0; written < records.length; ) {
+                    makeRoom(channel, buffer, Long.BYTES);
+                    int count = Math.min(records.length - written, buffer.remaining() / Long.BYTES);
+                    buffer.asLongBuffer().put(dates, written, count);
+                    buffer.position(buffer.position() + count * Long.BYTES);
+                    written += count;
+                }
+                flush(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the snapshot to " + file + ".", e);
+        }
+    }
+
+    /**
+     * @return the records of the snapshot in their queue order.
+     */
+    static List<Record> read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            fill(channel, buffer, 4 * Integer.BYTES);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new RuntimeException(file + " is not a queue snapshot.");
+            }
+            int recordCount = buffer.getInt();
+            int dictionarySize = buffer.getInt();
+            if (recordCount < 0 || dictionarySize < 0 || dictionarySize > recordCount) {
+                throw new RuntimeException("The snapshot " + file + " is corrupted.");
+            }
+
+            String[] dictionary = new String[dictionarySize];
+            byte[] idBytes = new byte[64];
+            for (int i = 0; i < dictionarySize; i++) {
+                fill(channel, buffer, Integer.BYTES);
+                int idLength = buffer.getInt();
+                if (idLength < 0) {
+                    dictionary[i] = readChars(channel, buffer, -idLength - 1);
+                    continue;
+                }
+                if (idLength > idBytes.length) {
+                    idBytes = new byte[Math.max(idLength, 2 * idBytes.length)];
+                }
+                for (int read = 0; read < idLength; ) {
+                    fill(channel, buffer, 1);
+                    int count = Math.min(idLength - read, buffer.remaining());
+                    buffer.get(idBytes, read, count);
+                    read += count;
+                }
+                dictionary[i] = new String(idBytes, 0, idLength, StandardCharsets.ISO_8859_1);
+            }
+            int[] idIndexes = new int[recordCount];
+            for (int read = 0; read < recordCount; ) {
+                fill(channel, buffer, Integer.BYTES);
+                int count = Math.min(recordCount - read, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(idIndexes, read, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                read += count;
+            }
+            float[] values = new float[recordCount];
+            for (int read = 0; read < recordCount; ) {
+                fill(channel, buffer, Float.BYTES);
+                int count = Math.min(recordCount - read, buffer.remaining() / Float.BYTES);
+                buffer.asFloatBuffer().get(values, read, count);
+                buffer.position(buffer.position() + count * Float.BYTES);
+                read += count;
+            }
+            long[] dates = new long[recordCount];
+            for (int read = 0; read < recordCount; ) {
+                fill(channel, buffer, Long.BYTES);
+                int count = Math.min(recordCount - read, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().get(dates, read, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                read += count;
+            }
+
+            Record[] records = new Record[recordCount];
+            for (int i = 0; i < recordCount; i++) {
+                if (idIndexes[i] < 0 || idIndexes[i] >= dictionarySize) {
+                    throw new RuntimeException("The snapshot " + file + " is corrupted.");
+                }
+                records[i] = new Record(dictionary[idIndexes[i]], values[i], dates[i]);
+            }
+            return Arrays.asList(records);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read the snapshot from " + file + ".", e);
+        }
+    }
+
+    /**
+     * Writes an id of Latin-1 chars as a non-negative byte count and one byte per char.
+     * Any other id is written as the negative -(char count + 1) and two bytes per char,
+     * because the UTF charsets would replace an unpaired surrogate and the restored record would differ.
+     */
+    private static void writeId(FileChannel channel, ByteBuffer buffer, String id) throws IOException {
+        makeRoom(channel, buffer, Integer.BYTES);
+        if (!isLatin1(id)) {
+            buffer.putInt(-id.length() - 1);
+            for (int i = 0; i < id.length(); i++) {
+                makeRoom(channel, buffer, Character.BYTES);
+                buffer.putChar(id.charAt(i));
+            }
+            return;
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.ISO_8859_1);
+        buffer.putInt(idBytes.length);
+        for (int written = 0; written < idBytes.length; ) {
+            makeRoom(channel, buffer, 1);
+            int count = Math.min(idBytes.length - written, buffer.remaining());
+            buffer.put(idBytes, written, count);
+            written += count;
+        }
+    }
+
+    private static String readChars(FileChannel channel, ByteBuffer buffer, int charCount) throws IOException {
+        char[] idChars = new char[charCount];
+        for (int i = 0; i < charCount; i++) {
+            fill(channel, buffer, Character.BYTES);
+            idChars[i] = buffer.getChar();
+        }
+        return new String(idChars);
+    }
+
+    private static boolean isLatin1(String id) {
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the buffer out if fewer than the given number of bytes fit into it.
+     */
+    private static void makeRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads from the file until at least the given number of bytes can be taken from the buffer.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new RuntimeException("The snapshot is truncated.");
+            }
+        }
+        buffer.flip();
+    }
+}
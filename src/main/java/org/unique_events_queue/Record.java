@@ -1,36 +1,37 @@
 package org.unique_events_queue;
 
 import java.util.Date;
-import java.util.Objects;
 
 public final class Record {
     private final String id;
     private final float value;
-    private final Date date;
+    private final long dateMillis;
+    private final int hash;
 
     /* The id and amount are plainly copied because they are immutable.
-     * Date is copied safely to prevent its change by the malicious actors.
-     * For the sake of the exercise, let's imagine that Date is needed to be stored as
+     * Date is kept as epoch milliseconds, which makes it immune to the change by the malicious actors
+     * and lets the queue compare and hash records without allocating.
+     * For the sake of the exercise, let's imagine that Date is needed to be exposed as
      * Date instead of Instant for legacy reasons.
      *
      * It was decided to make the constructor robust when handling null inputs, but it's up for discussion.
      */
     public Record(String idInput, float amountValue, Date dateInput) {
-        this.id = idInput == null ? "" : idInput;
-        this.value = amountValue;
-        this.date = (dateInput == null) ? new Date(0) : new Date(dateInput.getTime());
+        this(idInput == null ? "" : idInput, amountValue, (dateInput == null) ? 0 : dateInput.getTime());
     }
 
     public Record(Record recordInput) {
-        if (recordInput != null) {
-            this.id = recordInput.getId();
-            this.value = recordInput.getValue();
-            this.date = new Date(recordInput.getDate().getTime());
-        } else {
-            this.id = "";
-            this.value = 0;
-            this.date = new Date(0);
-        }
+        this(
+                recordInput == null ? "" : recordInput.id,
+                recordInput == null ? 0 : recordInput.value,
+                recordInput == null ? 0 : recordInput.dateMillis);
+    }
+
+    Record(String id, float value, long dateMillis) {
+        this.id = id;
+        this.value = value;
+        this.dateMillis = dateMillis;
+        this.hash = computeHash(id, value, dateMillis);
     }
 
     public String getId() {
@@ -42,7 +43,11 @@ public final class Record {
     }
 
     public Date getDate() {
-        return new Date(this.date.getTime());
+        return new Date(this.dateMillis);
+    }
+
+    long getDateMillis() {
+        return this.dateMillis;
     }
 
     @Override
@@ -56,11 +61,34 @@ public final class Record {
 
         Record record = (Record) o;
 
-        return id.equals(record.id) && value == record.value && date.equals(record.getDate());
+        /*
+         * The cached hashes are compared first because they differ for almost all unequal records.
+         * The value is compared by its bits, the same way it is hashed, so equal records always have equal hashes.
+         */
+        return hash == record.hash
+                && dateMillis == record.dateMillis
+                && Float.floatToIntBits(value) == Float.floatToIntBits(record.value)
+                && id.equals(record.id);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, value, date);
+        return hash;
+    }
+
+    /**
+     * Computes the same hash as Objects.hash(id, value, date) without the varargs array and the boxing.
+     */
+    private static int computeHash(String id, float value, long dateMillis) {
+        return combineHash(id.hashCode(), value, dateMillis);
+    }
+
+    /**
+     * Combines the hash of the id with the other fields. {@link RecordView} hashes an encoded id itself and calls this.
+     */
+    static int combineHash(int idHash, float value, long dateMillis) {
+        int result = 31 + idHash;
+        result = 31 * result + Float.hashCode(value);
+        return 31 * result + Long.hashCode(dateMillis);
     }
 }
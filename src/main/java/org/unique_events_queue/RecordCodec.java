@@ -0,0 +1,146 @@
+package org.unique_events_queue;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes records into byte buffers and decodes them back.
+ *
+ * The layout of an encoded record is:
+ * the id length in chars (int), the id chars (char each), the value (float) and the date in epoch milliseconds (long).
+ * The numbers are in the byte order of the buffer. The id is stored as plain chars,
+ * so both encoding and comparison run without allocating, and every id, including unpaired surrogates, survives.
+ * Use {@link RecordView} to read the fields of an encoded record without decoding it.
+ *
+ * The methods with an offset use absolute positions and never move the position of the buffer.
+ * The methods without one start at the position of the buffer and move it past the record.
+ * A buffer that is too small causes an IndexOutOfBoundsException or a BufferOverflowException.
+ */
+public final class RecordCodec {
+    /**
+     * The size of a record with an empty id.
+     */
+    public static final int FIXED_SIZE = Integer.BYTES + Float.BYTES + Long.BYTES;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private RecordCodec() {}
+
+    /**
+     * @return how many bytes the record takes when encoded.
+     */
+    public static int encodedSize(Record record) {
+        return FIXED_SIZE + Character.BYTES * record.getId().length();
+    }
+
+    /**
+     * Encodes the record at the given offset.
+     */
+    public static void encode(Record record, ByteBuffer buffer, int offset) {
+        String id = record.getId();
+        int idLength = id.length();
+        buffer.putInt(offset, idLength);
+        int position = offset + Integer.BYTES;
+        for (int i = 0; i < idLength; i++, position += Character.BYTES) {
+            buffer.putChar(position, id.charAt(i));
+        }
+        buffer.putFloat(position, record.getValue());
+        buffer.putLong(position + Float.BYTES, record.getDateMillis());
+    }
+
+    /**
+     * Encodes the record at the position of the buffer and moves the position past it.
+     */
+    public static void encode(Record record, ByteBuffer buffer) {
+        int size = encodedSize(record);
+        if (buffer.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        encode(record, buffer, buffer.position());
+        buffer.position(buffer.position() + size);
+    }
+
+    /**
+     * Decodes the record at the given offset.
+     *
+     * @throws RuntimeException if the id length is negative or the record does not fit into the buffer.
+     */
+    public static Record decode(ByteBuffer buffer, int offset) {
+        int idLength = checkedIdLength(buffer, offset);
+        char[] idChars = new char[idLength];
+        int position = offset + Integer.BYTES;
+        for (int i = 0; i < idLength; i++, position += Character.BYTES) {
+            idChars[i] = buffer.getChar(position);
+        }
+        return new Record(new String(idChars), buffer.getFloat(position), buffer.getLong(position + Float.BYTES));
+    }
+
+    /**
+     * Decodes the record at the position of the buffer and moves the position past it.
+     *
+     * @throws RuntimeException if the id length is negative or the record does not fit into the buffer.
+     */
+    public static Record decode(ByteBuffer buffer) {
+        Record record = decode(buffer, buffer.position());
+        buffer.position(buffer.position() + encodedSize(record));
+        return record;
+    }
+
+    /**
+     * Compares a record with an encoded one the same way {@link Record#equals(Object)} does.
+     */
+    static boolean equalsEncoded(Record record, ByteBuffer buffer, int offset) {
+        String id = record.getId();
+        int idLength = id.length();
+        if (buffer.getInt(offset) != idLength) {
+            return false;
+        }
+        int position = offset + Integer.BYTES;
+        for (int i = 0; i < idLength; i++, position += Character.BYTES) {
+            if (buffer.getChar(position) != id.charAt(i)) {
+                return false;
+            }
+        }
+        return Float.floatToIntBits(buffer.getFloat(position)) == Float.floatToIntBits(record.getValue())
+                && buffer.getLong(position + Float.BYTES) == record.getDateMillis();
+    }
+
+    /**
+     * Reads the id length at the offset and checks that the whole record fits into the limit of the buffer.
+     */
+    static int checkedIdLength(ByteBuffer buffer, int offset) {
+        int idLength = buffer.getInt(offset);
+        if (idLength < 0 || idLength > (buffer.limit() - offset - FIXED_SIZE) / Character.BYTES) {
+            throw new RuntimeException("The encoded record at " + offset + " is corrupted or truncated.");
+        }
+        return idLength;
+    }
+
+    /**
+     * Computes a 64-bit fingerprint of the record identity. It is never 0, so 0 can mark an empty slot.
+     * Equal records have equal fingerprints. Unequal records collide with a probability of about 2^-64.
+     */
+    static long fingerprint(Record record) {
+        String id = record.getId();
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ Float.floatToIntBits(record.getValue())) * FNV_PRIME;
+        hash = (hash ^ record.getDateMillis()) * FNV_PRIME;
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * The finalizer of MurmurHash3. It spreads every input bit over the whole fingerprint.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
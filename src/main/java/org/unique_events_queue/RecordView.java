@@ -0,0 +1,96 @@
+package org.unique_events_queue;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable view of a record encoded by {@link RecordCodec}.
+ * It reads the fields straight from the buffer, so a consumer can inspect, hash and compare encoded records
+ * without creating a Record for each of them. Only {@link #getId()} and {@link #toRecord()} allocate.
+ *
+ * The view is not thread-safe and sees the changes of the buffer. Point it at another record with {@link #wrap}.
+ */
+public final class RecordView {
+    private ByteBuffer buffer;
+    private int offset;
+    private int idLength;
+
+    /**
+     * Points the view at the record encoded at the given offset.
+     *
+     * @return this view.
+     * @throws RuntimeException if the id length is negative or the record does not fit into the buffer.
+     */
+    public RecordView wrap(ByteBuffer buffer, int offset) {
+        this.idLength = RecordCodec.checkedIdLength(buffer, offset);
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public char getIdChar(int index) {
+        if (index < 0 || index >= idLength) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of the id of length " + idLength + ".");
+        }
+        return buffer.getChar(offset + Integer.BYTES + index * Character.BYTES);
+    }
+
+    /**
+     * @return a new String with the id.
+     */
+    public String getId() {
+        char[] idChars = new char[idLength];
+        for (int i = 0; i < idLength; i++) {
+            idChars[i] = buffer.getChar(offset + Integer.BYTES + i * Character.BYTES);
+        }
+        return new String(idChars);
+    }
+
+    public float getValue() {
+        return buffer.getFloat(valueOffset());
+    }
+
+    public long getDateMillis() {
+        return buffer.getLong(valueOffset() + Float.BYTES);
+    }
+
+    /**
+     * @return how many bytes the record takes, so the next one starts at the offset plus this size.
+     */
+    public int encodedSize() {
+        return RecordCodec.FIXED_SIZE + Character.BYTES * idLength;
+    }
+
+    /**
+     * @return the same value as {@link Record#hashCode()} of the decoded record.
+     */
+    public int recordHashCode() {
+        int idHash = 0;
+        int position = offset + Integer.BYTES;
+        for (int i = 0; i < idLength; i++, position += Character.BYTES) {
+            idHash = 31 * idHash + buffer.getChar(position);
+        }
+        return Record.combineHash(idHash, getValue(), getDateMillis());
+    }
+
+    /**
+     * @return whether the decoded record would be equal to the given one.
+     */
+    public boolean matches(Record record) {
+        return record != null && RecordCodec.equalsEncoded(record, buffer, offset);
+    }
+
+    /**
+     * @return a new Record with the fields of the view.
+     */
+    public Record toRecord() {
+        return new Record(getId(), getValue(), getDateMillis());
+    }
+
+    private int valueOffset() {
+        return offset + Integer.BYTES + idLength * Character.BYTES;
+    }
+}
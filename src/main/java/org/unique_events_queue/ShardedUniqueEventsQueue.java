@@ -0,0 +1,385 @@
+package org.unique_events_queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe queue of unique elements split into shards by the record hash code.
+ * Producers contend only within the shard of their record.
+ *
+ * The First-In-First-Out (FIFO) order is kept within every shard, but across shards it is approximate:
+ * a consumer takes the oldest record of its home shard first and steals the oldest record of another shard
+ * only when its home shard is empty. Therefore, a record may be retrieved before an older record of another shard.
+ * The queue limit is shared by all the shards. Over the limit, the oldest record of the whole queue is evicted.
+ */
+public final class ShardedUniqueEventsQueue implements IUniqueEventsQueue {
+    /*
+     * Equal records have equal hash codes, so they always land in the same shard,
+     * and the per-shard deduplication is enough to keep the whole queue free of duplicates.
+     *
+     * The semaphore counts the records that consumers may take across all the shards. It is the only state
+     * shared by all producers, and it is updated without a lock. Waiting on a single semaphore instead of per-shard
+     * bookkeeping means that a consumer never sleeps on its empty home shard while another shard has records.
+     *
+     * As in LockFreeUniqueEventsQueue, a producer releases a permit only after its record is linked, and a consumer
+     * looks for a record only after it has acquired a permit. The number of permits never exceeds the number of
+     * records, so the search of a consumer with a permit always succeeds.
+     *
+     * The size counts the records of all the shards against the one queue limit. A producer adds to it after linking,
+     * and a consumer subtracts from it after unlinking. An eviction first reserves its record by lowering the size
+     * with a compare-and-set from a value over the limit, so concurrent producers never evict more than the excess.
+     *
+     * Every record gets a sequence number when it is linked: a single add() under the monitor of its shard,
+     * and an addAll() call reserves a block of numbers for its list. The sequence numbers grow from the head
+     * to the tail of a shard, except when concurrent addAll() calls link into it in a different order than they
+     * reserved their blocks, so the oldest record of the queue is the shard head with the smallest sequence number,
+     * or a record that arrived at about the same time. An eviction unlinks that head only if it is still the same record,
+     * and looks again if a consumer or another eviction has taken it in the meantime.
+     */
+    static final int DEFAULT_SHARD_COUNT = 16;
+
+    private final Shard[] shards;
+    private final Semaphore availableRecords = new Semaphore(0);
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long queueLimit;
+
+    /**
+     * Creates an instance with a default parameters.
+     */
+    public ShardedUniqueEventsQueue() {
+        this(UniqueEventsQueue.DEFAULT_QUEUE_LIMIT, DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Creates an instance with a specified queue limit and number of shards.
+     *
+     * @param queueLimitParameter how many elements at most there may be in all the shards together.
+     * @param shardCount how many shards to split the queue into.
+     */
+    public ShardedUniqueEventsQueue(long queueLimitParameter, int shardCount) {
+        if (queueLimitParameter < 1) {
+            throw new RuntimeException("Queue size cannot be 0 or negative.");
+        }
+        if (shardCount < 1) {
+            throw new RuntimeException("Shard count cannot be 0 or negative.");
+        }
+        queueLimit = queueLimitParameter;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Puts a record into the queue.
+     *
+     * @param record the record to put into the queue
+     */
+    @Override
+    public void add(Record record) {
+        if (record == null) {
+            return;
+        }
+
+        if (shards[shardIndexOf(record)].link(record, sequence)) {
+            size.incrementAndGet();
+            availableRecords.release();
+            trimQueueToGivenLimit();
+        }
+    }
+
+    /**
+     * Adds a list of records into the queue.
+     * The records are grouped by shard first, so every shard is locked once per call.
+     * They get their sequence numbers in the order of the list, so the oldest of them are the first to be evicted.
+     * Only as many waiting consumers are woken up as there were records inserted.
+     *
+     * @param recordList a list of records to put into the queue.
+     */
+    @Override
+    public void addAll(List<Record> recordList) {
+        if (recordList == null) {
+            return;
+        }
+
+        Record[] records = recordList.toArray(new Record[0]);
+        int[] shardIndexes = new int[records.length];
+        int[] shardEnds = new int[shards.length + 1];
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                shardIndexes[i] = shardIndexOf(records[i]);
+                shardEnds[shardIndexes[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shardEnds[i + 1] += shardEnds[i];
+        }
+        // The positions of the records in the list, grouped by shard and kept in the order of the list within a shard.
+        int[] positionsByShard = new int[shardEnds[shards.length]];
+        int[] nextSlots = Arrays.copyOf(shardEnds, shards.length);
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                positionsByShard[nextSlots[shardIndexes[i]]++] = i;
+            }
+        }
+
+        long firstSequence = sequence.getAndAdd(records.length);
+        int numberOfItemsInserted = 0;
+        for (int i = 0; i < shards.length; i++) {
+            if (shardEnds[i] < shardEnds[i + 1]) {
+                numberOfItemsInserted +=
+                        shards[i].linkAll(records, positionsByShard, shardEnds[i], shardEnds[i + 1], firstSequence);
+            }
+        }
+        if (numberOfItemsInserted > 0) {
+            size.addAndGet(numberOfItemsInserted);
+            availableRecords.release(numberOfItemsInserted);
+            trimQueueToGivenLimit();
+        }
+    }
+
+    /**
+     * Retrieves the oldest record of the home shard of the calling thread, or steals one from another shard.
+     *
+     * @return a record from the queue or null if the thread was interrupted while waiting.
+     */
+    @Override
+    public Record get() {
+        try {
+            availableRecords.acquire();
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return takeFromAnyShard();
+    }
+
+    /**
+     * Retrieves a record from the queue.
+     *
+     * @param milliseconds wait for how many milliseconds before checking the queue state again.
+     * @param shouldItThrow a flag to allow throwing an unchecked exception if the waiting time ran out.
+     * @return a Record from the queue.
+     */
+    Record get(long milliseconds, boolean shouldItThrow) {
+        try {
+            while (!availableRecords.tryAcquire(milliseconds, TimeUnit.MILLISECONDS)) {
+                if (shouldItThrow) {
+                    throw new RuntimeException("Timed out. There were no elements in the queue.");
+                }
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return takeFromAnyShard();
+    }
+
+    /**
+     * Moves up to the given number of records into the collection without waiting.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null) {
+            return 0;
+        }
+
+        int numberOfItemsDrained = 0;
+        while (numberOfItemsDrained < maxElements && availableRecords.tryAcquire()) {
+            collection.add(takeFromAnyShard());
+            numberOfItemsDrained++;
+        }
+        return numberOfItemsDrained;
+    }
+
+    /**
+     * Retrieves up to the given number of records, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the records taken. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        try {
+            if (!availableRecords.tryAcquire(timeout, timeUnit)) {
+                return batch;
+            }
+        } catch (InterruptedException e) {
+            return batch;
+        }
+        batch.add(takeFromAnyShard());
+        drainTo(batch, maxElements - 1);
+        return batch;
+    }
+
+    /**
+     * Indicates if queue contains anything.
+     *
+     * @return true if all the shards are empty. False otherwise.
+     */
+    boolean isEmpty() {
+        for (Shard shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long waitingThreadsCount() {
+        return availableRecords.getQueueLength();
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    private int shardIndexOf(Record record) {
+        return Math.floorMod(record.hashCode(), shards.length);
+    }
+
+    /**
+     * Takes a record for a consumer starting from the home shard of the calling thread.
+     * The caller must hold a permit.
+     */
+    private Record takeFromAnyShard() {
+        int homeShardIndex = (int) (Thread.currentThread().getId() % shards.length);
+        while (true) {
+            for (int i = 0; i < shards.length; i++) {
+                Record record = shards[(homeShardIndex + i) % shards.length].unlinkOldest();
+                if (record != null) {
+                    size.decrementAndGet();
+                    return record;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unlinks the oldest record of the whole queue. The caller must hold a permit.
+     */
+    private void evictOldest() {
+        while (true) {
+            Shard oldestShard = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (Shard shard : shards) {
+                long headSequence = shard.headSequence();
+                if (headSequence < oldestSequence) {
+                    oldestShard = shard;
+                    oldestSequence = headSequence;
+                }
+            }
+            if (oldestShard != null && oldestShard.unlinkOldest(oldestSequence)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evicts the oldest records of the whole queue while it exceeds the limit.
+     * The eviction competes with consumers for the permits, so a record is never handed out twice.
+     */
+    private void trimQueueToGivenLimit() {
+        while (true) {
+            long currentSize = size.get();
+            if (currentSize <= queueLimit) {
+                return;
+            }
+            if (!size.compareAndSet(currentSize, currentSize - 1)) {
+                continue;
+            }
+            if (!availableRecords.tryAcquire()) {
+                // Consumers hold the permits of all the remaining records, so they bring the size down themselves.
+                size.incrementAndGet();
+                return;
+            }
+            evictOldest();
+        }
+    }
+
+    /**
+     * The records of one shard in their FIFO order, each with its sequence number.
+     */
+    private static final class Shard {
+        private final LinkedHashMap<Record, Long> queue = new LinkedHashMap<>();
+
+        synchronized boolean link(Record record, AtomicLong sequence) {
+            if (queue.containsKey(record)) {
+                return false;
+            }
+            queue.put(record, sequence.getAndIncrement());
+            return true;
+        }
+
+        /**
+         * Links the records at the given positions of the array, numbering them from the first sequence number
+         * by their positions.
+         */
+        synchronized int linkAll(Record[] records, int[] positions, int from, int to, long firstSequence) {
+            int numberOfItemsInserted = 0;
+            for (int i = from; i < to; i++) {
+                Record record = records[positions[i]];
+                if (queue.putIfAbsent(record, firstSequence + positions[i]) == null) {
+                    numberOfItemsInserted++;
+                }
+            }
+            return numberOfItemsInserted;
+        }
+
+        synchronized Record unlinkOldest() {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            Iterator<Record> iterator = queue.keySet().iterator();
+            Record recordToReturn = iterator.next();
+            iterator.remove();
+            return recordToReturn;
+        }
+
+        /**
+         * Unlinks the head of the shard if it still has the given sequence number.
+         *
+         * @return true if the head was unlinked.
+         */
+        synchronized boolean unlinkOldest(long headSequence) {
+            if (queue.isEmpty()) {
+                return false;
+            }
+            Iterator<Map.Entry<Record, Long>> iterator = queue.entrySet().iterator();
+            if (iterator.next().getValue() != headSequence) {
+                return false;
+            }
+            iterator.remove();
+            return true;
+        }
+
+        /**
+         * @return the sequence number of the head or Long.MAX_VALUE if the shard is empty.
+         */
+        synchronized long headSequence() {
+            return queue.isEmpty() ? Long.MAX_VALUE : queue.values().iterator().next();
+        }
+
+        synchronized boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+}
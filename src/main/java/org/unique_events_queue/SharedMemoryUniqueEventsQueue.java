@@ -0,0 +1,403 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A queue of unique elements that several processes on the same host share through a memory-mapped file.
+ * It works on the First-In-First-Out (FIFO) principle.
+ *
+ * Every queue built over the same file sees the same records: a record added by one process may be retrieved
+ * by any of them, and a queued record is a duplicate for all of them. On Linux, a file under /dev/shm stays
+ * in memory only. The file keeps the records when the processes exit, so the next queue over it continues with them.
+ * When the queue runs out of either the queue limit or the capacity, the oldest records are evicted.
+ * A record whose encoded size exceeds the capacity is rejected with an exception.
+ */
+public final class SharedMemoryUniqueEventsQueue implements IUniqueEventsQueue {
+    /*
+     * The file is a header followed by the ring and the index of an OffHeapRecordStore, see its description.
+     * Every process keeps its own store over the shared memory. The owner of the lock loads the positions
+     * of the ring from the header, changes the ring and stores the positions back before it releases the lock.
+     *
+     * The lock is an int in the header, taken with a compare-and-set through a VarHandle and released
+     * with release semantics, so whatever was changed under it is visible to the next owner in any process.
+     * It holds the process id of its owner. A process that has waited for the lock for long checks whether the owner
+     * is still alive and refuses to go on if it is not, since the owner may have left the ring half changed.
+     * The threads of one process line up on a local lock first, so at most one of them spins for the shared one.
+     *
+     * A consumer in another process cannot be signalled, so a consumer that finds the queue empty polls the size
+     * in the header without the lock. It spins briefly, then yields, then parks for longer and longer,
+     * up to MAX_PARK_NANOSECONDS, which bounds the latency an idle consumer adds.
+     */
+    private static final int MAGIC = 0x5545534d;
+    private static final int VERSION = 1;
+    private static final int VERSION_OFFSET = Integer.BYTES;
+    private static final int CAPACITY_OFFSET = Long.BYTES;
+    private static final int QUEUE_LIMIT_OFFSET = 2 * Long.BYTES;
+    private static final int LOCK_OFFSET = 64;
+    private static final int COUNTERS_OFFSET = 128;
+    private static final int SIZE_OFFSET = COUNTERS_OFFSET + 2 * Long.BYTES;
+    private static final int HEADER_SIZE = COUNTERS_OFFSET + 64;
+    private static final int UNLOCKED = 0;
+
+    private static final int SPIN_ATTEMPTS = 64;
+    private static final int YIELD_ATTEMPTS = 64;
+    private static final long MIN_PARK_NANOSECONDS = 1_000;
+    private static final long MAX_PARK_NANOSECONDS = 100_000;
+    private static final int OWNER_CHECK_ATTEMPTS = 10_000;
+
+    private static final VarHandle INT_VIEW =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer header;
+    private final OffHeapRecordStore store;
+    private final long queueLimit;
+    private final int processId = (int) ProcessHandle.current().pid();
+    private final ReentrantLock localLock = new ReentrantLock();
+
+    /**
+     * Creates a queue over the file or attaches to the queue that is already there.
+     * All the queues over one file must be created with the same limit and capacity.
+     *
+     * @param file the file to map. It is created if it does not exist.
+     * @param queueLimitParameter how many elements at most there may be in the queue.
+     * @param capacityInBytes how many bytes the encoded records may take. The file takes about a quarter more.
+     */
+    public SharedMemoryUniqueEventsQueue(Path file, long queueLimitParameter, long capacityInBytes) {
+        if (queueLimitParameter < 1) {
+            throw new RuntimeException("Queue size cannot be 0 or negative.");
+        }
+        if (capacityInBytes < OffHeapRecordStore.ENTRY_HEADER_SIZE + RecordCodec.FIXED_SIZE) {
+            throw new RuntimeException("Shared memory capacity is too small.");
+        }
+        long indexSize = OffHeapRecordStore.indexSizeInBytes(capacityInBytes);
+        if (HEADER_SIZE + capacityInBytes + indexSize > Integer.MAX_VALUE) {
+            throw new RuntimeException("Shared memory file cannot be larger than 2 GiB.");
+        }
+        queueLimit = queueLimitParameter;
+        header = map(file, (int) (HEADER_SIZE + capacityInBytes + indexSize), queueLimitParameter, capacityInBytes);
+        ByteBuffer ring = slice(header, HEADER_SIZE, (int) capacityInBytes);
+        ByteBuffer index = slice(header, HEADER_SIZE + (int) capacityInBytes, (int) indexSize);
+        store = new OffHeapRecordStore(new ByteBuffer[] {ring}, index);
+    }
+
+    /**
+     * Puts a record into the queue.
+     *
+     * @param record the record to put into the queue
+     * @throws RuntimeException if the record does not fit into the capacity of the queue.
+     */
+    @Override
+    public void add(Record record) {
+        if (record == null) {
+            return;
+        }
+        int entrySize = entrySizeOf(record);
+        long fingerprint = RecordCodec.fingerprint(record);
+        lock();
+        try {
+            link(record, fingerprint, entrySize);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Adds a list of records into the queue under a single lock acquisition.
+     * The records are fingerprinted before the lock is taken.
+     *
+     * @param recordList a list of records to put into the queue.
+     * @throws RuntimeException if any of the records does not fit into the capacity of the queue.
+     * Nothing is inserted then.
+     */
+    @Override
+    public void addAll(List<Record> recordList) {
+        if (recordList == null) {
+            return;
+        }
+
+        Record[] records = recordList.toArray(new Record[0]);
+        long[] fingerprints = new long[records.length];
+        int[] entrySizes = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] != null) {
+                fingerprints[i] = RecordCodec.fingerprint(records[i]);
+                entrySizes[i] = entrySizeOf(records[i]);
+            }
+        }
+        lock();
+        try {
+            for (int i = 0; i < records.length; i++) {
+                if (records[i] != null) {
+                    link(records[i], fingerprints[i], entrySizes[i]);
+                }
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Retrieves the oldest record from the queue, waiting for one if the queue is empty. FIFO principle.
+     *
+     * @return the oldest record from the queue or null if the thread was interrupted while waiting.
+     */
+    @Override
+    public Record get() {
+        return poll(Long.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves a record from the queue.
+     *
+     * @param milliseconds wait for how many milliseconds before checking the queue state again.
+     * @param shouldItThrow a flag to allow throwing an unchecked exception if the waiting time ran out.
+     * @return a Record from the queue on the FIFO principle or null if the thread was interrupted while waiting.
+     */
+    Record get(long milliseconds, boolean shouldItThrow) {
+        while (true) {
+            Record record = poll(TimeUnit.MILLISECONDS.toNanos(milliseconds));
+            if (record != null || Thread.currentThread().isInterrupted()) {
+                return record;
+            }
+            if (shouldItThrow) {
+                throw new RuntimeException("Timed out. There were no elements in the queue.");
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of the oldest records into the collection without waiting. FIFO principle.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null || maxElements < 1 || size() == 0) {
+            return 0;
+        }
+
+        int numberOfItemsDrained = 0;
+        lock();
+        try {
+            Record record;
+            while (numberOfItemsDrained < maxElements && (record = store.pollOldest()) != null) {
+                collection.add(record);
+                numberOfItemsDrained++;
+            }
+        } finally {
+            unlock();
+        }
+        return numberOfItemsDrained;
+    }
+
+    /**
+     * Retrieves up to the given number of the oldest records, waiting for at least one of them if the queue is empty.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the oldest records on the FIFO principle. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        Record record = poll(Math.max(0, timeUnit.toNanos(timeout)));
+        if (record != null) {
+            batch.add(record);
+            drainTo(batch, maxElements - 1);
+        }
+        return batch;
+    }
+
+    /**
+     * Reads the number of queued records without taking the lock, so it may be outdated by the time it returns.
+     *
+     * @return how many records all the processes have queued.
+     */
+    public int size() {
+        return (int) INT_VIEW.getAcquire(header, SIZE_OFFSET);
+    }
+
+    /**
+     * Indicates if queue contains anything.
+     *
+     * @return true if the queue is empty. False otherwise.
+     */
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Takes the oldest record, waiting for one for at most the given time.
+     *
+     * @param timeoutNanoseconds how long to wait. Long.MAX_VALUE means waiting endlessly.
+     * @return the oldest record or null if the waiting time ran out or the thread was interrupted.
+     */
+    private Record poll(long timeoutNanoseconds) {
+        long deadline = System.nanoTime() + timeoutNanoseconds;
+        for (int attempt = 1; ; attempt++) {
+            if (size() > 0) {
+                lock();
+                try {
+                    Record record = store.pollOldest();
+                    if (record != null) {
+                        return record;
+                    }
+                } finally {
+                    unlock();
+                }
+            }
+            if (Thread.currentThread().isInterrupted()
+                    || (timeoutNanoseconds != Long.MAX_VALUE && deadline - System.nanoTime() <= 0)) {
+                return null;
+            }
+            backOff(attempt);
+        }
+    }
+
+    private int entrySizeOf(Record record) {
+        int entrySize = OffHeapRecordStore.entrySize(record);
+        if (!store.fitsIntoSlab(entrySize)) {
+            throw new RuntimeException("Record does not fit into the shared memory capacity.");
+        }
+        return entrySize;
+    }
+
+    /**
+     * Stores the record unless it is queued already, evicting the oldest ones if there is no room for it.
+     * The caller must hold the lock.
+     */
+    private void link(Record record, long fingerprint, int entrySize) {
+        if (store.contains(record, fingerprint)) {
+            return;
+        }
+        while (store.size() >= queueLimit || !store.hasRoomFor(entrySize)) {
+            if (store.isEmpty()) {
+                return;
+            }
+            store.evictOldest();
+        }
+        store.append(record, fingerprint, entrySize);
+    }
+
+    /**
+     * Takes the lock of this process and then the lock in the file. The lock is held only for a few operations,
+     * so an interrupt does not abort taking it. It is cleared while backing off, because parking returns at once
+     * while the interrupt flag is set, and restored once the lock is taken.
+     */
+    private void lock() {
+        localLock.lock();
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; !INT_VIEW.compareAndSet(header, LOCK_OFFSET, UNLOCKED, processId); attempt++) {
+                if (attempt % OWNER_CHECK_ATTEMPTS == 0) {
+                    checkThatLockOwnerIsAlive();
+                }
+                interrupted |= Thread.interrupted();
+                backOff(attempt);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        store.loadCounters(header, COUNTERS_OFFSET);
+    }
+
+    private void unlock() {
+        store.storeCounters(header, COUNTERS_OFFSET);
+        INT_VIEW.setRelease(header, LOCK_OFFSET, UNLOCKED);
+        localLock.unlock();
+    }
+
+    private void checkThatLockOwnerIsAlive() {
+        int owner = (int) INT_VIEW.getVolatile(header, LOCK_OFFSET);
+        if (owner == UNLOCKED || owner == processId) {
+            return;
+        }
+        if (!ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false)) {
+            localLock.unlock();
+            throw new RuntimeException("The shared queue was left locked by process " + owner
+                    + ", which is gone. The file has to be recreated.");
+        }
+    }
+
+    /**
+     * Spins for the first attempts, then yields, then parks for longer and longer.
+     */
+    private static void backOff(int attempt) {
+        if (attempt <= SPIN_ATTEMPTS) {
+            Thread.onSpinWait();
+        } else if (attempt <= SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+            Thread.yield();
+        } else {
+            int doublings = Math.min(16, attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS);
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOSECONDS, MIN_PARK_NANOSECONDS << doublings));
+        }
+    }
+
+    /**
+     * Maps the file, writing the header if the file is new and checking it otherwise.
+     * The processes that open the file at the same time take turns through a file lock.
+     *
+     * @return the whole mapped file in the native byte order.
+     */
+    private static ByteBuffer map(Path file, int fileSize, long queueLimit, long capacityInBytes) {
+        try (FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                long existingSize = channel.size();
+                if (existingSize != 0 && existingSize != fileSize) {
+                    throw new RuntimeException(file + " is not a shared queue with the same limit and capacity.");
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                ByteBuffer header = mapped.order(ByteOrder.nativeOrder());
+                if (header.getInt(0) == 0) {
+                    header.putInt(VERSION_OFFSET, VERSION);
+                    header.putLong(CAPACITY_OFFSET, capacityInBytes);
+                    header.putLong(QUEUE_LIMIT_OFFSET, queueLimit);
+                    header.putInt(0, MAGIC);
+                    mapped.force();
+                } else if (header.getInt(0) != MAGIC
+                        || header.getInt(VERSION_OFFSET) != VERSION
+                        || header.getLong(CAPACITY_OFFSET) != capacityInBytes
+                        || header.getLong(QUEUE_LIMIT_OFFSET) != queueLimit) {
+                    throw new RuntimeException(file + " is not a shared queue with the same limit and capacity.");
+                }
+                return header;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot map the shared queue file " + file + ".", e);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice();
+    }
+}
@@ -0,0 +1,128 @@
+package org.unique_events_queue;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publisher of the records taken from a UniqueEventsQueue.
+ * Every subscription keeps at most one getAsync() future in the queue's line at a time
+ * and asks for it only while the subscriber has unsatisfied demand, so no thread is blocked on its behalf.
+ */
+final class UniqueEventsPublisher implements Flow.Publisher<Record> {
+    private final UniqueEventsQueue queue;
+
+    UniqueEventsPublisher(UniqueEventsQueue queue) {
+        this.queue = queue;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Record> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null.");
+        QueueSubscription subscription = new QueueSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /*
+     * The signals to the subscriber are serialized with the work-in-progress counter:
+     * only the thread that raised it from zero emits, and the others merely ask it to loop once more.
+     * A record that arrives through a future is parked in readyRecord and emitted by that loop as well,
+     * and so is an error.
+     */
+    private final class QueueSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Record> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+        private volatile CompletableFuture<Record> outstandingFuture;
+        private volatile Record readyRecord;
+        private volatile Throwable pendingError;
+        private volatile boolean cancelled;
+        private boolean terminated;
+
+        QueueSubscription(Flow.Subscriber<? super Record> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                pendingError = new IllegalArgumentException("Requested amount must be positive.");
+                cancel();
+                drain();
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<Record> future = outstandingFuture;
+            if (future != null) {
+                // Fails if a producer has already handed the future a record. That record is still delivered.
+                future.cancel(false);
+            }
+        }
+
+        private void drain() {
+            if (workInProgress.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                Record record = readyRecord;
+                if (record != null) {
+                    readyRecord = null;
+                    outstandingFuture = null;
+                    emit(record);
+                }
+                while (!cancelled && outstandingFuture == null && demand.get() > 0) {
+                    CompletableFuture<Record> future = queue.getAsync();
+                    if (!future.isDone()) {
+                        outstandingFuture = future;
+                        future.thenAccept(this::onRecordHandedOver);
+                        if (cancelled) {
+                            future.cancel(false);
+                        }
+                        break;
+                    }
+                    emit(future.join());
+                }
+                signalPendingError();
+                missed = workInProgress.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void onRecordHandedOver(Record record) {
+            readyRecord = record;
+            drain();
+        }
+
+        private void emit(Record record) {
+            if (terminated) {
+                return;
+            }
+            demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+            try {
+                subscriber.onNext(record);
+            } catch (RuntimeException e) {
+                pendingError = e;
+                cancel();
+            }
+        }
+
+        private void signalPendingError() {
+            Throwable throwable = pendingError;
+            if (throwable != null && !terminated) {
+                terminated = true;
+                subscriber.onError(throwable);
+            }
+        }
+    }
+}
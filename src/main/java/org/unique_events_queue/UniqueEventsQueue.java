@@ -1,103 +1,331 @@
 package org.unique_events_queue;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * A thread-safe queue of unique elements.
  * It works on the First-In-First-Out (FIFO) principle.
  */
-public final class UniqueEventsQueue {
+public final class UniqueEventsQueue implements IUniqueEventsQueue, AutoCloseable {
+    static final long DEFAULT_QUEUE_LIMIT = (long) Math.pow(10, 9);
+    static final int DEFAULT_PARALLEL_ADD_ALL_THRESHOLD =
+            ForkJoinPool.getCommonPoolParallelism() > 1 ? 1 << 14 : Integer.MAX_VALUE;
+
     /*
      * The class assumes that the entries are immutable.
      * Because of that, safe copying of separate entries is not done when accepting the parameters.
+     *
+     * Consumers that find the queue empty line up in the waiters queue and park outside the lock.
+     * Producers hand the records directly to the waiters in their arrival order and unpark exactly those threads,
+     * so a woken consumer never has to re-acquire the lock to find out that somebody else took its record.
+     * As a consequence, the waiters queue is never non-empty while the records queue is non-empty.
+     * Asynchronous consumers line up in the same queue as a pending future instead of a parked thread.
+     * Their futures are completed after the lock is released, so the dependent actions never run under the lock.
+     *
+     * Both the lock and the waiting are built on java.util.concurrent.locks instead of a monitor,
+     * so a virtual thread that contends for the lock or waits for a record unmounts from its carrier thread
+     * instead of pinning it. The lock barges by default: a thread that arrives while the lock is being handed over
+     * may take it ahead of the parked ones. The fair mode makes the lock serve the threads in their arrival order,
+     * so a consumer that comes back for its next record queues up behind those that are already waiting.
+     *
+     * The limit is enforced on every insertion: a new record that does not fit is handled by the eviction policy,
+     * which evicts at most one record for it. The work per inserted record therefore stays constant,
+     * and a duplicate never evicts anything because it is recognized before the policy is asked.
+     * The producers that wait for room, through put(), offer() or the BLOCK_PRODUCER policy, wait on the not-full
+     * condition, which is signalled once per record a consumer takes out.
+     *
+     * The records are keyed by their identity key, which is the record itself unless the builder sets an extractor.
+     * Re-putting an existing key into the LinkedHashMap keeps its position, which is what the coalescing mode relies on
+     * to replace a queued record with a newer one in place.
+     *
+     * With a write-ahead log, every change of the records queue is logged under the lock in the same order,
+     * and the queue is rebuilt from the log when it is created. The producers wait for their records to become durable
+     * after they release the lock, so they can share one force of the log.
+     * The evictions and the completions of the handed over futures are collected under the lock
+     * and delivered by the producer right after it releases the lock.
+     *
+     * With an overflow tier, the records queue is only the memory tier: a record that does not fit is spilled to disk
+     * instead of being handed to the eviction policy. Once anything is spilled, every new record is spilled too,
+     * so the spilled records are always newer than those in memory and the FIFO order holds across the tiers.
+     * Whenever the memory tier is half empty, the prefetcher thread reads the next chunk of spilled records
+     * outside the lock and then moves them into memory under it, like a producer would.
+     * If the prefetcher cannot read the spilled records back, it keeps the failure and stops. The records on disk
+     * cannot reach the consumers anymore, so every later spill and every consumer that would wait for them fails
+     * with it, and the consumers already waiting are woken up to fail as well.
      */
-    private final LinkedHashSet<Record> queue = new LinkedHashSet<>();
-    private final Object lockForAddGet = new Object();
+    private final LinkedHashMap<Object, Record> queue = new LinkedHashMap<>();
+    private final ReentrantLock lockForAddGet;
+    private final Condition notFull;
     private final long queueLimit;
-    private long elementsInsertedAfterLastTrim;
-    private final long trimAfterThatManyInsertedElements;
-    private final ConcurrentHashMap<Object, Boolean> waitingThreadsMap = new ConcurrentHashMap<>();
+    private final Function<Record, ?> identityKey;
+    private final boolean coalescing;
+    private final int parallelAddAllThreshold;
+    private final EvictionPolicy evictionPolicy;
+    private final EvictionListener evictionListener;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private List<Waiter> handedOverFutures;
+    private List<Eviction> evictions;
     private final CountDownLatchSwitch countDownLatchStub = new CountDownLatchSwitch();
+    private final DedupWindow dedupWindow;
+    private final QueueMetrics metrics;
+    private final WriteAheadLog writeAheadLog;
+    private final OverflowTier overflow;
+    private final Condition refillNeeded;
+    private final Thread prefetcher;
+    private boolean closed;
+    private volatile RuntimeException overflowFailure;
+    private long duplicateCount;
+    private long evictionCount;
+    private volatile long publishedSize;
+
+    private static final VarHandle PUBLISHED_SIZE;
+    /**
+     * The consumers that wait synchronously reuse their waiter, since a thread waits for one record at a time
+     * and its waiter leaves the line before the wait returns.
+     */
+    private static final ThreadLocal<Waiter> WAITER_OF_THREAD =
+            ThreadLocal.withInitial(() -> new Waiter(Thread.currentThread()));
+
+    static {
+        try {
+            PUBLISHED_SIZE = MethodHandles.lookup().findVarHandle(UniqueEventsQueue.class, "publishedSize", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Creates an instance with a default parameters.
      */
     public UniqueEventsQueue() {
-        this((long) Math.pow(10, 9), 1000);
+        this(new UniqueEventsQueueBuilder());
     }
 
     /**
      * Creates an instance with a specified queue limit.
      *
      * @param queueLimitParameter how many elements at most there may be in the queue.
-     * @param trimAfterThatManyInsertedElements every that many items, it is checked if the queue size exceeds
-     * queueLimitParameter. In other words, the queue size may exceed the limit by that many elements at most.
+     * @param trimAfterThatManyInsertedElements ignored. The limit is now enforced on every insertion
+     * by evicting the oldest records, so the queue never exceeds it.
+     * @deprecated use {@link UniqueEventsQueueBuilder#queueLimit(long)} instead.
      */
+    @Deprecated
     public UniqueEventsQueue(long queueLimitParameter, long trimAfterThatManyInsertedElements) {
-        if (queueLimitParameter < 1) {
+        this(new UniqueEventsQueueBuilder().queueLimit(queueLimitParameter));
+    }
+
+    /**
+     * Creates an instance with the optional features configured in the builder.
+     */
+    UniqueEventsQueue(UniqueEventsQueueBuilder builder) {
+        if (builder.getQueueLimit() < 1) {
             throw new RuntimeException("Queue size cannot be 0 or negative.");
         }
-        queueLimit = queueLimitParameter;
-        this.trimAfterThatManyInsertedElements = trimAfterThatManyInsertedElements;
+        lockForAddGet = new ReentrantLock(builder.isFair());
+        notFull = lockForAddGet.newCondition();
+        refillNeeded = lockForAddGet.newCondition();
+        queueLimit = builder.getQueueLimit();
+        identityKey = builder.getIdentityKey();
+        coalescing = builder.isCoalescing();
+        parallelAddAllThreshold = builder.getParallelAddAllThreshold();
+        evictionPolicy = builder.getEvictionPolicy();
+        evictionListener = builder.getEvictionListener();
+        dedupWindow = builder.createDedupWindow();
+        metrics = builder.isMetricsEnabled() ? new QueueMetrics(this::size) : null;
+        writeAheadLog = builder.createWriteAheadLog();
+        if (writeAheadLog != null) {
+            restore(writeAheadLog.replay(dedupWindow));
+        } else if (builder.getSnapshotFile() != null) {
+            restore(QueueSnapshot.read(builder.getSnapshotFile()));
+        }
+        overflow = builder.createOverflowTier();
+        if (overflow != null) {
+            prefetcher = new Thread(this::prefetchOverflow, "unique-events-queue-overflow-prefetcher");
+            prefetcher.setDaemon(true);
+            prefetcher.start();
+        } else {
+            prefetcher = null;
+        }
     }
 
     /**
      * Puts a record into the queue.
+     * If the queue is full, the eviction policy decides whether the oldest record is evicted, the new one is rejected
+     * or the producer waits for room.
      *
      * @param record the record to put into the queue
      */
+    @Override
     public void add(Record record) {
-        synchronized (lockForAddGet) {
-            if (record != null && queue.add(record)) {
-                lockForAddGet.notify();
-                elementsInsertedAfterLastTrim++;
-                if (elementsInsertedAfterLastTrim >= trimAfterThatManyInsertedElements) {
-                    trimQueueToGivenLimit(0);
-                }
-            }
+        if (record == null) {
+            return;
+        }
+        lockForAddGet.lock();
+        QueueEvents.ProducerCall events = QueueEvents.beginProducerCall(1, duplicateCount, evictionCount);
+        try {
+            admit(record, keyOf(record), false, Long.MAX_VALUE, events);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unlockAndCommit(events);
         }
     }
 
     /**
      * Adds a list of records into the queue.
+     * Only as many waiting consumers are woken up as there were records inserted.
+     * The eviction policy is applied to every record that does not fit, so the duplicates in the list evict nothing.
+     * If the policy makes the producer wait, the records inserted before the wait are already visible to consumers.
+     * A list of at least {@link UniqueEventsQueueBuilder#parallelAddAllThreshold(int)} records is deduplicated
+     * in parallel before the lock is taken, which shortens the time the consumers are locked out.
      *
      * @param recordList a list of records to put into the queue.
      */
+    @Override
     public void addAll(List<Record> recordList) {
         /*
          * addAll() assumes that it receives an immutable list.
          * It is advised to send an immutable list to addAll to prevent an attack on its contents during the transfer.
          */
-        synchronized (lockForAddGet) {
-            if (recordList != null) {
-                /*
-                 * The current trimming strategy is to preemptively trim the queue
-                 * as if all elements will be inserted into it.
-                 */
-                if (elementsInsertedAfterLastTrim + recordList.size() >= trimAfterThatManyInsertedElements) {
-                    trimQueueToGivenLimit(recordList.size());
-                }
-
-                long numberOfItemsInserted = 0;
-                for (Record record : recordList) {
-                    if (record != null && queue.add(record)) {
-                        numberOfItemsInserted++;
-                    }
+        if (recordList == null) {
+            return;
+        }
+        if (recordList.size() >= parallelAddAllThreshold) {
+            addAllInParallel(recordList);
+            return;
+        }
+        lockForAddGet.lock();
+        QueueEvents.ProducerCall events =
+                QueueEvents.beginProducerCall(recordList.size(), duplicateCount, evictionCount);
+        try {
+            for (Record record : recordList) {
+                if (record != null) {
+                    admit(record, keyOf(record), false, Long.MAX_VALUE, events);
                 }
-                elementsInsertedAfterLastTrim += numberOfItemsInserted;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unlockAndCommit(events);
+        }
+    }
+
+    /**
+     * Deduplicates the list and extracts the identity keys on the fork/join pool before taking the lock,
+     * so the locked section only admits the distinct records of the list, in the same order as addAll() would.
+     * The records merged within the list are counted as duplicates, or as coalesced in the coalescing mode.
+     */
+    private void addAllInParallel(List<Record> recordList) {
+        DistinctBatch batch = DistinctBatch.of(recordList, identityKey, coalescing);
+        if (metrics != null) {
+            if (coalescing) {
+                metrics.recordCoalesced(batch.mergedCount());
+            } else {
+                metrics.recordDuplicates(batch.mergedCount());
+            }
+        }
+        lockForAddGet.lock();
+        QueueEvents.ProducerCall events =
+                QueueEvents.beginProducerCall(recordList.size(), duplicateCount, evictionCount);
+        if (!coalescing) {
+            duplicateCount += batch.mergedCount();
+        }
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                admit(batch.recordAt(i), batch.keyAt(i), false, Long.MAX_VALUE, events);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unlockAndCommit(events);
+        }
+    }
+
+    /**
+     * Puts a record into the queue, waiting for room if the queue is full, whatever the eviction policy is.
+     * A duplicate returns immediately.
+     * Waiting producers are woken up one by one as consumers take the records out.
+     *
+     * @param record the record to put into the queue.
+     * @param timeout how long to wait for room.
+     * @param timeUnit the unit of the timeout.
+     * @return true if the record was inserted or, in the coalescing mode, replaced the queued record with its key.
+     * False if it was a duplicate or null, or if the waiting time ran out.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public boolean offer(Record record, long timeout, TimeUnit timeUnit) throws InterruptedException {
+        if (record == null) {
+            return false;
+        }
+        lockForAddGet.lock();
+        try {
+            Admission admission = admit(record, keyOf(record), true, Math.max(0, timeUnit.toNanos(timeout)), null);
+            return admission == Admission.INSERTED || admission == Admission.COALESCED;
+        } finally {
+            unlockAndDeliver();
+        }
+    }
+
+    /**
+     * Puts a record into the queue, waiting as long as it takes for room if the queue is full,
+     * whatever the eviction policy is. A duplicate returns immediately.
+     *
+     * @param record the record to put into the queue.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public void put(Record record) throws InterruptedException {
+        if (record == null) {
+            return;
+        }
+        lockForAddGet.lock();
+        try {
+            admit(record, keyOf(record), true, Long.MAX_VALUE, null);
+        } finally {
+            unlockAndDeliver();
+        }
+    }
 
-                long howManyThreadsToNotify = numberOfItemsInserted > waitingThreadsMap.size()
-                        ? waitingThreadsMap.size()
-                        : numberOfItemsInserted;
-                for (int i = 0; i < howManyThreadsToNotify; i++) {
-                    lockForAddGet.notify();
+    /**
+     * Adds the records from the start of the list for as long as the queue has room for them, without waiting
+     * and without evicting anything. The duplicates and nulls are skipped and take no room.
+     *
+     * @param recordList a list of records to put into the queue.
+     * @return how many records from the start of the list were taken, including the skipped ones.
+     * The rest of the list did not fit and may be offered again later.
+     */
+    public int offerAll(List<Record> recordList) {
+        if (recordList == null) {
+            return 0;
+        }
+        int numberOfItemsTaken = 0;
+        lockForAddGet.lock();
+        try {
+            for (Record record : recordList) {
+                if (record != null && tryAdmit(record, keyOf(record), true) == null) {
+                    break;
                 }
+                numberOfItemsTaken++;
             }
+        } finally {
+            unlockAndDeliver();
         }
+        return numberOfItemsTaken;
     }
 
     /**
@@ -105,6 +333,7 @@ public final class UniqueEventsQueue {
      *
      * @return the oldest record from the queue.
      */
+    @Override
     public Record get() {
         return get(Long.MAX_VALUE, false, countDownLatchStub);
     }
@@ -116,10 +345,9 @@ public final class UniqueEventsQueue {
     /**
      * Retrieves a record from the queue.
      *
-     * @param milliseconds wait for how many milliseconds before waking up and checking the queue state again.
-     *                     Zero equals endless wait.
+     * @param milliseconds wait for how many milliseconds before giving up. Used only if shouldItThrow is set.
      * @param shouldItThrow a flag to allow throwing a TimeoutException if the waiting time ran out.
-     * @return a Record from the queue on the FIFO principle.
+     * @return a Record from the queue on the FIFO principle or null if the thread was interrupted while waiting.
      */
     Record get(long milliseconds, boolean shouldItThrow, CountDownLatchSwitch countDownLatchSwitch) {
         /*
@@ -128,68 +356,1016 @@ public final class UniqueEventsQueue {
          * Any public function should call this function with the shouldItThrow set to false,
          * so it does not throw the unchecked exception.
          */
-        synchronized (lockForAddGet) {
-            Record recordToReturn;
-            long timeStart;
-
-            try {
-                timeStart = System.nanoTime();
-                while (!queue.iterator().hasNext()) {
-                    waitingThreadsMap.putIfAbsent(Thread.currentThread().getId(), true);
-                    countDownLatchSwitch.enactStrategy(CountDownPosition.WENT_TO_WAIT);
-                    lockForAddGet.wait(milliseconds);
-                    if (shouldItThrow && System.nanoTime() - timeStart >= TimeUnit.MILLISECONDS.toNanos(milliseconds)) {
-                        throw new RuntimeException("Timed out. There were no elements in the queue.");
-                    }
-                }
-                recordToReturn = queue.iterator().next();
-                queue.remove(recordToReturn);
-                waitingThreadsMap.remove(Thread.currentThread().getId());
+        Waiter waiter;
+        QueueEvents.ConsumerWait waitEvent;
+        lockForAddGet.lock();
+        try {
+            if (!queue.isEmpty()) {
                 countDownLatchSwitch.enactStrategy(CountDownPosition.FINISHED);
-            } catch (InterruptedException e) {
-                waitingThreadsMap.remove(Thread.currentThread().getId());
+                return unlinkOldest();
+            }
+            checkOverflowTier();
+            waiter = waiterOfCurrentThread();
+            lineUp(waiter);
+            countDownLatchSwitch.enactStrategy(CountDownPosition.WENT_TO_WAIT);
+            waitEvent = QueueEvents.beginConsumerWait();
+        } finally {
+            lockForAddGet.unlock();
+        }
+
+        Record recordToReturn;
+        try {
+            recordToReturn =
+                    awaitHandOff(waiter, shouldItThrow ? TimeUnit.MILLISECONDS.toNanos(milliseconds) : Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            QueueEvents.endConsumerWait(waitEvent, 0);
+            return null;
+        }
+        QueueEvents.endConsumerWait(waitEvent, recordToReturn == null ? 0 : 1);
+        if (recordToReturn == null) {
+            throw new RuntimeException("Timed out. There were no elements in the queue.");
+        }
+        countDownLatchSwitch.enactStrategy(CountDownPosition.FINISHED);
+        return recordToReturn;
+    }
+
+    /**
+     * Retrieves the oldest record from the queue without blocking the calling thread. FIFO principle.
+     * If the queue is empty, the future takes a place in the same line as the blocked consumers
+     * and is completed by the producer that inserts its record. The dependent actions then run in that producer's
+     * thread, after the producer has released the lock.
+     * A future that is cancelled or completed by the caller before it receives a record leaves the line,
+     * so no record is lost with it.
+     *
+     * @return a future of the oldest record.
+     */
+    public CompletableFuture<Record> getAsync() {
+        lockForAddGet.lock();
+        try {
+            if (!queue.isEmpty()) {
+                return CompletableFuture.completedFuture(unlinkOldest());
+            }
+            if (overflowFailure != null) {
+                return CompletableFuture.failedFuture(overflowTierFailure());
+            }
+            PendingGet future = new PendingGet();
+            lineUp(future.waiter);
+            return future;
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Creates a publisher of the records taken from this queue.
+     * Every subscriber competes for the records with the other consumers of the queue
+     * and receives no more records than it has requested.
+     *
+     * @return a publisher that takes the records with getAsync().
+     */
+    public Flow.Publisher<Record> asPublisher() {
+        return new UniqueEventsPublisher(this);
+    }
+
+    /**
+     * Moves up to the given number of the oldest records into the collection without waiting. FIFO principle.
+     * All the records are taken under a single lock acquisition.
+     *
+     * @param collection the collection to put the records into.
+     * @param maxElements how many records to take at most.
+     * @return how many records were taken.
+     */
+    @Override
+    public int drainTo(Collection<? super Record> collection, int maxElements) {
+        if (collection == null) {
+            return 0;
+        }
+        lockForAddGet.lock();
+        try {
+            return drainOldestRecords(collection, maxElements);
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Retrieves up to the given number of the oldest records, waiting for at least one of them if the queue is empty.
+     * All the records are taken under a single lock acquisition.
+     *
+     * @param maxElements how many records to take at most.
+     * @param timeout how long to wait for the first record.
+     * @param timeUnit the unit of the timeout.
+     * @return the oldest records on the FIFO principle. Empty if the waiting time ran out or the thread was interrupted.
+     */
+    @Override
+    public List<Record> getBatch(int maxElements, long timeout, TimeUnit timeUnit) {
+        List<Record> batch = new ArrayList<>();
+        if (maxElements < 1) {
+            return batch;
+        }
+
+        Waiter waiter;
+        QueueEvents.ConsumerWait waitEvent;
+        lockForAddGet.lock();
+        try {
+            if (!queue.isEmpty()) {
+                drainOldestRecords(batch, maxElements);
+                return batch;
+            }
+            if (timeout <= 0) {
+                return batch;
+            }
+            checkOverflowTier();
+            waiter = waiterOfCurrentThread();
+            lineUp(waiter);
+            waitEvent = QueueEvents.beginConsumerWait();
+        } finally {
+            lockForAddGet.unlock();
+        }
+
+        try {
+            Record firstRecord = awaitHandOff(waiter, timeUnit.toNanos(timeout));
+            if (firstRecord == null) {
+                QueueEvents.endConsumerWait(waitEvent, 0);
+                return batch;
+            }
+            batch.add(firstRecord);
+        } catch (InterruptedException e) {
+            QueueEvents.endConsumerWait(waitEvent, 0);
+            return batch;
+        }
+        lockForAddGet.lock();
+        try {
+            drainOldestRecords(batch, maxElements - 1);
+        } finally {
+            lockForAddGet.unlock();
+        }
+        QueueEvents.endConsumerWait(waitEvent, batch.size());
+        return batch;
+    }
+
+    /**
+     * Retrieves the oldest record, waiting for one up to the given time.
+     * Unlike get(), it neither throws nor allocates anything when the time runs out.
+     *
+     * @param timeoutNanoseconds how long to wait. 0 or less means not waiting, Long.MAX_VALUE means waiting endlessly.
+     * @return the oldest record or null if none came within the time.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    Record poll(long timeoutNanoseconds) throws InterruptedException {
+        Waiter waiter;
+        QueueEvents.ConsumerWait waitEvent;
+        lockForAddGet.lock();
+        try {
+            if (!queue.isEmpty()) {
+                return unlinkOldest();
+            }
+            if (timeoutNanoseconds <= 0) {
                 return null;
             }
-            return recordToReturn;
+            checkOverflowTier();
+            waiter = waiterOfCurrentThread();
+            lineUp(waiter);
+            waitEvent = QueueEvents.beginConsumerWait();
+        } finally {
+            lockForAddGet.unlock();
+        }
+
+        Record record;
+        try {
+            record = awaitHandOff(waiter, timeoutNanoseconds);
+        } catch (InterruptedException e) {
+            QueueEvents.endConsumerWait(waitEvent, 0);
+            throw e;
         }
+        QueueEvents.endConsumerWait(waitEvent, record == null ? 0 : 1);
+        return record;
     }
 
     /**
-     * Indicates if queue contains anything.
+     * @return the oldest record or null if the queue is empty.
+     */
+    Record pollNow() {
+        lockForAddGet.lock();
+        try {
+            return queue.isEmpty() ? null : unlinkOldest();
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Inserts the record if it fits, without waiting and without evicting anything.
+     *
+     * @return true if the record was inserted or coalesced, false if it was a duplicate,
+     * or null if the queue had no room for it.
+     */
+    Boolean offerWithoutEviction(Record record) {
+        lockForAddGet.lock();
+        try {
+            Admission admission = tryAdmit(record, keyOf(record), true);
+            return admission == null ? null : admission == Admission.INSERTED || admission == Admission.COALESCED;
+        } finally {
+            unlockAndDeliver();
+        }
+    }
+
+    /**
+     * @return the oldest record without removing it or null if the queue is empty.
+     */
+    Record peek() {
+        lockForAddGet.lock();
+        try {
+            return queue.isEmpty() ? null : queue.values().iterator().next();
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * @return whether a record equal to the given one is queued. The spilled records are recognized by their fingerprints.
+     */
+    boolean contains(Record record) {
+        lockForAddGet.lock();
+        try {
+            return record.equals(queue.get(keyOf(record)))
+                    || (overflow != null && overflow.contains(RecordCodec.fingerprint(record)));
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * @return the records in the queue from the oldest, copied under the lock. The spilled records are not included.
+     */
+    List<Record> toList() {
+        lockForAddGet.lock();
+        try {
+            return new ArrayList<>(queue.values());
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    long getQueueLimit() {
+        return queueLimit;
+    }
+
+    boolean hasOverflowTier() {
+        return overflow != null;
+    }
+
+    /**
+     * Indicates if queue contains anything. Does not take the lock, see {@link #size()}.
      *
      * @return true if the queue is empty. False otherwise.
      */
     boolean isEmpty() {
-        synchronized (lockForAddGet) {
-            return queue.isEmpty();
-        }
+        return size() == 0;
     }
 
     long waitingThreadsCount() {
-        return waitingThreadsMap.size();
+        lockForAddGet.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Does not take the lock: the size is published by every change of the queue, before the lock is released,
+     * so a thread always sees its own changes and those of the threads that held the lock before.
+     *
+     * @return how many records are in the queue now, in memory and in the overflow tier.
+     */
+    long size() {
+        return publishedSize;
+    }
+
+    /**
+     * Publishes the size after a change. The caller must hold the lock.
+     * A release store is enough since only the lock holder writes the size, and it spares the full fence
+     * of a volatile write on every change.
+     */
+    private void publishSize() {
+        PUBLISHED_SIZE.setRelease(this, (long) queue.size() + (overflow == null ? 0 : overflow.size()));
+    }
+
+    private static Waiter waiterOfCurrentThread() {
+        Waiter waiter = WAITER_OF_THREAD.get();
+        waiter.record = null;
+        return waiter;
+    }
+
+    /**
+     * @return the current values of the metrics.
+     * @throws RuntimeException if the queue was built without metrics.
+     */
+    public QueueMetricsSnapshot metricsSnapshot() {
+        return new QueueMetricsSnapshot(metricsMXBean());
+    }
+
+    /**
+     * @return the live metrics, ready to be registered in an MBean server.
+     * @throws RuntimeException if the queue was built without metrics.
+     */
+    public QueueMetricsMXBean metricsMXBean() {
+        if (metrics == null) {
+            throw new RuntimeException("Metrics are not enabled for this queue.");
+        }
+        return metrics;
+    }
+
+    /**
+     * Forces and closes the write-ahead log if there is one, and stops the prefetcher and deletes the files
+     * of the overflow tier if there is one. The queue must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (overflow != null) {
+            lockForAddGet.lock();
+            try {
+                closed = true;
+                refillNeeded.signal();
+            } finally {
+                lockForAddGet.unlock();
+            }
+            try {
+                prefetcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lockForAddGet.lock();
+            try {
+                overflow.close();
+                publishSize();
+            } finally {
+                lockForAddGet.unlock();
+            }
+        }
+        if (writeAheadLog != null) {
+            lockForAddGet.lock();
+            try {
+                writeAheadLog.close();
+            } finally {
+                lockForAddGet.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the records of the queue in their order to the file, replacing it atomically.
+     * A queue built with {@link UniqueEventsQueueBuilder#restoreFromSnapshot(Path)} starts with these records.
+     * The lock is held only while the references to the records are copied,
+     * so the producers and consumers are not held up while the snapshot is encoded and written.
+     *
+     * @param file where to write the snapshot.
+     * @throws RuntimeException if the queue has an overflow tier, since the spilled records would be left out.
+     */
+    public void writeSnapshot(Path file) {
+        if (overflow != null) {
+            throw new RuntimeException("Snapshots are not supported with an overflow tier.");
+        }
+        Record[] records;
+        lockForAddGet.lock();
+        try {
+            records = queue.values().toArray(new Record[0]);
+        } finally {
+            lockForAddGet.unlock();
+        }
+        QueueSnapshot.write(records, file);
+    }
+
+    /**
+     * Puts the restored records back in their order.
+     * If the queue limit has been lowered since they were saved, the oldest of them are evicted.
+     */
+    private void restore(List<Record> records) {
+        lockForAddGet.lock();
+        try {
+            for (Record record : records) {
+                queue.putIfAbsent(keyOf(record), record);
+            }
+            while (queue.size() > queueLimit) {
+                recordEviction(unlinkOldestForEviction(), EvictionPolicy.Action.EVICT_OLDEST);
+            }
+            publishSize();
+        } finally {
+            unlockAndDeliver();
+        }
+    }
+
+    /**
+     * Parks the calling thread until a producer hands it a record or the time runs out.
+     *
+     * @param timeoutNanoseconds how long to wait. Long.MAX_VALUE means waiting endlessly.
+     * @return the record handed over or null if the waiting time ran out.
+     * @throws InterruptedException if the thread was interrupted before a record was handed over.
+     */
+    private Record awaitHandOff(Waiter waiter, long timeoutNanoseconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanoseconds;
+
+        while (waiter.record == null) {
+            if (overflowFailure != null) {
+                Record recordHandedMeanwhile = cancelWaiting(waiter);
+                if (recordHandedMeanwhile == null) {
+                    throw overflowTierFailure();
+                }
+                return recordHandedMeanwhile;
+            }
+            if (Thread.interrupted()) {
+                Record recordHandedMeanwhile = cancelWaiting(waiter);
+                if (recordHandedMeanwhile == null) {
+                    throw new InterruptedException();
+                }
+                // The record is already out of the queue, so it is returned rather than lost.
+                Thread.currentThread().interrupt();
+                return recordHandedMeanwhile;
+            }
+            if (timeoutNanoseconds == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long remainingNanoseconds = deadline - System.nanoTime();
+                if (remainingNanoseconds <= 0) {
+                    Record recordHandedMeanwhile = cancelWaiting(waiter);
+                    if (recordHandedMeanwhile == null && metrics != null) {
+                        metrics.recordConsumerTimeout();
+                    }
+                    return recordHandedMeanwhile;
+                }
+                LockSupport.parkNanos(this, remainingNanoseconds);
+            }
+            if (metrics != null && waiter.record == null) {
+                recordWakeUpWithoutRecord(timeoutNanoseconds, deadline);
+            }
+        }
+        if (metrics != null) {
+            metrics.recordWaitTime(System.nanoTime() - start);
+        }
+        return waiter.record;
+    }
+
+    /**
+     * Counts the wake-up as spurious unless it was caused by an interrupt or the end of the waiting time.
+     */
+    private void recordWakeUpWithoutRecord(long timeoutNanoseconds, long deadline) {
+        if (!Thread.currentThread().isInterrupted()
+                && (timeoutNanoseconds == Long.MAX_VALUE || deadline - System.nanoTime() > 0)) {
+            metrics.recordSpuriousWakeup();
+        }
+    }
+
+    /**
+     * Puts the consumer at the end of the line. The caller must hold the lock.
+     */
+    private void lineUp(Waiter waiter) {
+        waiters.addLast(waiter);
+        if (metrics != null) {
+            metrics.recordConsumerWait();
+            if (waiter.future != null) {
+                waiter.waitStart = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Takes the waiter out of the line unless a producer has already handed it a record.
+     *
+     * @return the record handed over before the cancellation or null.
+     */
+    private Record cancelWaiting(Waiter waiter) {
+        lockForAddGet.lock();
+        try {
+            if (waiter.record == null) {
+                waiters.remove(waiter);
+            }
+            return waiter.record;
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Inserts the record unless it is a duplicate and hands it to a waiting consumer if there is one.
+     * If the queue is full, applies the eviction policy or waits for room. The caller must hold the lock exactly once.
+     *
+     * @param key the identity key of the record.
+     * @param waitForRoom if true, waits when the queue is full instead of asking the eviction policy.
+     * @param timeoutNanoseconds how long to wait for room. Long.MAX_VALUE means waiting endlessly.
+     * @param events the events of the producer call or null. The lock hold is paused while waiting for room.
+     * @return what happened to the record. NO_ROOM if the waiting time ran out.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    private Admission admit(
+            Record record, Object key, boolean waitForRoom, long timeoutNanoseconds, QueueEvents.ProducerCall events)
+            throws InterruptedException {
+        long remainingNanoseconds = timeoutNanoseconds;
+        boolean waited = false;
+        Admission admission;
+        try {
+            while ((admission = tryAdmit(record, key, waitForRoom)) == null) {
+                if (remainingNanoseconds <= 0) {
+                    admission = Admission.NO_ROOM;
+                    break;
+                }
+                if (deliverCollectedBeforeWaiting()) {
+                    continue;
+                }
+                if (!waited && metrics != null) {
+                    metrics.recordProducerWait();
+                }
+                waited = true;
+                if (events != null) {
+                    events.pauseLockHold();
+                }
+                try {
+                    if (remainingNanoseconds == Long.MAX_VALUE) {
+                        notFull.await();
+                    } else {
+                        remainingNanoseconds = notFull.awaitNanos(remainingNanoseconds);
+                    }
+                } finally {
+                    if (events != null) {
+                        events.resumeLockHold();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            passOnFreedRoom();
+            throw e;
+        }
+        if (waited && admission != Admission.INSERTED) {
+            passOnFreedRoom();
+        }
+        return admission;
+    }
+
+    /**
+     * Makes one attempt to insert the record. The caller must hold the lock.
+     *
+     * @param key the identity key of the record.
+     * @param waitForRoom if true, a full queue means waiting instead of asking the eviction policy.
+     * @return what happened to the record or null if the producer has to wait for room.
+     */
+    private Admission tryAdmit(Record record, Object key, boolean waitForRoom) {
+        if (wasRetrievedRecently(record)) {
+            return skipDuplicate();
+        }
+        if (coalescing) {
+            Record replacedRecord = queue.replace(key, record);
+            if (replacedRecord != null) {
+                if (replacedRecord.equals(record)) {
+                    return skipDuplicate();
+                }
+                if (metrics != null) {
+                    metrics.recordCoalesced();
+                }
+                return Admission.COALESCED;
+            }
+        }
+        if (overflow != null && (overflow.size() > 0 || queue.size() >= queueLimit)) {
+            return spill(record);
+        }
+        if (queue.size() >= queueLimit) {
+            if (queue.containsKey(key)) {
+                return skipDuplicate();
+            }
+            EvictionPolicy.Action action =
+                    waitForRoom ? EvictionPolicy.Action.BLOCK_PRODUCER : evictionPolicy.onFullQueue(record);
+            if (action == EvictionPolicy.Action.BLOCK_PRODUCER) {
+                return null;
+            }
+            if (action == EvictionPolicy.Action.REJECT_INCOMING) {
+                if (metrics != null) {
+                    metrics.recordRejected();
+                }
+                recordEviction(record, action);
+                return Admission.SKIPPED;
+            }
+            if (metrics != null) {
+                metrics.recordEvicted();
+            }
+            recordEviction(unlinkOldestForEviction(), action);
+        }
+        if (queue.putIfAbsent(key, record) != null) {
+            return skipDuplicate();
+        }
+        publishSize();
+        if (writeAheadLog != null) {
+            logAdded(key, record);
+        }
+        if (metrics != null) {
+            metrics.recordAdded(queue.size());
+        }
+        handOffToWaiters();
+        return Admission.INSERTED;
+    }
+
+    /**
+     * Puts the record into the overflow tier unless it is a duplicate in either tier. The caller must hold the lock.
+     */
+    private Admission spill(Record record) {
+        checkOverflowTier();
+        long fingerprint = RecordCodec.fingerprint(record);
+        if (queue.containsKey(keyOf(record)) || overflow.contains(fingerprint)) {
+            return skipDuplicate();
+        }
+        overflow.append(record, fingerprint);
+        publishSize();
+        if (metrics != null) {
+            metrics.recordAdded(queue.size() + overflow.size());
+        }
+        return Admission.INSERTED;
+    }
+
+    /**
+     * Moves the spilled records back into memory, a chunk at a time, whenever the memory tier is half empty.
+     * Runs in the prefetcher thread until the queue is closed or the spilled records cannot be read back.
+     */
+    private void prefetchOverflow() {
+        try {
+            while (true) {
+                OverflowTier.Chunk chunk;
+                lockForAddGet.lock();
+                try {
+                    while (!closed && (overflow.size() == 0 || queue.size() > queueLimit / 2)) {
+                        refillNeeded.await();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    chunk = overflow.nextChunk((int) Math.min(Integer.MAX_VALUE, queueLimit - queue.size()));
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lockForAddGet.unlock();
+                }
+
+                chunk.load();
+                lockForAddGet.lock();
+                try {
+                    for (Record record : chunk.records()) {
+                        queue.put(keyOf(record), record);
+                    }
+                    overflow.commit(chunk);
+                    publishSize();
+                    handOffToWaiters();
+                } finally {
+                    unlockAndDeliver();
+                }
+            }
+        } catch (RuntimeException e) {
+            failOverflowTier(e);
+        }
+    }
+
+    /**
+     * Keeps the failure of the prefetcher and fails the consumers waiting for the spilled records.
+     */
+    private void failOverflowTier(RuntimeException failure) {
+        List<Waiter> futuresToFail = new ArrayList<>();
+        lockForAddGet.lock();
+        try {
+            overflowFailure = failure;
+            for (Waiter waiter : waiters) {
+                if (waiter.future == null) {
+                    LockSupport.unpark(waiter.thread);
+                } else {
+                    futuresToFail.add(waiter);
+                }
+            }
+            waiters.clear();
+        } finally {
+            lockForAddGet.unlock();
+        }
+        for (Waiter waiter : futuresToFail) {
+            waiter.future.fail(overflowTierFailure());
+        }
+    }
+
+    /**
+     * Throws if the prefetcher has failed, since the spilled records cannot come back into memory then.
+     */
+    private void checkOverflowTier() {
+        if (overflowFailure != null) {
+            throw overflowTierFailure();
+        }
+    }
+
+    private RuntimeException overflowTierFailure() {
+        return new RuntimeException("The records spilled to the overflow tier cannot be read back.", overflowFailure);
+    }
+
+    /**
+     * Wakes up the prefetcher if the memory tier is half empty and there are spilled records.
+     * The caller must hold the lock.
+     */
+    private void requestRefillIfNeeded() {
+        if (overflow != null && overflow.size() > 0 && queue.size() <= queueLimit / 2) {
+            refillNeeded.signal();
+        }
+    }
+
+    /**
+     * Logs the inserted record, taking it back out of the queue if the log cannot be written.
+     * The caller must hold the lock.
+     */
+    private void logAdded(Object key, Record record) {
+        try {
+            writeAheadLog.appendAdded(record);
+        } catch (RuntimeException e) {
+            queue.remove(key);
+            publishSize();
+            throw e;
+        }
+    }
+
+    private Admission skipDuplicate() {
+        duplicateCount++;
+        if (metrics != null) {
+            metrics.recordDuplicate();
+        }
+        return Admission.SKIPPED;
     }
 
     /**
-     * Trims the queue to the specified limit.
+     * Delivers what this producer has collected so far before it waits,
+     * since an asynchronous consumer may need its record to take the next one.
+     * The caller must hold the lock exactly once.
      *
-     * @param howManyTheoreticallyAdded adds that many items to the current queue size. Works as a proactive trim before
-     * the queue exceeds the limit.
+     * @return true if anything was delivered. The lock was released meanwhile, so the queue has to be checked again.
+     */
+    private boolean deliverCollectedBeforeWaiting() {
+        if (handedOverFutures == null && evictions == null) {
+            return false;
+        }
+        try {
+            unlockAndDeliver();
+        } finally {
+            lockForAddGet.lock();
+        }
+        return true;
+    }
+
+    /**
+     * Wakes up the next waiting producer if a producer leaves without taking the room it was woken up for.
+     * The caller must hold the lock.
+     */
+    private void passOnFreedRoom() {
+        if (queue.size() < queueLimit) {
+            notFull.signal();
+        }
+    }
+
+    /**
+     * Ends the events of a producer call while the lock is still held, releases the lock as
+     * {@link #unlockAndDeliver()} does and then commits the events.
      */
-    private void trimQueueToGivenLimit(long howManyTheoreticallyAdded) {
-        synchronized (lockForAddGet) {
-            long queueSizeAfterAddition = queue.size() + howManyTheoreticallyAdded;
+    private void unlockAndCommit(QueueEvents.ProducerCall events) {
+        if (events == null) {
+            unlockAndDeliver();
+            return;
+        }
+        events.end(duplicateCount, evictionCount);
+        unlockAndDeliver();
+        events.commit();
+    }
 
-            if (queueSizeAfterAddition > queueLimit) {
+    /**
+     * Releases the lock, then waits for the write-ahead log if needed, completes the handed over futures
+     * and notifies the eviction listener.
+     */
+    private void unlockAndDeliver() {
+        List<Waiter> futuresToComplete = handedOverFutures;
+        List<Eviction> evictionsToReport = evictions;
+        handedOverFutures = null;
+        evictions = null;
+        long positionToSync =
+                writeAheadLog != null && writeAheadLog.isSyncedOnEveryWrite() ? writeAheadLog.appendedPosition() : -1;
+        lockForAddGet.unlock();
 
-                long numberOfItemsToRemove = queueSizeAfterAddition - queueLimit;
-                Iterator<Record> iterator = queue.iterator();
+        if (positionToSync >= 0) {
+            writeAheadLog.awaitDurable(positionToSync);
+        }
 
-                for (int i = 0; iterator.hasNext() && i < numberOfItemsToRemove; i++) {
-                    iterator.next();
-                    iterator.remove();
+        if (futuresToComplete != null) {
+            for (Waiter waiter : futuresToComplete) {
+                waiter.future.deliver(waiter.record);
+            }
+        }
+        if (evictionsToReport != null) {
+            for (Eviction eviction : evictionsToReport) {
+                evictionListener.onEviction(eviction.record, eviction.action);
+            }
+        }
+    }
+
+    /**
+     * Keeps the eviction for the listener if there is one. The caller must hold the lock.
+     */
+    private void recordEviction(Record record, EvictionPolicy.Action action) {
+        if (evictionListener != null) {
+            if (evictions == null) {
+                evictions = new ArrayList<>();
+            }
+            evictions.add(new Eviction(record, action));
+        }
+    }
+
+    /**
+     * Hands the oldest records to the waiters in their arrival order and wakes up exactly those waiters.
+     * The asynchronous waiters are kept to be completed after the lock is released. The caller must hold the lock.
+     */
+    private void handOffToWaiters() {
+        while (!waiters.isEmpty() && !queue.isEmpty()) {
+            Waiter waiter = waiters.pollFirst();
+            waiter.record = unlinkOldest();
+            if (waiter.future == null) {
+                LockSupport.unpark(waiter.thread);
+            } else {
+                if (handedOverFutures == null) {
+                    handedOverFutures = new ArrayList<>();
+                }
+                handedOverFutures.add(waiter);
+                if (metrics != null) {
+                    metrics.recordWaitTime(System.nanoTime() - waiter.waitStart);
                 }
             }
-            elementsInsertedAfterLastTrim = 0;
+        }
+    }
+
+    /**
+     * Takes the asynchronous waiter out of the line unless a producer has already handed it a record.
+     *
+     * @return true if the waiter left the line, false if its future is about to be completed with a record.
+     */
+    private boolean withdraw(Waiter waiter) {
+        lockForAddGet.lock();
+        try {
+            return waiter.record == null && waiters.remove(waiter);
+        } finally {
+            lockForAddGet.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest record for a consumer. The caller must hold the lock and make sure the queue is not empty.
+     */
+    private Record unlinkOldest() {
+        Iterator<Record> iterator = queue.values().iterator();
+        Record recordToReturn = iterator.next();
+        iterator.remove();
+        publishSize();
+        rememberRetrieved(recordToReturn);
+        if (writeAheadLog != null) {
+            writeAheadLog.appendRemoved(true);
+        }
+        notFull.signal();
+        requestRefillIfNeeded();
+        if (metrics != null) {
+            metrics.recordRetrieved(1);
+        }
+        return recordToReturn;
+    }
+
+    /**
+     * Removes the oldest record to make room for a new one. The caller must hold the lock and make sure the queue
+     * is not empty.
+     */
+    private Record unlinkOldestForEviction() {
+        Iterator<Record> iterator = queue.values().iterator();
+        Record evictedRecord = iterator.next();
+        iterator.remove();
+        publishSize();
+        evictionCount++;
+        if (writeAheadLog != null) {
+            writeAheadLog.appendRemoved(false);
+        }
+        return evictedRecord;
+    }
+
+    /**
+     * Moves the oldest records into the collection with a single pass of one iterator.
+     * The caller must hold the lock.
+     */
+    private int drainOldestRecords(Collection<? super Record> collection, int maxElements) {
+        int numberOfItemsDrained = 0;
+        Iterator<Record> iterator = queue.values().iterator();
+
+        while (numberOfItemsDrained < maxElements && iterator.hasNext()) {
+            Record record = iterator.next();
+            iterator.remove();
+            rememberRetrieved(record);
+            if (writeAheadLog != null) {
+                writeAheadLog.appendRemoved(true);
+            }
+            collection.add(record);
+            numberOfItemsDrained++;
+            notFull.signal();
+        }
+        publishSize();
+        requestRefillIfNeeded();
+        if (metrics != null) {
+            metrics.recordRetrieved(numberOfItemsDrained);
+        }
+        return numberOfItemsDrained;
+    }
+
+    private Object keyOf(Record record) {
+        return identityKey == null ? record : identityKey.apply(record);
+    }
+
+    /**
+     * Indicates if the record left the queue within the deduplication window. The caller must hold the lock.
+     */
+    private boolean wasRetrievedRecently(Record record) {
+        return dedupWindow != null && dedupWindow.contains(RecordCodec.fingerprint(record));
+    }
+
+    /**
+     * Puts a retrieved record into the deduplication window. The evicted records are not remembered
+     * because they were never processed. The caller must hold the lock.
+     */
+    private void rememberRetrieved(Record record) {
+        if (dedupWindow != null) {
+            dedupWindow.remember(RecordCodec.fingerprint(record));
+        }
+    }
+
+    /**
+     * A consumer parked until a producer hands it a record or a future completed once a producer does so.
+     */
+    private static final class Waiter {
+        private final Thread thread;
+        private final PendingGet future;
+        private volatile Record record;
+        private long waitStart;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+            this.future = null;
+        }
+
+        Waiter(PendingGet future) {
+            this.thread = null;
+            this.future = future;
+        }
+    }
+
+    /**
+     * What happened to a record offered to the queue.
+     */
+    private enum Admission {
+        INSERTED,
+        COALESCED,
+        SKIPPED,
+        NO_ROOM
+    }
+
+    /**
+     * A record left out because of the limit, kept until the listener can be called outside the lock.
+     */
+    private static final class Eviction {
+        private final Record record;
+        private final EvictionPolicy.Action action;
+
+        Eviction(Record record, EvictionPolicy.Action action) {
+            this.record = record;
+            this.action = action;
+        }
+    }
+
+    /**
+     * The future of an asynchronous consumer in the line.
+     * Any completion that does not come from a producer first withdraws the waiter from the line.
+     * Once a producer has handed over a record, such a completion fails, so the record always reaches the caller.
+     */
+    private final class PendingGet extends CompletableFuture<Record> {
+        private final Waiter waiter = new Waiter(this);
+
+        @Override
+        public boolean complete(Record value) {
+            return withdraw(waiter) && super.complete(value);
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            return withdraw(waiter) && super.completeExceptionally(ex);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return withdraw(waiter) && super.cancel(mayInterruptIfRunning);
+        }
+
+        private void deliver(Record record) {
+            super.complete(record);
+        }
+
+        private void fail(Throwable failure) {
+            super.completeExceptionally(failure);
         }
     }
 }
@@ -0,0 +1,458 @@
+package org.unique_events_queue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds a queue on the chosen engine.
+ * By default, it builds the same queue as {@link UniqueEventsQueue#UniqueEventsQueue()}.
+ */
+public final class UniqueEventsQueueBuilder {
+    private QueueEngine engine = QueueEngine.MONITOR;
+    private long queueLimit = UniqueEventsQueue.DEFAULT_QUEUE_LIMIT;
+    private int shardCount = ShardedUniqueEventsQueue.DEFAULT_SHARD_COUNT;
+    private long offHeapCapacityInBytes = OffHeapUniqueEventsQueue.DEFAULT_CAPACITY_IN_BYTES;
+    private Path sharedMemoryFile;
+    private long dedupWindowNanos;
+    private long dedupWindowMaxRecords;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.DROP_OLDEST;
+    private EvictionListener evictionListener;
+    private boolean metricsEnabled;
+    private boolean fair;
+    private Path writeAheadLogDirectory;
+    private WalSyncPolicy walSyncPolicy = WalSyncPolicy.INTERVAL;
+    private int walSegmentSize = WriteAheadLog.DEFAULT_SEGMENT_SIZE;
+    private Path snapshotFile;
+    private Path overflowDirectory;
+    private int overflowSegmentSize = OverflowTier.DEFAULT_SEGMENT_SIZE;
+    private int slotCount = KeyAffinityUniqueEventsQueue.DEFAULT_SLOT_COUNT;
+    private Function<String, ?> routingKey = id -> id;
+    private boolean workStealing;
+    private Function<Record, ?> identityKey;
+    private boolean coalescing;
+    private int parallelAddAllThreshold = UniqueEventsQueue.DEFAULT_PARALLEL_ADD_ALL_THRESHOLD;
+
+    /**
+     * @param engine the engine to build the queue on.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder engine(QueueEngine engine) {
+        if (engine == null) {
+            throw new RuntimeException("Queue engine cannot be null.");
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * @param queueLimit how many elements at most there may be in the queue.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder queueLimit(long queueLimit) {
+        this.queueLimit = queueLimit;
+        return this;
+    }
+
+    /**
+     * @param evictionPolicy what to do with a new record when the queue is full.
+     * Only {@link EvictionPolicy#DROP_OLDEST} is supported by the engines other than the monitor one.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder evictionPolicy(EvictionPolicy evictionPolicy) {
+        if (evictionPolicy == null) {
+            throw new RuntimeException("Eviction policy cannot be null.");
+        }
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
+    /**
+     * @param evictionListener receives the records left out because of the limit. Supported only by the monitor engine.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder evictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+        return this;
+    }
+
+    /**
+     * @param shardCount how many shards the sharded engine splits the queue into. Ignored by the other engines.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder shardCount(int shardCount) {
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * @param offHeapCapacityInBytes how many bytes of direct memory the off-heap engine, or of the shared file
+     * the shared memory engine, may take for the records. The off-heap engine splits it into slabs of up to 16 MiB,
+     * and both engines reject a record that does not fit into one slab. Ignored by the other engines.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder offHeapCapacityInBytes(long offHeapCapacityInBytes) {
+        this.offHeapCapacityInBytes = offHeapCapacityInBytes;
+        return this;
+    }
+
+    /**
+     * @param sharedMemoryFile the file the shared memory engine maps. The queues of all the processes
+     * that map the same file share their records. Required by the shared memory engine and ignored by the others.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder sharedMemoryFile(Path sharedMemoryFile) {
+        this.sharedMemoryFile = sharedMemoryFile;
+        return this;
+    }
+
+    /**
+     * @param slotCount how many consumers the key affinity engine routes the records to. Ignored by the other engines.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder slotCount(int slotCount) {
+        this.slotCount = slotCount;
+        return this;
+    }
+
+    /**
+     * @param routingKey extracts the key that the key affinity engine routes a record by from its id,
+     * for example the client part of it. By default, the whole id is the key. Ignored by the other engines.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder routingKey(Function<String, ?> routingKey) {
+        if (routingKey == null) {
+            throw new RuntimeException("Routing key cannot be null.");
+        }
+        this.routingKey = routingKey;
+        return this;
+    }
+
+    /**
+     * @param workStealing whether a consumer of the key affinity engine with an empty slot may take the records
+     * of the other slots. Ignored by the other engines.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder workStealing(boolean workStealing) {
+        this.workStealing = workStealing;
+        return this;
+    }
+
+    /**
+     * Makes the queue reject the records that were retrieved within the given time, not only the queued ones.
+     * Unless {@link #dedupWindowCount(long)} is set too, at most a default number of identities is remembered.
+     * Supported only by the monitor engine.
+     *
+     * @param duration how long to remember a retrieved record.
+     * @param timeUnit the unit of the duration.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder dedupWindow(long duration, TimeUnit timeUnit) {
+        this.dedupWindowNanos = timeUnit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Makes the queue reject the records that are among the given number of the most recently retrieved ones.
+     * Can be combined with {@link #dedupWindow(long, TimeUnit)}. Supported only by the monitor engine.
+     *
+     * @param maxRecords how many retrieved records to remember at most.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder dedupWindowCount(long maxRecords) {
+        this.dedupWindowMaxRecords = maxRecords;
+        return this;
+    }
+
+    /**
+     * @param metricsEnabled whether to count the operations and the waiting times of the queue.
+     * Without metrics, the queue keeps no counters at all. Supported only by the monitor engine.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder metrics(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    /**
+     * Makes the producers and consumers take the lock of the queue strictly in their arrival order.
+     * The waiting consumers are always handed the records in their arrival order, but by default a thread that
+     * has just arrived, typically a consumer coming back for its next record, may take the lock ahead of those
+     * parked on it, so under load some consumers are served repeatedly while others wait.
+     * The fair mode evens out the records per consumer at the cost of a context switch on every hand-over of the lock.
+     * It is not recommended for throughput or tail latency: in FairnessBenchmark it cut the throughput about
+     * 13 times and did not improve the p99.9 of get(). Use it only when an even share per consumer matters more.
+     * Supported only by the monitor engine.
+     *
+     * @param fair whether to serve the threads in their arrival order.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder fair(boolean fair) {
+        this.fair = fair;
+        return this;
+    }
+
+    /**
+     * Makes the queue log its contents to the directory and restore them from there when it is built again.
+     * The directory must not be used by another queue at the same time. Supported only by the monitor engine.
+     *
+     * @param directory where to keep the segment files of the log.
+     * @param syncPolicy how often to force the log to the storage device.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder writeAheadLog(Path directory, WalSyncPolicy syncPolicy) {
+        if (directory == null || syncPolicy == null) {
+            throw new RuntimeException("Write-ahead log directory and sync policy cannot be null.");
+        }
+        this.writeAheadLogDirectory = directory;
+        this.walSyncPolicy = syncPolicy;
+        return this;
+    }
+
+    /**
+     * @param walSegmentSize the size of one segment file of the write-ahead log. Every segment is mapped whole,
+     * and the largest record must fit into one. A fully consumed segment is deleted.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder walSegmentSize(int walSegmentSize) {
+        this.walSegmentSize = walSegmentSize;
+        return this;
+    }
+
+    /**
+     * Makes the queue treat the records with equal keys as duplicates, for example the records with equal ids.
+     * By default, the whole record is the key. The deduplication window still compares whole records.
+     * Supported only by the monitor engine.
+     *
+     * @param identityKey extracts the key from a record. Equal records must give equal keys.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder identityKey(Function<Record, ?> identityKey) {
+        if (identityKey == null) {
+            throw new RuntimeException("Identity key cannot be null.");
+        }
+        this.identityKey = identityKey;
+        return this;
+    }
+
+    /**
+     * Makes a new record replace the queued record with the same identity key instead of being skipped.
+     * The replacement keeps the position of the queued record, so the queue holds only the latest record of every key.
+     * Useful together with {@link #identityKey(Function)}. Supported only by the monitor engine,
+     * and cannot be combined with a write-ahead log, which logs only insertions and removals.
+     *
+     * @param coalescing whether the latest record of a key wins.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder coalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+        return this;
+    }
+
+    /**
+     * Makes the monitor engine deduplicate the lists of at least the given size on the common fork/join pool
+     * before it takes the lock in {@link UniqueEventsQueue#addAll(List)}. The locked section then only admits
+     * the distinct records, so consumers are locked out for a shorter time, at the cost of more work in total.
+     * The identity key extractor is called from several threads at once on this path.
+     * By default, the threshold is 16384 records if the common pool has more than one worker, and the path is disabled
+     * otherwise. Integer.MAX_VALUE disables it. Ignored by the other engines.
+     *
+     * @param parallelAddAllThreshold the smallest list that is deduplicated in parallel.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder parallelAddAllThreshold(int parallelAddAllThreshold) {
+        this.parallelAddAllThreshold = parallelAddAllThreshold;
+        return this;
+    }
+
+    /**
+     * Makes the queue keep the records that do not fit into the queue limit in segment files on local disk
+     * instead of evicting them. The limit then bounds only the records in memory. The spilled records are read back
+     * in their order as the consumers drain the memory, and the duplicates are recognized in both tiers.
+     * The files only extend the memory of a running queue: the directory is emptied when the queue is built.
+     * Supported only by the monitor engine, and cannot be combined with eviction policies or listeners,
+     * identity keys, coalescing, a write-ahead log or snapshots, neither restored nor written.
+     *
+     * @param directory where to keep the segment files. It must not be used by another queue at the same time.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder overflowToDisk(Path directory) {
+        if (directory == null) {
+            throw new RuntimeException("Overflow directory cannot be null.");
+        }
+        this.overflowDirectory = directory;
+        return this;
+    }
+
+    /**
+     * @param overflowSegmentSize how many bytes a segment file of the overflow tier takes before the next one is started.
+     * A segment is deleted once it has been read back.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder overflowSegmentSize(int overflowSegmentSize) {
+        this.overflowSegmentSize = overflowSegmentSize;
+        return this;
+    }
+
+    /**
+     * Makes the queue start with the records of a snapshot written by {@link UniqueEventsQueue#writeSnapshot(Path)}.
+     * Cannot be combined with a write-ahead log, which restores the queue by itself.
+     * Supported only by the monitor engine.
+     *
+     * @param snapshotFile the snapshot to read when the queue is built.
+     * @return this builder.
+     */
+    public UniqueEventsQueueBuilder restoreFromSnapshot(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    public IUniqueEventsQueue build() {
+        if (engine != QueueEngine.MONITOR && isDedupWindowEnabled()) {
+            throw new RuntimeException("Deduplication window is supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR
+                && (evictionPolicy != EvictionPolicy.DROP_OLDEST || evictionListener != null)) {
+            throw new RuntimeException("Eviction policies and listeners are supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR && metricsEnabled) {
+            throw new RuntimeException("Metrics are supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR && fair) {
+            throw new RuntimeException("Fair mode is supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR && writeAheadLogDirectory != null) {
+            throw new RuntimeException("Write-ahead log is supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR && snapshotFile != null) {
+            throw new RuntimeException("Snapshots are supported only by the monitor engine.");
+        }
+        if (engine != QueueEngine.MONITOR && (identityKey != null || coalescing)) {
+            throw new RuntimeException("Identity keys and coalescing are supported only by the monitor engine.");
+        }
+        if (engine == QueueEngine.SHARED_MEMORY && sharedMemoryFile == null) {
+            throw new RuntimeException("Shared memory engine needs a file to map.");
+        }
+        if (overflowDirectory != null
+                && (engine != QueueEngine.MONITOR
+                        || evictionPolicy != EvictionPolicy.DROP_OLDEST
+                        || evictionListener != null
+                        || identityKey != null
+                        || coalescing
+                        || writeAheadLogDirectory != null
+                        || snapshotFile != null)) {
+            throw new RuntimeException(
+                    "Overflow tier is supported only by the monitor engine without eviction policies, "
+                            + "identity keys, coalescing, write-ahead log and snapshots.");
+        }
+        if (writeAheadLogDirectory != null && coalescing) {
+            throw new RuntimeException("Coalescing cannot be combined with a write-ahead log.");
+        }
+        if (writeAheadLogDirectory != null && snapshotFile != null) {
+            throw new RuntimeException("A queue cannot be restored from both a snapshot and a write-ahead log.");
+        }
+        switch (engine) {
+            case LOCK_FREE:
+                return new LockFreeUniqueEventsQueue(queueLimit);
+            case SHARDED:
+                return new ShardedUniqueEventsQueue(queueLimit, shardCount);
+            case OFF_HEAP:
+                return new OffHeapUniqueEventsQueue(queueLimit, offHeapCapacityInBytes);
+            case KEY_AFFINITY:
+                return new KeyAffinityUniqueEventsQueue(queueLimit, slotCount, routingKey, workStealing);
+            case SHARED_MEMORY:
+                return new SharedMemoryUniqueEventsQueue(sharedMemoryFile, queueLimit, offHeapCapacityInBytes);
+            case MONITOR:
+            default:
+                return new UniqueEventsQueue(this);
+        }
+    }
+
+    /**
+     * Builds a monitor engine behind the {@link java.util.concurrent.BlockingQueue} interface.
+     *
+     * @return the new queue.
+     */
+    public BlockingUniqueEventsQueue buildBlockingQueue() {
+        if (engine != QueueEngine.MONITOR) {
+            throw new RuntimeException("Blocking queue interface is supported only by the monitor engine.");
+        }
+        return new BlockingUniqueEventsQueue((UniqueEventsQueue) build());
+    }
+
+    long getQueueLimit() {
+        return queueLimit;
+    }
+
+    EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    EvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * @return the identity key extractor or null if the whole record is the key.
+     */
+    Function<Record, ?> getIdentityKey() {
+        return identityKey;
+    }
+
+    boolean isCoalescing() {
+        return coalescing;
+    }
+
+    int getParallelAddAllThreshold() {
+        return parallelAddAllThreshold;
+    }
+
+    Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * @return a new write-ahead log or null if it was not configured.
+     */
+    WriteAheadLog createWriteAheadLog() {
+        if (writeAheadLogDirectory == null) {
+            return null;
+        }
+        return new WriteAheadLog(writeAheadLogDirectory, walSyncPolicy, walSegmentSize);
+    }
+
+    /**
+     * @return a new overflow tier or null if it was not configured.
+     */
+    OverflowTier createOverflowTier() {
+        if (overflowDirectory == null) {
+            return null;
+        }
+        return new OverflowTier(overflowDirectory, overflowSegmentSize);
+    }
+
+    /**
+     * @return a new deduplication window or null if it was not configured.
+     */
+    DedupWindow createDedupWindow() {
+        if (!isDedupWindowEnabled()) {
+            return null;
+        }
+        return new DedupWindow(
+                dedupWindowNanos > 0 ? dedupWindowNanos : Long.MAX_VALUE,
+                dedupWindowMaxRecords > 0 ? dedupWindowMaxRecords : DedupWindow.DEFAULT_MAX_REMEMBERED_RECORDS);
+    }
+
+    private boolean isDedupWindowEnabled() {
+        return dedupWindowNanos > 0 || dedupWindowMaxRecords > 0;
+    }
+}
@@ -0,0 +1,23 @@
+package org.unique_events_queue;
+
+/**
+ * How often the write-ahead log forces its segments to the storage device.
+ * Whatever the policy is, the log survives a crash of the JVM, because the mapped pages stay in the page cache
+ * of the operating system. The policy decides how much survives a crash of the operating system or a power loss.
+ */
+public enum WalSyncPolicy {
+    /**
+     * Leaves the writing back to the operating system. The fastest, but a power loss may take any recent records.
+     */
+    NEVER,
+    /**
+     * Forces the log in the background every {@link WriteAheadLog#SYNC_INTERVAL_MILLIS} milliseconds.
+     * A power loss may take the records of the last interval.
+     */
+    INTERVAL,
+    /**
+     * Makes every producer wait until its records are forced. The producers that arrive while a force is running
+     * share the next one, so the cost is paid once per group of concurrent producers rather than once per record.
+     */
+    EVERY_WRITE
+}
@@ -0,0 +1,389 @@
+package org.unique_events_queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead log of the queue contents in memory-mapped segment files.
+ * The appends are not thread-safe: the queue makes them under its lock, in the same order as it changes itself.
+ * Only {@link #awaitDurable(long)} and the background sync may run concurrently with them.
+ *
+ * Every segment starts with a magic number and a version, followed by the entries:
+ * the body length (int), the CRC32 of the body (int) and the body itself, which is
+ * the entry type (byte), the sequence number of the record (long) and, for an addition, the encoded record,
+ * see {@link RecordCodec}. A zero body length marks the end of the entries; the new segments are zero-filled.
+ *
+ * Every added record gets the next sequence number. The queue only ever removes its oldest record,
+ * so the live records always have the consecutive sequence numbers from headSequence to nextSequence - 1,
+ * and a removal marker only needs the sequence number of the removed record.
+ * For the same reason, the oldest segment can be deleted as soon as all of its records have been removed:
+ * the markers in the newer segments that refer to its records are then skipped during replay.
+ *
+ * The consumption markers are never waited for, so the records retrieved right before a crash of the operating
+ * system may be delivered once more after the restart.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    static final long SYNC_INTERVAL_MILLIS = 100;
+
+    private static final int MAGIC = 0x55455157;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int ENTRY_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BODY_HEADER_SIZE = 1 + Long.BYTES;
+    private static final byte ADDED = 1;
+    private static final byte RETRIEVED = 2;
+    private static final byte EVICTED = 3;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final WalSyncPolicy syncPolicy;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ScheduledExecutorService syncExecutor;
+
+    private Segment currentSegment;
+    private long headSequence;
+    private long nextSequence;
+    /*
+     * The positions are global: the segment index times the segment size plus the offset in the segment.
+     */
+    private volatile long appendedPosition;
+    private volatile long syncedPosition;
+
+    /**
+     * Opens the log in the directory, creating both if needed. The existing contents are read by {@link #replay}.
+     *
+     * @param segmentSize the size of one segment file. The largest entry must fit into it.
+     */
+    WriteAheadLog(Path directory, WalSyncPolicy syncPolicy, int segmentSize) {
+        if (segmentSize < SEGMENT_HEADER_SIZE + ENTRY_HEADER_SIZE + BODY_HEADER_SIZE + RecordCodec.FIXED_SIZE) {
+            throw new RuntimeException("Write-ahead log segment size is too small.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncPolicy = syncPolicy;
+        try {
+            Files.createDirectories(directory);
+            for (long index : listSegmentIndexes()) {
+                segments.add(Segment.open(segmentPath(index), index, segmentSize));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open the write-ahead log in " + directory + ".", e);
+        }
+
+        if (syncPolicy == WalSyncPolicy.INTERVAL) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-ahead-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(
+                    () -> awaitDurable(appendedPosition),
+                    SYNC_INTERVAL_MILLIS,
+                    SYNC_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncExecutor = null;
+        }
+    }
+
+    /**
+     * Reads all the segments and prepares the log for appending after the last valid entry.
+     * Must be called once, before any append.
+     *
+     * @param dedupWindow receives the fingerprints of the retrieved records that are still in the log. May be null.
+     * @return the live records in their queue order.
+     */
+    List<Record> replay(DedupWindow dedupWindow) {
+        ArrayDeque<Record> liveRecords = new ArrayDeque<>();
+        long firstLiveSequence = 0;
+        long lastSequence = -1;
+
+        for (Segment segment : segments) {
+            ByteBuffer buffer = segment.buffer;
+            int position = SEGMENT_HEADER_SIZE;
+            while (position + ENTRY_HEADER_SIZE + BODY_HEADER_SIZE <= segmentSize) {
+                int bodyLength = buffer.getInt(position);
+                int bodyStart = position + ENTRY_HEADER_SIZE;
+                if (bodyLength < BODY_HEADER_SIZE
+                        || bodyLength > segmentSize - bodyStart
+                        || crcOf(segment, bodyStart, bodyLength) != buffer.getInt(position + Integer.BYTES)) {
+                    break;
+                }
+                byte type = buffer.get(bodyStart);
+                long sequence = buffer.getLong(bodyStart + 1);
+                if (type == ADDED) {
+                    if (liveRecords.isEmpty()) {
+                        firstLiveSequence = sequence;
+                    }
+                    liveRecords.addLast(RecordCodec.decode(buffer, bodyStart + BODY_HEADER_SIZE));
+                    segment.lastAddedSequence = sequence;
+                    lastSequence = sequence;
+                } else {
+                    lastSequence = Math.max(lastSequence, sequence);
+                    while (!liveRecords.isEmpty() && firstLiveSequence <= sequence) {
+                        Record removedRecord = liveRecords.pollFirst();
+                        if (type == RETRIEVED && dedupWindow != null && firstLiveSequence == sequence) {
+                            dedupWindow.remember(RecordCodec.fingerprint(removedRecord));
+                        }
+                        firstLiveSequence++;
+                    }
+                }
+                position = bodyStart + bodyLength;
+            }
+            segment.writePosition = position;
+            // Whatever follows the last valid entry is a torn write. It is cleared so it is never mistaken for data.
+            for (int i = position; i < Math.min(segmentSize, position + ENTRY_HEADER_SIZE); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        nextSequence = lastSequence + 1;
+        headSequence = nextSequence - liveRecords.size();
+        if (segments.isEmpty()) {
+            rollSegment(0);
+        } else {
+            currentSegment = segments.get(segments.size() - 1);
+        }
+        appendedPosition = globalPosition(currentSegment, currentSegment.writePosition);
+        syncedPosition = appendedPosition;
+        deleteConsumedSegments();
+        return new ArrayList<>(liveRecords);
+    }
+
+    /**
+     * Logs a record inserted at the tail of the queue.
+     */
+    void appendAdded(Record record) {
+        int payloadSize = RecordCodec.encodedSize(record);
+        int bodyStart = reserve(payloadSize);
+        RecordCodec.encode(record, currentSegment.buffer, bodyStart + BODY_HEADER_SIZE);
+        currentSegment.lastAddedSequence = nextSequence;
+        finishEntry(ADDED, nextSequence++, bodyStart, payloadSize);
+    }
+
+    /**
+     * Logs the removal of the oldest record of the queue.
+     *
+     * @param retrieved true if a consumer took the record, false if it was evicted.
+     */
+    void appendRemoved(boolean retrieved) {
+        int bodyStart = reserve(0);
+        finishEntry(retrieved ? RETRIEVED : EVICTED, headSequence++, bodyStart, 0);
+        if (segments.size() > 1 && segments.get(0).lastAddedSequence < headSequence) {
+            deleteConsumedSegments();
+        }
+    }
+
+    /**
+     * @return the position up to which the log has been written. Pass it to {@link #awaitDurable(long)}.
+     */
+    long appendedPosition() {
+        return appendedPosition;
+    }
+
+    /**
+     * Forces the log up to the given position unless the policy is {@link WalSyncPolicy#NEVER}.
+     * Thread-safe. A caller that finds another force running waits for it, and then finds its own position
+     * already covered if the other force started after its append.
+     */
+    void awaitDurable(long position) {
+        if (syncPolicy == WalSyncPolicy.NEVER || position <= syncedPosition) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (position <= syncedPosition) {
+                return;
+            }
+            long target = appendedPosition;
+            long firstIndex = syncedPosition / segmentSize;
+            for (Segment segment : segments) {
+                if (segment.index >= firstIndex) {
+                    segment.buffer.force();
+                }
+            }
+            syncedPosition = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    boolean isSyncedOnEveryWrite() {
+        return syncPolicy == WalSyncPolicy.EVERY_WRITE;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        if (syncPolicy != WalSyncPolicy.NEVER) {
+            awaitDurable(appendedPosition);
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Makes room for an entry in the current segment, rolling to a new segment if needed.
+     *
+     * @return the offset of the body of the entry.
+     */
+    private int reserve(int payloadSize) {
+        int entrySize = ENTRY_HEADER_SIZE + BODY_HEADER_SIZE + payloadSize;
+        if (entrySize > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new RuntimeException("The record does not fit into a write-ahead log segment.");
+        }
+        if (currentSegment.writePosition + entrySize > segmentSize) {
+            rollSegment(currentSegment.index + 1);
+        }
+        return currentSegment.writePosition + ENTRY_HEADER_SIZE;
+    }
+
+    private void finishEntry(byte type, long sequence, int bodyStart, int payloadSize) {
+        ByteBuffer buffer = currentSegment.buffer;
+        int bodyLength = BODY_HEADER_SIZE + payloadSize;
+        buffer.put(bodyStart, type);
+        buffer.putLong(bodyStart + 1, sequence);
+        buffer.putInt(bodyStart - Integer.BYTES, crcOf(currentSegment, bodyStart, bodyLength));
+        // The length goes last, so a reader never sees a complete header in front of an incomplete body.
+        buffer.putInt(bodyStart - ENTRY_HEADER_SIZE, bodyLength);
+        currentSegment.writePosition = bodyStart + bodyLength;
+        appendedPosition = globalPosition(currentSegment, currentSegment.writePosition);
+    }
+
+    private int crcOf(Segment segment, int bodyStart, int bodyLength) {
+        ByteBuffer view = segment.view;
+        view.limit(bodyStart + bodyLength).position(bodyStart);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private void rollSegment(long index) {
+        try {
+            Segment segment = Segment.create(segmentPath(index), index, segmentSize);
+            if (currentSegment != null && syncPolicy != WalSyncPolicy.NEVER) {
+                currentSegment.buffer.force();
+            }
+            segments.add(segment);
+            currentSegment = segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create a write-ahead log segment in " + directory + ".", e);
+        }
+    }
+
+    /**
+     * Deletes the oldest segments whose records have all been removed. The current segment is always kept.
+     */
+    private void deleteConsumedSegments() {
+        while (segments.size() > 1 && segments.get(0).lastAddedSequence < headSequence) {
+            Segment segment = segments.remove(0);
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot delete the write-ahead log segment " + segment.path + ".", e);
+            }
+        }
+    }
+
+    private long globalPosition(Segment segment, int offset) {
+        return segment.index * segmentSize + offset;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegmentIndexes() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    /**
+     * One mapped segment file.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long index;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // A reusable view for the checksums, so computing them does not allocate.
+        private final ByteBuffer view;
+        private int writePosition = SEGMENT_HEADER_SIZE;
+        private long lastAddedSequence = -1;
+
+        private Segment(Path path, long index, FileChannel channel, int segmentSize) throws IOException {
+            this.path = path;
+            this.index = index;
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            this.view = buffer.duplicate();
+        }
+
+        static Segment create(Path path, long index, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(
+                    path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(path, index, channel, segmentSize);
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(Integer.BYTES, VERSION);
+            return segment;
+        }
+
+        static Segment open(Path path, long index, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() != segmentSize) {
+                channel.close();
+                throw new IOException(
+                        "Segment " + path + " does not have the configured size of " + segmentSize + " bytes.");
+            }
+            Segment segment = new Segment(path, index, channel, segmentSize);
+            if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(Integer.BYTES) != VERSION) {
+                segment.close();
+                throw new IOException("Segment " + path + " is not a write-ahead log segment of a known version.");
+            }
+            return segment;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The mapping stays valid after the channel is closed, so there is nothing left to release here.
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the monitor engine behind the BlockingQueue interface.
+ */
+class BlockingUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region inserting
+    @Test
+    void testThatOfferReturnsFalseForDuplicate() {
+        // Arrange
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+        Record record = factory.generateRandomFakeRecord();
+
+        // Act
+        boolean firstOffer = mockQueue.offer(record);
+        boolean secondOffer = mockQueue.offer(new Record(record));
+
+        // Assert
+        assertThat(firstOffer).isEqualTo(true);
+        assertThat(secondOffer).isEqualTo(false);
+        assertThat(mockQueue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatFullQueueRejectsInsteadOfEvicting() {
+        // Arrange
+        BlockingQueue<Record> mockQueue =
+                new UniqueEventsQueueBuilder().queueLimit(2).buildBlockingQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(3);
+        mockQueue.add(recordList.get(0));
+        mockQueue.add(recordList.get(1));
+
+        // Act & Assert
+        assertThat(mockQueue.remainingCapacity()).isEqualTo(0);
+        assertThat(mockQueue.offer(recordList.get(2))).isEqualTo(false);
+        assertThatThrownBy(() -> mockQueue.add(recordList.get(2))).isInstanceOf(IllegalStateException.class);
+        assertThat(mockQueue.add(new Record(recordList.get(0)))).isEqualTo(false);
+        assertThat(mockQueue).containsExactly(recordList.get(0), recordList.get(1));
+    }
+
+    @Test
+    void testThatNullRecordsAreRejected() {
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+
+        assertThatThrownBy(() -> mockQueue.offer(null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> mockQueue.put(null)).isInstanceOf(NullPointerException.class);
+    }
+    // endregion
+
+    // region retrieving
+    @Test
+    void testThatPollReturnsNullAfterDeadline() throws InterruptedException {
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+
+        long start = System.nanoTime();
+        Record record = mockQueue.poll(20, TimeUnit.MILLISECONDS);
+
+        assertThat(record).isNull();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(mockQueue.poll()).isNull();
+    }
+
+    @Test
+    void testThatTakeReceivesRecordAddedLater() throws Exception {
+        // Arrange
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+        Record record = factory.generateRandomFakeRecord();
+        CompletableFuture<Record> taken = new CompletableFuture<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.complete(mockQueue.take());
+            } catch (InterruptedException e) {
+                taken.completeExceptionally(e);
+            }
+        });
+
+        // Act
+        consumer.start();
+        mockQueue.put(record);
+
+        // Assert
+        assertThat(taken.get(1, TimeUnit.MINUTES)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatTakeThrowsWhenInterrupted() {
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+
+        Thread.currentThread().interrupt();
+
+        assertThatThrownBy(mockQueue::take).isInstanceOf(InterruptedException.class);
+    }
+
+    @Test
+    void testThatDrainToTakesOldestRecordsAndRejectsItself() {
+        // Arrange
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        mockQueue.addAll(recordList);
+        List<Record> drainedRecords = new ArrayList<>();
+
+        // Act
+        int drained = mockQueue.drainTo(drainedRecords, 3);
+
+        // Assert
+        assertThat(drained).isEqualTo(3);
+        assertThat(drainedRecords).containsExactlyElementsOf(recordList.subList(0, 3));
+        assertThat(mockQueue.peek()).isEqualTo(recordList.get(3));
+        assertThat(mockQueue.contains(recordList.get(4))).isEqualTo(true);
+        assertThat(mockQueue.contains(recordList.get(0))).isEqualTo(false);
+        assertThatThrownBy(() -> mockQueue.drainTo(mockQueue)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> mockQueue.remove(recordList.get(4))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testThatPollDoesNotAllocate() throws InterruptedException {
+        // Arrange
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        BlockingQueue<Record> mockQueue = new UniqueEventsQueueBuilder().buildBlockingQueue();
+        Record record = factory.generateRandomFakeRecord();
+        for (int i = 0; i < 100_000; i++) {
+            mockQueue.offer(record);
+            mockQueue.poll(0, TimeUnit.NANOSECONDS);
+            mockQueue.poll(1, TimeUnit.NANOSECONDS);
+        }
+
+        // Act
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            mockQueue.poll(1, TimeUnit.NANOSECONDS);
+        }
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // Assert
+        assertThat(allocatedBytes).isLessThan(100_000);
+    }
+    // endregion
+}
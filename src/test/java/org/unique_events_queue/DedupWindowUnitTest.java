@@ -0,0 +1,96 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the expiration of the deduplication window. The time is driven manually through a fake clock.
+ */
+class DedupWindowUnitTest {
+    @Test
+    void testThatRememberedFingerprintIsContained() {
+        DedupWindow window = new DedupWindow(Long.MAX_VALUE, 100);
+
+        window.remember(42);
+
+        assertThat(window.contains(42)).isEqualTo(true);
+        assertThat(window.contains(43)).isEqualTo(false);
+    }
+
+    @Test
+    void testThatFingerprintExpiresAfterWindowDuration() {
+        AtomicLong clock = new AtomicLong();
+        DedupWindow window = new DedupWindow(1000, 100, 4, clock::get);
+        window.remember(42);
+
+        clock.set(500);
+        assertThat(window.contains(42)).isEqualTo(true);
+
+        clock.set(1000);
+        assertThat(window.contains(42)).isEqualTo(false);
+    }
+
+    @Test
+    void testThatFingerprintSurvivesLongIdlePeriodOnlyIfWithinWindow() {
+        AtomicLong clock = new AtomicLong();
+        DedupWindow window = new DedupWindow(1000, 100, 4, clock::get);
+        window.remember(42);
+
+        clock.set(1_000_000);
+        window.remember(43);
+
+        assertThat(window.contains(42)).isEqualTo(false);
+        assertThat(window.contains(43)).isEqualTo(true);
+    }
+
+    @Test
+    void testThatOldestFingerprintsAreForgottenBeyondCount() {
+        DedupWindow window = new DedupWindow(Long.MAX_VALUE, 8, 4, System::nanoTime);
+
+        for (long fingerprint = 1; fingerprint <= 20; fingerprint++) {
+            window.remember(fingerprint);
+        }
+
+        assertThat(window.contains(1)).isEqualTo(false);
+        for (long fingerprint = 15; fingerprint <= 20; fingerprint++) {
+            assertThat(window.contains(fingerprint)).isEqualTo(true);
+        }
+    }
+
+    @Test
+    void testThatBucketsGrowWithRememberedFingerprints() {
+        DedupWindow window = new DedupWindow(Long.MAX_VALUE, DedupWindow.DEFAULT_MAX_REMEMBERED_RECORDS);
+
+        for (long fingerprint = 1; fingerprint <= 100_000; fingerprint++) {
+            window.remember(fingerprint);
+        }
+
+        for (long fingerprint = 1; fingerprint <= 100_000; fingerprint++) {
+            assertThat(window.contains(fingerprint)).isEqualTo(true);
+        }
+        assertThat(window.contains(100_001)).isEqualTo(false);
+    }
+
+    @Test
+    void testThatDefaultWindowDoesNotPreallocateItsCapacity() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        DedupWindow window = new DedupWindow(Long.MAX_VALUE, DedupWindow.DEFAULT_MAX_REMEMBERED_RECORDS);
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertThat(window.contains(42)).isEqualTo(false);
+        assertThat(allocatedBytes).isLessThan(64 * 1024);
+    }
+
+    @Test
+    void testThatWindowRejectsTooSmallParameters() {
+        assertThatThrownBy(() -> new DedupWindow(0, 100)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new DedupWindow(1000, 1)).isInstanceOf(RuntimeException.class);
+    }
+}
@@ -0,0 +1,240 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class KeyAffinityUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region routing
+    @Test
+    void testThatRecordsOfOneKeyGoToOneConsumerInOrder() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = buildQueue(false);
+        KeyAffinityUniqueEventsQueue.SlotConsumer firstConsumer = mockQueue.registerConsumer();
+        KeyAffinityUniqueEventsQueue.SlotConsumer secondConsumer = mockQueue.registerConsumer();
+        String firstClient = clientRoutedTo(mockQueue, firstConsumer.slot());
+        List<Record> recordList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            recordList.add(new Record(firstClient + "/" + i, i, new Date(i)));
+        }
+
+        // Act
+        mockQueue.addAll(recordList);
+
+        // Assert
+        List<Record> receivedRecords = new ArrayList<>();
+        firstConsumer.drainTo(receivedRecords, 10);
+        assertThat(receivedRecords).containsExactlyElementsOf(recordList);
+        assertThat(secondConsumer.get(1, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void testThatDuplicatesAreSkippedAcrossConsumers() {
+        KeyAffinityUniqueEventsQueue mockQueue = buildQueue(false);
+        Record record = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        mockQueue.add(new Record(record));
+
+        assertThat(mockQueue.drainTo(new ArrayList<>(), 10)).isEqualTo(1);
+    }
+
+    @Test
+    void testThatIdleConsumerStealsOnlyWhenEnabled() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue affineQueue = buildQueue(false);
+        KeyAffinityUniqueEventsQueue stealingQueue = buildQueue(true);
+        KeyAffinityUniqueEventsQueue.SlotConsumer affineConsumer = affineQueue.registerConsumer();
+        KeyAffinityUniqueEventsQueue.SlotConsumer stealingConsumer = stealingQueue.registerConsumer();
+        Record affineRecord = new Record(clientRoutedTo(affineQueue, 1) + "/1", 1, new Date(1));
+        Record stolenRecord = new Record(clientRoutedTo(stealingQueue, 1) + "/1", 1, new Date(1));
+
+        // Act
+        affineQueue.add(affineRecord);
+        stealingQueue.add(stolenRecord);
+
+        // Assert
+        assertThat(affineConsumer.get(1, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(stealingConsumer.get(1, TimeUnit.MILLISECONDS)).isEqualTo(stolenRecord);
+    }
+
+    @Test
+    void testThatHotSlotDoesNotEvictBelowQueueLimit() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = new KeyAffinityUniqueEventsQueue(4, 2, id -> "same", false);
+        List<Record> recordList = factory.generateRandomFakeRecords(3);
+
+        // Act
+        mockQueue.addAll(recordList);
+
+        // Assert
+        List<Record> receivedRecords = new ArrayList<>();
+        mockQueue.drainTo(receivedRecords, 10);
+        assertThat(receivedRecords).containsExactlyElementsOf(recordList);
+    }
+
+    @Test
+    void testThatQueueLimitIsSharedBySlots() {
+        KeyAffinityUniqueEventsQueue mockQueue = new KeyAffinityUniqueEventsQueue(1, 16, id -> id, false);
+        List<Record> recordList = factory.generateRandomFakeRecords(100);
+
+        for (Record record : recordList) {
+            mockQueue.add(record);
+        }
+
+        List<Record> receivedRecords = new ArrayList<>();
+        mockQueue.drainTo(receivedRecords, 100);
+        assertThat(receivedRecords).containsExactly(recordList.get(99));
+    }
+
+    @Test
+    void testThatOldestRecordsOfAllSlotsAreEvicted() {
+        KeyAffinityUniqueEventsQueue mockQueue = new KeyAffinityUniqueEventsQueue(3, 4, id -> id, false);
+        List<Record> recordList = factory.generateRandomFakeRecords(20);
+
+        mockQueue.addAll(recordList);
+
+        List<Record> receivedRecords = new ArrayList<>();
+        mockQueue.drainTo(receivedRecords, 100);
+        assertThat(receivedRecords).containsExactlyInAnyOrderElementsOf(recordList.subList(17, 20));
+    }
+
+    @Test
+    void testThatClosedSlotCanBeRegisteredAgain() {
+        KeyAffinityUniqueEventsQueue mockQueue = new KeyAffinityUniqueEventsQueue(10, 1, id -> id, false);
+        KeyAffinityUniqueEventsQueue.SlotConsumer consumer = mockQueue.registerConsumer();
+
+        assertThatThrownBy(mockQueue::registerConsumer).isInstanceOf(RuntimeException.class);
+        consumer.close();
+
+        assertThat(mockQueue.registerConsumer().slot()).isEqualTo(0);
+        assertThatThrownBy(consumer::get).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatQueueAcceptsOnlyProperParameters() {
+        assertThatThrownBy(() -> new KeyAffinityUniqueEventsQueue(0, 1, id -> id, false))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new KeyAffinityUniqueEventsQueue(1, 0, id -> id, false))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new KeyAffinityUniqueEventsQueue(1, 1, null, false))
+                .isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region waiting
+    @Test
+    void testThatRecordWakesConsumerOfItsSlot() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = buildQueue(false);
+        KeyAffinityUniqueEventsQueue.SlotConsumer consumer = mockQueue.registerConsumer();
+        Record record = new Record(clientRoutedTo(mockQueue, consumer.slot()) + "/1", 1, new Date(1));
+        Callable<Record> callable = consumer::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<Record> future = executor.submit(callable);
+        mockQueue.add(record);
+
+        // Assert
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isEqualTo(record);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatRecordOfBusySlotWakesStealingConsumer() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = buildQueue(true);
+        KeyAffinityUniqueEventsQueue.SlotConsumer idleConsumer = mockQueue.registerConsumer();
+        mockQueue.registerConsumer();
+        Record record = new Record(clientRoutedTo(mockQueue, 1) + "/1", 1, new Date(1));
+        Callable<Record> callable = idleConsumer::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<Record> future = executor.submit(callable);
+        mockQueue.add(record);
+
+        // Assert
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isEqualTo(record);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatQueueGetTakesRecordOfAnySlot() {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = buildQueue(false);
+        Callable<Record> callable = mockQueue::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Record record = factory.generateRandomFakeRecord();
+
+        // Act
+        Future<Record> future = executor.submit(callable);
+        mockQueue.add(record);
+
+        // Assert
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isEqualTo(record);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).isEmpty();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatStealingConsumersReceiveEveryRecordOnce() throws InterruptedException {
+        // Arrange
+        KeyAffinityUniqueEventsQueue mockQueue = new KeyAffinityUniqueEventsQueue(
+                UniqueEventsQueue.DEFAULT_QUEUE_LIMIT, 4, id -> id.split("/")[0], true);
+        int numberOfRecords = 20_000;
+        List<Record> receivedRecords = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            KeyAffinityUniqueEventsQueue.SlotConsumer consumer = mockQueue.registerConsumer();
+            executor.execute(() -> {
+                Record record;
+                while ((record = consumer.get(1, TimeUnit.SECONDS)) != null) {
+                    receivedRecords.add(record);
+                }
+            });
+        }
+
+        // Act
+        for (int i = 0; i < numberOfRecords; i++) {
+            mockQueue.add(new Record("client-" + (i % 7) + "/" + i, i, new Date(i)));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isEqualTo(true);
+        assertThat(receivedRecords).hasSize(numberOfRecords);
+        assertThat(new HashSet<>(receivedRecords)).hasSize(numberOfRecords);
+    }
+    // endregion
+
+    private static KeyAffinityUniqueEventsQueue buildQueue(boolean workStealing) {
+        return new KeyAffinityUniqueEventsQueue(1000, 4, id -> id.split("/")[0], workStealing);
+    }
+
+    /**
+     * Finds a client whose records the queue routes to the given slot.
+     */
+    private static String clientRoutedTo(KeyAffinityUniqueEventsQueue queue, int slot) {
+        for (int i = 0; ; i++) {
+            String client = "client-" + i;
+            if (queue.slotOf(client + "/") == slot) {
+                return client;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the option parsing and short runs of the load generator.
+ */
+class LoadGeneratorUnitTest {
+    // region runs
+    @Test
+    void testThatOpenLoopConsumesEveryAddedRecordAtTargetRate() throws InterruptedException {
+        // Arrange
+        LoadGenerator generator = LoadGenerator.fromArguments(
+                "--producers=2",
+                "--consumers=2",
+                "--duration-seconds=1",
+                "--rate=20000",
+                "--batch-size=10",
+                "--duplicate-ratio=0.2");
+
+        // Act
+        LoadGenerator.Report report = generator.run();
+
+        // Assert
+        assertThat(report.sent).isEqualTo(20_000);
+        assertThat(report.duplicates).isGreaterThan(0);
+        assertThat(report.added + report.duplicates).isEqualTo(report.sent);
+        assertThat(report.evicted).isEqualTo(0);
+        assertThat(report.consumed).isEqualTo(report.added);
+        assertThat(report.percentile(50)).isLessThanOrEqualTo(report.percentile(99));
+        assertThat(report.percentile(99)).isLessThanOrEqualTo(report.percentile(99.9));
+        assertThat(report.percentile(99.9)).isLessThanOrEqualTo(report.maxLatencyNanos);
+        assertThat(report.toString()).contains("p99.9");
+    }
+
+    @Test
+    void testThatClosedLoopAccountsForEvictedRecords() throws InterruptedException {
+        LoadGenerator generator = LoadGenerator.fromArguments(
+                "--loop=closed", "--duration-seconds=1", "--batch-size=100", "--queue-limit=10");
+
+        LoadGenerator.Report report = generator.run();
+
+        assertThat(report.consumed).isGreaterThan(0);
+        assertThat(report.consumed + report.evicted).isEqualTo(report.added);
+    }
+    // endregion
+
+    // region options
+    @Test
+    void testThatMalformedAndUnknownOptionsAreRejected() {
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("producers=2")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--threads=2")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--rate=fast")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--loop=half")).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatInvalidSettingsAreRejected() {
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--consumers=0")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--duplicate-ratio=1"))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> LoadGenerator.fromArguments("--duplicate-ratio=0.5"))
+                .isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+}
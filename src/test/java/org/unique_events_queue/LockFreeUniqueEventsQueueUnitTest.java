@@ -0,0 +1,172 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.testng.collections.Lists;
+
+/**
+ * Tests that the lock-free engine keeps the contract of the monitor-based queue.
+ */
+class LockFreeUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region add() and addAll()
+    @Test
+    void testThatAddHandlesNullInput() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        mockQueue.add(null);
+
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatAddIgnoresDuplicate() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        mockQueue.add(new Record(record));
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatRecordCanBeAddedAgainAfterItWasRetrieved() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        QueueTestUtilities.getOrThrow(mockQueue);
+        mockQueue.add(record);
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatAddAllInsertsRecordsIntoQueueInOrder() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 3; ++i) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        Iterator<Record> mockIterator = recordList.iterator();
+
+        mockQueue.addAll(recordList);
+
+        for (int i = 0; i < 3; ++i) {
+            assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(mockIterator.next());
+        }
+    }
+
+    @Test
+    void testThatAddAllHandlesListOfNullsAndRecords() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        Record record1 = factory.generateRandomFakeRecord();
+        Record record2 = factory.generateRandomFakeRecord();
+        List<Record> list = Lists.newArrayList(null, record1, null, record2, record1);
+
+        mockQueue.addAll(list);
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record1);
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record2);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+    // endregion
+
+    // region trimming
+    @Test
+    void testThatQueueKeepsOnlyNewestRecordsWithinLimit() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue(2);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+
+        mockQueue.addAll(recordList);
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(8));
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(9));
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatConcurrentProducersEvictOnlyTheExcess() throws InterruptedException {
+        // Arrange
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue(100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    mockQueue.add(factory.generateRandomFakeRecord());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 1000);
+
+        // Assert
+        assertThat(mockOutput.size()).isEqualTo(100);
+    }
+
+    @Test
+    void testThatQueueAcceptsOnlyProperSizeLimit() {
+        assertThatThrownBy(() -> new LockFreeUniqueEventsQueue(-10)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new LockFreeUniqueEventsQueue(0)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region get()
+    @Test
+    void testThatAddNotifiesWaitingThread() {
+        LockFreeUniqueEventsQueue queue = new LockFreeUniqueEventsQueue();
+        Callable<Record> callable = queue::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Record> future = executor.submit(callable);
+
+        queue.add(factory.generateRandomFakeRecord());
+
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isInstanceOf(Record.class);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatGetBatchTakesOldestRecordsUpToLimit() {
+        LockFreeUniqueEventsQueue mockQueue = new LockFreeUniqueEventsQueue();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        mockQueue.addAll(recordList);
+
+        List<Record> mockBatch = mockQueue.getBatch(3, 1, TimeUnit.SECONDS);
+        List<Record> mockRest = new LinkedList<>();
+        mockQueue.drainTo(mockRest, 10);
+
+        assertThat(mockBatch).containsExactlyElementsOf(recordList.subList(0, 3));
+        assertThat(mockRest).containsExactlyElementsOf(recordList.subList(3, 5));
+        assertThat(mockQueue.getBatch(3, 1, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    void testsThatParametrizedGetThrowsException() {
+        LockFreeUniqueEventsQueue queue = new LockFreeUniqueEventsQueue();
+
+        assertThatThrownBy(() -> queue.get(1, true)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+}
@@ -0,0 +1,104 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ring and the index of the off-heap store, including the wrapping over slab boundaries.
+ */
+class OffHeapRecordStoreUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    @Test
+    void testThatStoredRecordIsDecodedEqual() {
+        OffHeapRecordStore store = new OffHeapRecordStore(4096, 1024);
+        Record record = new Record("K4s1o3a723", (float) 1.1923, new Date(1278346));
+
+        append(store, record);
+
+        assertThat(store.contains(new Record(record), RecordCodec.fingerprint(record)))
+                .isEqualTo(true);
+        assertThat(store.pollOldest()).isEqualTo(record);
+        assertThat(store.isEmpty()).isEqualTo(true);
+        assertThat(store.contains(record, RecordCodec.fingerprint(record))).isEqualTo(false);
+    }
+
+    @Test
+    void testThatStoresOverSameMemoryTakeTurnsThroughCounters() {
+        // Arrange
+        ByteBuffer[] slabs = {ByteBuffer.allocateDirect(4096)};
+        ByteBuffer index = ByteBuffer.allocateDirect(OffHeapRecordStore.indexSizeInBytes(4096));
+        ByteBuffer counters = ByteBuffer.allocate(OffHeapRecordStore.COUNTERS_SIZE);
+        OffHeapRecordStore store = new OffHeapRecordStore(slabs, index);
+        OffHeapRecordStore otherStore = new OffHeapRecordStore(slabs, index);
+        Record record = factory.generateRandomFakeRecord();
+        Record otherRecord = factory.generateRandomFakeRecord();
+
+        // Act
+        append(store, record);
+        store.storeCounters(counters, 0);
+        otherStore.loadCounters(counters, 0);
+        append(otherStore, otherRecord);
+
+        // Assert
+        assertThat(otherStore.size()).isEqualTo(2);
+        assertThat(otherStore.contains(record, RecordCodec.fingerprint(record))).isEqualTo(true);
+        assertThat(otherStore.pollOldest()).isEqualTo(record);
+        assertThat(otherStore.pollOldest()).isEqualTo(otherRecord);
+    }
+
+    @Test
+    void testThatStoreKeepsFifoOrderWhileWrappingAroundSlabs() {
+        OffHeapRecordStore store = new OffHeapRecordStore(4096, 512);
+        Deque<Record> expected = new ArrayDeque<>();
+
+        for (int i = 0; i < 2000; i++) {
+            Record record = factory.generateRandomFakeRecord();
+            int entrySize = OffHeapRecordStore.entrySize(record);
+            while (!store.hasRoomFor(entrySize)) {
+                assertThat(store.pollOldest()).isEqualTo(expected.pollFirst());
+            }
+            store.append(record, RecordCodec.fingerprint(record), entrySize);
+            expected.addLast(record);
+        }
+
+        for (Record record : expected) {
+            assertThat(store.contains(record, RecordCodec.fingerprint(record))).isEqualTo(true);
+        }
+        while (!expected.isEmpty()) {
+            assertThat(store.pollOldest()).isEqualTo(expected.pollFirst());
+        }
+        assertThat(store.pollOldest()).isNull();
+    }
+
+    @Test
+    void testThatEvictedRecordIsForgottenByIndex() {
+        OffHeapRecordStore store = new OffHeapRecordStore(4096, 1024);
+        Record evicted = factory.generateRandomFakeRecord();
+        Record kept = factory.generateRandomFakeRecord();
+        append(store, evicted);
+        append(store, kept);
+
+        store.evictOldest();
+
+        assertThat(store.contains(evicted, RecordCodec.fingerprint(evicted))).isEqualTo(false);
+        assertThat(store.contains(kept, RecordCodec.fingerprint(kept))).isEqualTo(true);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatStoreRejectsTooSmallCapacity() {
+        assertThatThrownBy(() -> new OffHeapRecordStore(0, 1024)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new OffHeapRecordStore(1024, 8)).isInstanceOf(RuntimeException.class);
+    }
+
+    private static void append(OffHeapRecordStore store, Record record) {
+        store.append(record, RecordCodec.fingerprint(record), OffHeapRecordStore.entrySize(record));
+    }
+}
@@ -0,0 +1,137 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.testng.collections.Lists;
+
+/**
+ * Tests that the off-heap engine keeps the contract of the monitor-based queue.
+ */
+class OffHeapUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region add() and addAll()
+    @Test
+    void testThatAddHandlesNullInput() {
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue();
+        mockQueue.add(null);
+        mockQueue.addAll(Lists.newArrayList(null, null));
+
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatAddIgnoresDuplicate() {
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        mockQueue.add(new Record(record));
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatAddAllInsertsRecordsIntoQueueInOrder() {
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 3; ++i) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        Iterator<Record> mockIterator = recordList.iterator();
+
+        mockQueue.addAll(recordList);
+
+        for (int i = 0; i < 3; ++i) {
+            assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(mockIterator.next());
+        }
+    }
+    // endregion
+
+    // region trimming
+    @Test
+    void testThatQueueKeepsOnlyNewestRecordsWithinLimit() {
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue(2, 4096);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+
+        mockQueue.addAll(recordList);
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(8));
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(9));
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatQueueEvictsOldestRecordsWhenCapacityIsExhausted() {
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue(1000, 2048);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 500; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+
+        mockQueue.addAll(recordList);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 1000);
+
+        assertThat(mockOutput).isNotEmpty();
+        assertThat(mockOutput.size()).isLessThan(500);
+        assertThat(mockOutput.get(mockOutput.size() - 1)).isEqualTo(recordList.get(499));
+    }
+
+    @Test
+    void testThatRecordLargerThanSlabIsRejected() {
+        // Arrange
+        OffHeapUniqueEventsQueue mockQueue = new OffHeapUniqueEventsQueue(1000, 2048);
+        Record record = factory.generateRandomFakeRecord();
+        Record largeRecord = new Record("x".repeat(4096), 1, 0);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mockQueue.add(largeRecord)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> mockQueue.addAll(Lists.newArrayList(record, largeRecord)))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatQueueAcceptsOnlyProperParameters() {
+        assertThatThrownBy(() -> new OffHeapUniqueEventsQueue(0, 4096)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new OffHeapUniqueEventsQueue(1, 0)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region get()
+    @Test
+    void testThatAddNotifiesWaitingThread() {
+        OffHeapUniqueEventsQueue queue = new OffHeapUniqueEventsQueue();
+        Callable<Record> callable = queue::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Record> future = executor.submit(callable);
+
+        queue.add(factory.generateRandomFakeRecord());
+
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isInstanceOf(Record.class);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatGetBatchReturnsEmptyListOnTimeout() {
+        OffHeapUniqueEventsQueue queue = new OffHeapUniqueEventsQueue();
+
+        assertThat(queue.getBatch(10, 1, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+    // endregion
+}
@@ -0,0 +1,225 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the overflow tier on its own and through the queue that spills to it.
+ */
+class OverflowTierUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+    private static final int SMALL_SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    // region overflow tier
+    @Test
+    void testThatChunksReturnRecordsInOrderAcrossSegments() {
+        // Arrange
+        OverflowTier tier = new OverflowTier(directory, SMALL_SEGMENT_SIZE);
+        List<Record> recordList = factory.generateRandomFakeRecords(100);
+
+        // Act
+        for (Record record : recordList) {
+            tier.append(record, RecordCodec.fingerprint(record));
+        }
+        int segmentCount = tier.segmentCount();
+        List<Record> loadedRecords = new LinkedList<>();
+        for (OverflowTier.Chunk chunk = tier.nextChunk(7); chunk != null; chunk = tier.nextChunk(7)) {
+            chunk.load();
+            loadedRecords.addAll(chunk.records());
+            tier.commit(chunk);
+        }
+
+        // Assert
+        assertThat(segmentCount).isGreaterThan(1);
+        assertThat(loadedRecords).containsExactlyElementsOf(recordList);
+        assertThat(tier.size()).isEqualTo(0);
+        assertThat(tier.segmentCount()).isEqualTo(0);
+    }
+
+    @Test
+    void testThatFingerprintIsKnownUntilItsChunkIsCommitted() {
+        // Arrange
+        OverflowTier tier = new OverflowTier(directory, SMALL_SEGMENT_SIZE);
+        Record record = factory.generateRandomFakeRecord();
+        long fingerprint = RecordCodec.fingerprint(record);
+        tier.append(record, fingerprint);
+
+        // Act
+        OverflowTier.Chunk chunk = tier.nextChunk(10);
+        chunk.load();
+        boolean containedBeforeCommit = tier.contains(fingerprint);
+        tier.commit(chunk);
+
+        // Assert
+        assertThat(containedBeforeCommit).isEqualTo(true);
+        assertThat(tier.contains(fingerprint)).isEqualTo(false);
+    }
+
+    @Test
+    void testThatRecordLargerThanChunkIsLoadedWhole() {
+        OverflowTier tier = new OverflowTier(directory, SMALL_SEGMENT_SIZE);
+        Record record = new Record("x".repeat(1024 * 1024), 1, 1);
+        tier.append(record, RecordCodec.fingerprint(record));
+
+        OverflowTier.Chunk chunk = tier.nextChunk(10);
+        chunk.load();
+
+        assertThat(chunk.records()).containsExactly(record);
+    }
+
+    @Test
+    void testThatOldSegmentsAreDeletedWhenTierIsCreated() throws IOException {
+        Files.createFile(directory.resolve("0000000000000000007.overflow"));
+
+        new OverflowTier(directory, SMALL_SEGMENT_SIZE);
+
+        assertThat(countFiles()).isEqualTo(0);
+    }
+    // endregion
+
+    // region spilling queue
+    @Test
+    void testThatSpilledRecordsComeBackInOrderAfterThoseInMemory() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(1000);
+        try (UniqueEventsQueue mockQueue = buildQueue(10)) {
+
+            // Act
+            mockQueue.addAll(recordList.subList(0, 500));
+            for (Record record : recordList.subList(500, 1000)) {
+                mockQueue.add(record);
+            }
+
+            // Assert
+            assertThat(mockQueue.size()).isEqualTo(1000);
+            List<Record> retrievedRecords = new LinkedList<>();
+            for (int i = 0; i < 1000; i++) {
+                retrievedRecords.add(mockQueue.get(1000, true));
+            }
+            assertThat(retrievedRecords).containsExactlyElementsOf(recordList);
+            assertThat(mockQueue.isEmpty()).isEqualTo(true);
+        }
+    }
+
+    @Test
+    void testThatDuplicatesAreRejectedInBothTiers() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(20);
+        try (UniqueEventsQueue mockQueue = buildQueue(5)) {
+            mockQueue.addAll(recordList);
+
+            // Act
+            mockQueue.add(new Record(recordList.get(0)));
+            mockQueue.add(new Record(recordList.get(19)));
+            mockQueue.addAll(List.of(new Record(recordList.get(2)), new Record(recordList.get(12))));
+
+            // Assert
+            assertThat(mockQueue.size()).isEqualTo(20);
+            assertThat(drain(mockQueue, 20)).containsExactlyElementsOf(recordList);
+        }
+    }
+
+    @Test
+    void testThatDrainedQueueRefillsFromDiskAndDeletesSegments() throws IOException {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(200);
+        try (UniqueEventsQueue mockQueue = buildQueue(8)) {
+            mockQueue.addAll(recordList);
+
+            // Act
+            List<Record> drainedRecords = drain(mockQueue, 200);
+
+            // Assert
+            assertThat(drainedRecords).containsExactlyElementsOf(recordList);
+            assertThat(countFiles()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void testThatOverflowIsRejectedWithEvictionPolicyAndOtherEngines() {
+        assertThatThrownBy(() -> new UniqueEventsQueueBuilder()
+                        .overflowToDisk(directory)
+                        .evictionPolicy(EvictionPolicy.REJECT_NEWEST)
+                        .build())
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new UniqueEventsQueueBuilder()
+                        .overflowToDisk(directory)
+                        .engine(QueueEngine.LOCK_FREE)
+                        .build())
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatUnreadableOverflowFailsProducersAndConsumers() throws IOException {
+        try (UniqueEventsQueue mockQueue = buildQueue(10)) {
+            // Arrange
+            mockQueue.addAll(factory.generateRandomFakeRecords(100));
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        channel.truncate(0);
+                    }
+                }
+            }
+
+            // Act
+            List<Record> recordsInMemory = mockQueue.getBatch(10, 1, TimeUnit.SECONDS);
+
+            // Assert
+            assertThat(recordsInMemory).hasSize(10);
+            assertThatThrownBy(() -> mockQueue.get(10_000, true)).hasMessageContaining("overflow tier");
+            assertThatThrownBy(() -> mockQueue.add(factory.generateRandomFakeRecord()))
+                    .hasMessageContaining("overflow tier");
+            assertThat(mockQueue.getAsync()).isCompletedExceptionally();
+        }
+    }
+
+    @Test
+    void testThatSnapshotOfSpillingQueueIsRejected() {
+        try (UniqueEventsQueue mockQueue = buildQueue(10)) {
+            mockQueue.addAll(factory.generateRandomFakeRecords(20));
+
+            assertThatThrownBy(() -> mockQueue.writeSnapshot(directory.resolve("snapshot")))
+                    .isInstanceOf(RuntimeException.class);
+        }
+    }
+    // endregion
+
+    private UniqueEventsQueue buildQueue(long queueLimit) {
+        return (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(queueLimit)
+                .overflowToDisk(directory)
+                .overflowSegmentSize(SMALL_SEGMENT_SIZE)
+                .build();
+    }
+
+    private static List<Record> drain(UniqueEventsQueue queue, int numberOfRecords) {
+        List<Record> drainedRecords = new LinkedList<>();
+        while (drainedRecords.size() < numberOfRecords) {
+            drainedRecords.addAll(queue.getBatch(numberOfRecords, 1, TimeUnit.SECONDS));
+        }
+        return drainedRecords;
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the Java Flight Recorder events of the monitor engine.
+ */
+class QueueEventsUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    @TempDir
+    Path directory;
+
+    // region recorded events
+    @Test
+    void testThatConsumerWaitIsRecordedWithReceivedRecords() throws IOException {
+        // Arrange
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+
+        // Act
+        List<RecordedEvent> events = record("org.unique_events_queue.ConsumerWait", () -> {
+            mockQueue.getBatch(10, 20, TimeUnit.MILLISECONDS);
+        });
+
+        // Assert
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getInt("recordsReceived")).isEqualTo(0);
+        assertThat(events.get(0).getDuration().toMillis()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void testThatProducerCallRecordsLockHoldTrimAndDuplicates() throws IOException {
+        // Arrange
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(3).build();
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        recordList.add(new Record(recordList.get(4)));
+
+        // Act
+        List<RecordedEvent> events = record("org.unique_events_queue", () -> mockQueue.addAll(recordList));
+
+        // Assert
+        assertThat(events.stream().map(event -> event.getEventType().getName()))
+                .containsExactlyInAnyOrder(
+                        "org.unique_events_queue.ProducerLockHold",
+                        "org.unique_events_queue.Trim",
+                        "org.unique_events_queue.DuplicateRejection");
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().endsWith("Trim")) {
+                assertThat(event.getLong("recordsEvicted")).isEqualTo(2);
+            } else if (event.getEventType().getName().endsWith("DuplicateRejection")) {
+                assertThat(event.getLong("duplicatesRejected")).isEqualTo(1);
+                assertThat(event.getInt("recordsOffered")).isEqualTo(6);
+            }
+        }
+    }
+
+    @Test
+    void testThatCallWithoutDuplicatesOrEvictionsRecordsOnlyLockHold() throws IOException {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+
+        List<RecordedEvent> events =
+                record("org.unique_events_queue", () -> mockQueue.add(factory.generateRandomFakeRecord()));
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getEventType().getName()).isEqualTo("org.unique_events_queue.ProducerLockHold");
+    }
+
+    @Test
+    void testThatWaitForRoomIsNotRecordedAsLockHold() throws IOException {
+        // Arrange
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .evictionPolicy(EvictionPolicy.BLOCK_PRODUCER)
+                .build();
+        mockQueue.add(factory.generateRandomFakeRecord());
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mockQueue.get();
+        });
+
+        // Act
+        List<RecordedEvent> events = record("org.unique_events_queue.ProducerLockHold", () -> {
+            consumer.start();
+            mockQueue.add(factory.generateRandomFakeRecord());
+        });
+
+        // Assert
+        assertThat(events).hasSize(2);
+        for (RecordedEvent event : events) {
+            assertThat(event.getDuration().toMillis()).isLessThan(100);
+            assertThat(event.getInt("recordsOffered")).isEqualTo(1);
+        }
+    }
+    // endregion
+
+    // region JFR off
+    @Test
+    void testThatDuplicateRejectionDoesNotAllocateWithoutRecording() {
+        // Arrange
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+        mockQueue.add(record);
+        for (int i = 0; i < 100_000; i++) {
+            mockQueue.add(record);
+        }
+
+        // Act
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            mockQueue.add(record);
+        }
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // Assert
+        assertThat(allocatedBytes).isLessThan(100_000);
+    }
+    // endregion
+
+    /**
+     * Runs the action with every event whose name starts with the prefix enabled without a threshold.
+     *
+     * @return the recorded events with that prefix.
+     */
+    private List<RecordedEvent> record(String eventNamePrefix, Runnable action) throws IOException {
+        Path file = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("ConsumerWait", "ProducerLockHold", "Trim", "DuplicateRejection")) {
+                recording.enable("org.unique_events_queue." + name).withoutThreshold();
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith(eventNamePrefix))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,154 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.testng.collections.Lists;
+
+/**
+ * Tests the metrics of the monitor engine and the histogram behind them.
+ */
+class QueueMetricsUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region counters
+    @Test
+    void testThatMetricsCountAddedDuplicateAndRetrievedRecords() {
+        // Arrange
+        UniqueEventsQueue mockQueue = buildQueueWithMetrics(10);
+        Record record = factory.generateRandomFakeRecord();
+
+        // Act
+        mockQueue.add(record);
+        mockQueue.addAll(Lists.newArrayList(new Record(record), factory.generateRandomFakeRecord()));
+        mockQueue.get();
+        mockQueue.drainTo(new LinkedList<>(), 10);
+
+        // Assert
+        QueueMetricsSnapshot snapshot = mockQueue.metricsSnapshot();
+        assertThat(snapshot.getAddedCount()).isEqualTo(2);
+        assertThat(snapshot.getDuplicateCount()).isEqualTo(1);
+        assertThat(snapshot.getRetrievedCount()).isEqualTo(2);
+        assertThat(snapshot.getQueueDepth()).isEqualTo(0);
+        assertThat(snapshot.getQueueDepthPercentile(100)).isEqualTo(3);
+    }
+
+    @Test
+    void testThatMetricsCountEvictedRecords() {
+        UniqueEventsQueue mockQueue = buildQueueWithMetrics(1);
+
+        for (int i = 0; i < 5; i++) {
+            mockQueue.add(factory.generateRandomFakeRecord());
+        }
+
+        assertThat(mockQueue.metricsSnapshot().getEvictedCount()).isEqualTo(4);
+        assertThat(mockQueue.metricsSnapshot().getQueueDepth()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatMetricsCountConsumerWaitsAndTimeouts() {
+        // Arrange
+        UniqueEventsQueue mockQueue = buildQueueWithMetrics(10);
+        Record record = factory.generateRandomFakeRecord();
+
+        // Act
+        List<Record> emptyBatch = mockQueue.getBatch(1, 1, TimeUnit.MILLISECONDS);
+        mockQueue.getAsync();
+        mockQueue.add(record);
+
+        // Assert
+        QueueMetricsSnapshot snapshot = mockQueue.metricsSnapshot();
+        assertThat(emptyBatch).isEmpty();
+        assertThat(snapshot.getConsumerWaitCount()).isEqualTo(2);
+        assertThat(snapshot.getConsumerTimeoutCount()).isEqualTo(1);
+        assertThat(snapshot.getRetrievedCount()).isEqualTo(1);
+        assertThat(Arrays.stream(snapshot.getWaitTimeHistogram()).sum()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatMetricsCountProducerWaits() throws InterruptedException {
+        UniqueEventsQueue mockQueue = buildQueueWithMetrics(1);
+        mockQueue.add(factory.generateRandomFakeRecord());
+
+        mockQueue.offer(factory.generateRandomFakeRecord(), 1, TimeUnit.MILLISECONDS);
+
+        assertThat(mockQueue.metricsSnapshot().getProducerWaitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatQueueWithoutMetricsRefusesSnapshot() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+
+        assertThatThrownBy(mockQueue::metricsSnapshot).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatMetricsAreReadableThroughMBeanServer() throws Exception {
+        // Arrange
+        UniqueEventsQueue mockQueue = buildQueueWithMetrics(10);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.unique_events_queue:type=UniqueEventsQueue,name=metricsTest");
+        mockQueue.add(factory.generateRandomFakeRecord());
+
+        // Act
+        server.registerMBean(mockQueue.metricsMXBean(), name);
+        Object addedCount;
+        try {
+            addedCount = server.getAttribute(name, "AddedCount");
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        // Assert
+        assertThat(addedCount).isEqualTo(1L);
+    }
+    // endregion
+
+    // region histogram
+    @Test
+    void testThatHistogramPutsValuesIntoPowerOfTwoBuckets() {
+        LogHistogram histogram = new LogHistogram();
+
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+
+        long[] counts = histogram.counts();
+        assertThat(counts[0]).isEqualTo(1);
+        assertThat(counts[1]).isEqualTo(1);
+        assertThat(counts[2]).isEqualTo(2);
+        assertThat(counts[63]).isEqualTo(1);
+    }
+
+    @Test
+    void testThatPercentileReturnsUpperBoundOfBucket() {
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+
+        assertThat(LogHistogram.percentile(histogram.counts(), 50)).isEqualTo(127);
+        assertThat(LogHistogram.percentile(histogram.counts(), 99)).isEqualTo(127);
+        assertThat(LogHistogram.percentile(histogram.counts(), 100)).isEqualTo(8191);
+        assertThat(LogHistogram.percentile(new LogHistogram().counts(), 99)).isEqualTo(0);
+    }
+    // endregion
+
+    private static UniqueEventsQueue buildQueueWithMetrics(long queueLimit) {
+        return (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(queueLimit)
+                .metrics(true)
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the columnar snapshot of the queue.
+ */
+class QueueSnapshotUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    @TempDir
+    Path directory;
+
+    // region file format
+    @Test
+    void testThatSnapshotKeepsOrderAndEveryField() {
+        // Arrange
+        Path file = directory.resolve("queue.snapshot");
+        Record[] records = {
+            new Record("same", 1.5f, 100),
+            new Record("", Float.NaN, -1),
+            new Record("same", -0.0f, Long.MAX_VALUE),
+            new Record("\u0444\u0430\u0439\u043b", Float.MAX_VALUE, Long.MIN_VALUE),
+            new Record("unpaired \ud800", 2, 2)
+        };
+
+        // Act
+        QueueSnapshot.write(records, file);
+        List<Record> restoredRecords = QueueSnapshot.read(file);
+
+        // Assert
+        assertThat(restoredRecords).containsExactly(records);
+        assertThat(restoredRecords.get(2).getId())
+                .isSameAs(restoredRecords.get(0).getId());
+    }
+
+    @Test
+    void testThatSnapshotLargerThanBufferIsRestored() {
+        Path file = directory.resolve("queue.snapshot");
+        Record[] records = factory.generateRandomFakeRecords(100_000).toArray(new Record[0]);
+
+        QueueSnapshot.write(records, file);
+
+        assertThat(QueueSnapshot.read(file)).containsExactly(records);
+    }
+
+    @Test
+    void testThatTruncatedSnapshotIsRefused() throws IOException {
+        // Arrange
+        Path file = directory.resolve("queue.snapshot");
+        QueueSnapshot.write(factory.generateRandomFakeRecords(10).toArray(new Record[0]), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Act
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        // Assert
+        assertThatThrownBy(() -> QueueSnapshot.read(file)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatOtherFileIsRefused() throws IOException {
+        Path file = directory.resolve("queue.snapshot");
+
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> QueueSnapshot.read(file))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("is not a queue snapshot");
+    }
+    // endregion
+
+    // region queue
+    @Test
+    void testThatQueueRestoresRecordsFromSnapshot() {
+        // Arrange
+        Path file = directory.resolve("queue.snapshot");
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        mockQueue.addAll(recordList);
+        mockQueue.get();
+
+        // Act
+        mockQueue.writeSnapshot(file);
+        mockQueue.writeSnapshot(file);
+        UniqueEventsQueue restoredQueue = (UniqueEventsQueue)
+                new UniqueEventsQueueBuilder().restoreFromSnapshot(file).build();
+
+        // Assert
+        assertThat(restoredQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(1, 5));
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(1, 5));
+    }
+
+    @Test
+    void testThatRestoredQueueEvictsOldestRecordsAboveLimit() {
+        // Arrange
+        Path file = directory.resolve("queue.snapshot");
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        mockQueue.addAll(recordList);
+        mockQueue.writeSnapshot(file);
+
+        // Act
+        UniqueEventsQueue restoredQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(2)
+                .restoreFromSnapshot(file)
+                .build();
+
+        // Assert
+        assertThat(restoredQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(3, 5));
+    }
+
+    @Test
+    void testThatSnapshotCannotBeCombinedWithWriteAheadLog() {
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder()
+                .writeAheadLog(directory, WalSyncPolicy.NEVER)
+                .restoreFromSnapshot(directory.resolve("queue.snapshot"));
+
+        assertThatThrownBy(builder::build).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+}
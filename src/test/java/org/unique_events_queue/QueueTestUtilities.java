@@ -18,6 +18,18 @@ public class QueueTestUtilities {
         return queue.get(1000, true);
     }
 
+    static Record getOrThrow(LockFreeUniqueEventsQueue queue) {
+        return queue.get(1000, true);
+    }
+
+    static Record getOrThrow(ShardedUniqueEventsQueue queue) {
+        return queue.get(1000, true);
+    }
+
+    static Record getOrThrow(OffHeapUniqueEventsQueue queue) {
+        return queue.get(1000, true);
+    }
+
     static <T> T getFutureAndHandleExceptions(Future<T> future) {
         T result = null;
         try {
@@ -48,6 +60,19 @@ public class QueueTestUtilities {
         }
     }
 
+    /**
+     * Creates a factory of virtual threads through reflection, so the tests compile on the JDKs without them.
+     * @return the factory or null if the running JDK has no virtual threads.
+     */
+    static ThreadFactory virtualThreadFactoryOrNull() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
     static void drainRecords(UniqueEventsQueue queue, long numberOfRecords) {
         Runnable runnable = queue::get;
         ExecutorService executor = Executors.newCachedThreadPool();
@@ -0,0 +1,146 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the binary codec of the records and the view over the encoded records.
+ */
+class RecordCodecUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region codec
+    @Test
+    void testThatRecordsSurviveRoundTripInEveryBufferKind() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(10);
+        recordList.add(new Record("", Float.NaN, Long.MIN_VALUE));
+        recordList.add(new Record("unpaired \ud800", -0.0f, Long.MAX_VALUE));
+        ByteBuffer[] buffers = {
+            ByteBuffer.allocate(4096),
+            ByteBuffer.allocateDirect(4096),
+            ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN)
+        };
+
+        for (ByteBuffer buffer : buffers) {
+            // Act
+            for (Record record : recordList) {
+                RecordCodec.encode(record, buffer);
+            }
+            buffer.flip();
+            List<Record> decodedRecords = new LinkedList<>();
+            while (buffer.hasRemaining()) {
+                decodedRecords.add(RecordCodec.decode(buffer));
+            }
+
+            // Assert
+            assertThat(decodedRecords).containsExactlyElementsOf(recordList);
+        }
+    }
+
+    @Test
+    void testThatAbsoluteEncodingDoesNotMovePosition() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        Record record = factory.generateRandomFakeRecord();
+
+        RecordCodec.encode(record, buffer, 16);
+
+        assertThat(buffer.position()).isEqualTo(0);
+        assertThat(RecordCodec.decode(buffer, 16)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatEncodingIntoTooSmallBufferLeavesItUntouched() {
+        Record record = new Record("id", 1, 1);
+        ByteBuffer buffer = ByteBuffer.allocate(RecordCodec.encodedSize(record) - 1);
+
+        assertThatThrownBy(() -> RecordCodec.encode(record, buffer)).isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isEqualTo(0);
+    }
+
+    @Test
+    void testThatCorruptedLengthIsRefused() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        buffer.putInt(0, -1);
+        assertThatThrownBy(() -> RecordCodec.decode(buffer, 0)).isInstanceOf(RuntimeException.class);
+        buffer.putInt(0, 100);
+        assertThatThrownBy(() -> RecordCodec.decode(buffer, 0)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region view
+    @Test
+    void testThatViewReadsFieldsInPlace() {
+        // Arrange
+        Record record = new Record("K4s1o3a723", 1.1923f, 1278346);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        RecordCodec.encode(record, buffer, 8);
+
+        // Act
+        RecordView view = new RecordView().wrap(buffer, 8);
+
+        // Assert
+        assertThat(view.getIdLength()).isEqualTo(10);
+        assertThat(view.getIdChar(1)).isEqualTo('4');
+        assertThat(view.getId()).isEqualTo(record.getId());
+        assertThat(view.getValue()).isEqualTo(record.getValue());
+        assertThat(view.getDateMillis()).isEqualTo(record.getDate().getTime());
+        assertThat(view.encodedSize()).isEqualTo(RecordCodec.encodedSize(record));
+        assertThat(view.toRecord()).isEqualTo(record);
+    }
+
+    @Test
+    void testThatViewHashesAndComparesLikeRecord() {
+        // Arrange
+        Record record = factory.generateRandomFakeRecord();
+        Record differentValue = new Record(record.getId(), record.getValue() + 1, record.getDate());
+        Record differentId = new Record(record.getId() + "x", record.getValue(), record.getDate());
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        RecordCodec.encode(record, buffer, 0);
+
+        // Act
+        RecordView view = new RecordView().wrap(buffer, 0);
+
+        // Assert
+        assertThat(view.recordHashCode()).isEqualTo(record.hashCode());
+        assertThat(view.matches(new Record(record))).isEqualTo(true);
+        assertThat(view.matches(differentValue)).isEqualTo(false);
+        assertThat(view.matches(differentId)).isEqualTo(false);
+        assertThat(view.matches(null)).isEqualTo(false);
+    }
+
+    @Test
+    void testThatOneViewWalksManyEncodedRecords() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(10_000);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 << 20);
+        for (Record record : recordList) {
+            RecordCodec.encode(record, buffer);
+        }
+        RecordView view = new RecordView();
+
+        // Act
+        int offset = 0;
+        int matchingRecords = 0;
+        for (Record record : recordList) {
+            view.wrap(buffer, offset);
+            if (view.matches(record) && view.recordHashCode() == record.hashCode()) {
+                matchingRecords++;
+            }
+            offset += view.encodedSize();
+        }
+
+        // Assert
+        assertThat(matchingRecords).isEqualTo(recordList.size());
+        assertThat(offset).isEqualTo(buffer.position());
+    }
+    // endregion
+}
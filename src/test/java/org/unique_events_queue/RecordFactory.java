@@ -2,6 +2,8 @@ package org.unique_events_queue;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 import java.util.TimeZone;
 
@@ -28,6 +30,14 @@ final class RecordFactory {
         return new Record(id, amount, date);
     }
 
+    public List<Record> generateRandomFakeRecords(int numberOfRecords) {
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < numberOfRecords; i++) {
+            recordList.add(generateRandomFakeRecord());
+        }
+        return recordList;
+    }
+
     private String generateRandomString(int leftCharLimit, int rightCharLimit, int maxLength) {
         return random.ints(leftCharLimit, rightCharLimit + 1)
                 .limit(random.nextInt(maxLength))
@@ -3,6 +3,7 @@ package org.unique_events_queue;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.Date;
+import java.util.Objects;
 import org.junit.jupiter.api.Test;
 
 public class RecordUnitTest {
@@ -79,5 +80,29 @@ public class RecordUnitTest {
         assertThat(mockOriginal).isNotEqualTo(mockDifferentDate);
         assertThat(mockOriginal.hashCode()).isNotEqualTo(mockDifferentDate.hashCode());
     }
+
+    @Test
+    void testThatCopyIsEqualAndHasSameHashCode() {
+        Record mockOriginal = new Record("K4s1o3a723", (float) 1.1923, new Date(1278346));
+        Record mockCopy = new Record(mockOriginal);
+        assertThat(mockOriginal).isNotSameAs(mockCopy);
+        assertThat(mockOriginal).isEqualTo(mockCopy);
+        assertThat(mockOriginal.hashCode()).isEqualTo(mockCopy.hashCode());
+    }
+
+    @Test
+    void testThatRecordsWithNaNValueAreEqual() {
+        Record mockOriginal = new Record("0", Float.NaN, new Date(0));
+        Record mockCopy = new Record("0", Float.NaN, new Date(0));
+        assertThat(mockOriginal).isEqualTo(mockCopy);
+        assertThat(mockOriginal.hashCode()).isEqualTo(mockCopy.hashCode());
+    }
+
+    @Test
+    void testThatHashCodeMatchesHashOfFields() {
+        Date mockDate = new Date(1278346);
+        Record record = new Record("K4s1o3a723", (float) 1.1923, mockDate);
+        assertThat(record.hashCode()).isEqualTo(Objects.hash("K4s1o3a723", (float) 1.1923, mockDate));
+    }
     // endregion
 }
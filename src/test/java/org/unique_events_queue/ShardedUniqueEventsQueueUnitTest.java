@@ -0,0 +1,198 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.testng.collections.Lists;
+
+/**
+ * Tests the sharded queue. The order is checked only where it is guaranteed: within a single shard.
+ */
+class ShardedUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    // region add() and addAll()
+    @Test
+    void testThatAddHandlesNullInput() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue();
+        mockQueue.add(null);
+        mockQueue.addAll(null);
+        mockQueue.addAll(Lists.newArrayList(null, null));
+
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatDuplicatesAreIgnoredAcrossAddAndAddAll() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue();
+        Record record1 = factory.generateRandomFakeRecord();
+        Record record2 = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record1);
+        mockQueue.addAll(Lists.newArrayList(new Record(record1), record2, record2));
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 10);
+
+        assertThat(mockOutput).containsExactlyInAnyOrder(record1, record2);
+    }
+
+    @Test
+    void testThatSingleShardKeepsFifoOrder() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(1000, 1);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 5; ++i) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        Iterator<Record> mockIterator = recordList.iterator();
+
+        mockQueue.addAll(recordList);
+
+        for (int i = 0; i < 5; ++i) {
+            assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(mockIterator.next());
+        }
+    }
+
+    @Test
+    void testThatConsumerStealsFromAllShards() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(1000, 8);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 50; ++i) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        mockQueue.addAll(recordList);
+
+        List<Record> mockOutput = mockQueue.getBatch(100, 1, TimeUnit.SECONDS);
+
+        assertThat(mockOutput).containsExactlyInAnyOrderElementsOf(recordList);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+    // endregion
+
+    // region trimming
+    @Test
+    void testThatQueueLimitIsSharedByAllShards() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(1, 16);
+        for (int i = 0; i < 100; i++) {
+            mockQueue.add(factory.generateRandomFakeRecord());
+        }
+
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 100);
+
+        assertThat(mockOutput.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testThatNewestRecordSurvivesAtLimit() {
+        // Arrange
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(1, 16);
+        Record oldRecord = factory.generateRandomFakeRecord();
+        Record newRecord = factory.generateRandomFakeRecord();
+        while (Math.floorMod(newRecord.hashCode(), 16) == Math.floorMod(oldRecord.hashCode(), 16)) {
+            newRecord = factory.generateRandomFakeRecord();
+        }
+
+        // Act
+        mockQueue.add(oldRecord);
+        mockQueue.add(newRecord);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 10);
+
+        // Assert
+        assertThat(mockOutput).containsExactly(newRecord);
+    }
+
+    @Test
+    void testThatOldestRecordsOfAllShardsAreEvicted() {
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(3, 4);
+        List<Record> recordList = factory.generateRandomFakeRecords(20);
+
+        mockQueue.addAll(recordList);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 100);
+
+        assertThat(mockOutput).containsExactlyInAnyOrderElementsOf(recordList.subList(17, 20));
+    }
+
+    @Test
+    void testThatShardMayHoldMoreThanItsShareWhileQueueIsBelowLimit() {
+        // Arrange
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(1000, 16);
+        List<Record> recordList = new LinkedList<>();
+        while (recordList.size() < 100) {
+            Record record = factory.generateRandomFakeRecord();
+            if (Math.floorMod(record.hashCode(), 16) == 0) {
+                recordList.add(record);
+            }
+        }
+
+        // Act
+        mockQueue.addAll(recordList);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 1000);
+
+        // Assert
+        assertThat(mockOutput).containsExactlyElementsOf(recordList);
+    }
+
+    @Test
+    void testThatConcurrentProducersEvictOnlyTheExcess() throws InterruptedException {
+        // Arrange
+        ShardedUniqueEventsQueue mockQueue = new ShardedUniqueEventsQueue(100, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    mockQueue.add(factory.generateRandomFakeRecord());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        List<Record> mockOutput = new LinkedList<>();
+        mockQueue.drainTo(mockOutput, 1000);
+
+        // Assert
+        assertThat(mockOutput.size()).isEqualTo(100);
+    }
+
+    @Test
+    void testThatQueueAcceptsOnlyProperParameters() {
+        assertThatThrownBy(() -> new ShardedUniqueEventsQueue(0, 1)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new ShardedUniqueEventsQueue(1, 0)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region get()
+    @Test
+    void testThatAddNotifiesWaitingThread() {
+        ShardedUniqueEventsQueue queue = new ShardedUniqueEventsQueue();
+        Callable<Record> callable = queue::get;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Record> future = executor.submit(callable);
+
+        queue.add(factory.generateRandomFakeRecord());
+
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isInstanceOf(Record.class);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testsThatParametrizedGetThrowsException() {
+        ShardedUniqueEventsQueue queue = new ShardedUniqueEventsQueue();
+
+        assertThatThrownBy(() -> queue.get(1, true)).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+}
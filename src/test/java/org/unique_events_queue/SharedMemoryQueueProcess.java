@@ -0,0 +1,98 @@
+package org.unique_events_queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one side of a shared memory queue in a separate JVM, for the tests and the benchmarks.
+ *
+ * The arguments are the file, the queue limit, the capacity in bytes and the mode with its own arguments:
+ * produce (first record, number of records) adds the records made by {@link #record(int)} and exits.
+ * consume (idle milliseconds) prints the ids of the records it gets until none comes within the idle time.
+ * echo (file of the reply queue) puts every record it gets into the reply queue.
+ * flood adds new records with the current System.nanoTime() as their date as fast as it can.
+ * The echo and flood modes run until the process that started them is gone.
+ */
+public class SharedMemoryQueueProcess {
+    private static final long PARENT_CHECK_MILLISECONDS = 100;
+
+    public static void main(String[] args) {
+        Path file = Paths.get(args[0]);
+        long queueLimit = Long.parseLong(args[1]);
+        long capacityInBytes = Long.parseLong(args[2]);
+        SharedMemoryUniqueEventsQueue queue = new SharedMemoryUniqueEventsQueue(file, queueLimit, capacityInBytes);
+        switch (args[3]) {
+            case "produce":
+                int first = Integer.parseInt(args[4]);
+                int numberOfRecords = Integer.parseInt(args[5]);
+                for (int i = first; i < first + numberOfRecords; i++) {
+                    queue.add(record(i));
+                }
+                break;
+            case "consume":
+                long idleMilliseconds = Long.parseLong(args[4]);
+                List<Record> batch = queue.getBatch(1, 1, TimeUnit.MINUTES);
+                while (!batch.isEmpty()) {
+                    System.out.println(batch.get(0).getId());
+                    batch = queue.getBatch(1, idleMilliseconds, TimeUnit.MILLISECONDS);
+                }
+                break;
+            case "echo":
+                SharedMemoryUniqueEventsQueue replies =
+                        new SharedMemoryUniqueEventsQueue(Paths.get(args[4]), queueLimit, capacityInBytes);
+                while (isParentAlive()) {
+                    for (Record record : queue.getBatch(1, PARENT_CHECK_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                        replies.add(record);
+                    }
+                }
+                break;
+            case "flood":
+                for (long i = 0; (i & 0xfff) != 0 || isParentAlive(); i++) {
+                    queue.add(new Record("flood" + i, 1, System.nanoTime()));
+                }
+                break;
+            default:
+                throw new RuntimeException("Unknown mode " + args[3] + ".");
+        }
+    }
+
+    /**
+     * @return the record that the produce mode adds as the given one.
+     */
+    static Record record(int number) {
+        return new Record("record" + number, number, number);
+    }
+
+    /**
+     * Starts the class in a new JVM with the class path of the current one.
+     * Its output is piped to the parent, and its errors are inherited.
+     */
+    static Process start(Path file, long queueLimit, long capacityInBytes, String... modeArguments) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SharedMemoryQueueProcess.class.getName());
+        command.add(file.toString());
+        command.add(Long.toString(queueLimit));
+        command.add(Long.toString(capacityInBytes));
+        command.addAll(List.of(modeArguments));
+        try {
+            return new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .directory(new File(System.getProperty("user.dir")))
+                    .start();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot start a queue process.", e);
+        }
+    }
+
+    private static boolean isParentAlive() {
+        return ProcessHandle.current().parent().map(ProcessHandle::isAlive).orElse(false);
+    }
+}
@@ -0,0 +1,239 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the queue that processes share through a memory-mapped file, within one JVM and across several of them.
+ */
+class SharedMemoryUniqueEventsQueueUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+    private static final long QUEUE_LIMIT = 100_000;
+    private static final long CAPACITY_IN_BYTES = 4 * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    // region one process
+    @Test
+    void testThatRecordsComeOutInOrderWithoutDuplicates() {
+        // Arrange
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+        List<Record> recordList = factory.generateRandomFakeRecords(100);
+        recordList.add(null);
+        recordList.add(new Record(recordList.get(0)));
+
+        // Act
+        mockQueue.addAll(recordList);
+        mockQueue.add(new Record(recordList.get(1)));
+
+        // Assert
+        assertThat(mockQueue.size()).isEqualTo(100);
+        assertThat(mockQueue.getBatch(1000, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(0, 100));
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatQueuesOverSameFileShareRecords() {
+        // Arrange
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+        SharedMemoryUniqueEventsQueue otherQueue = createQueue("queue");
+        Record record = factory.generateRandomFakeRecord();
+
+        // Act
+        mockQueue.add(record);
+        otherQueue.add(new Record(record));
+
+        // Assert
+        assertThat(otherQueue.size()).isEqualTo(1);
+        assertThat(otherQueue.get(1000, true)).isEqualTo(record);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatQueueContinuesWithRecordsLeftInFile() {
+        List<Record> recordList = factory.generateRandomFakeRecords(10);
+        createQueue("queue").addAll(recordList);
+
+        SharedMemoryUniqueEventsQueue reopenedQueue = createQueue("queue");
+
+        assertThat(reopenedQueue.getBatch(100, 1, TimeUnit.MILLISECONDS)).containsExactlyElementsOf(recordList);
+    }
+
+    @Test
+    void testThatOldestRecordsAreEvictedAtLimit() {
+        SharedMemoryUniqueEventsQueue mockQueue =
+                new SharedMemoryUniqueEventsQueue(directory.resolve("queue"), 3, CAPACITY_IN_BYTES);
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+
+        mockQueue.addAll(recordList);
+
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(2, 5));
+    }
+
+    @Test
+    void testThatRecordLargerThanCapacityIsRejected() {
+        // Arrange
+        SharedMemoryUniqueEventsQueue mockQueue =
+                new SharedMemoryUniqueEventsQueue(directory.resolve("queue"), QUEUE_LIMIT, 2048);
+        Record record = factory.generateRandomFakeRecord();
+        Record largeRecord = new Record("x".repeat(4096), 1, 0);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mockQueue.add(largeRecord)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> mockQueue.addAll(List.of(record, largeRecord))).isInstanceOf(RuntimeException.class);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    void testThatFileOfDifferentQueueIsRejected() {
+        createQueue("queue");
+
+        assertThatThrownBy(() -> new SharedMemoryUniqueEventsQueue(directory.resolve("queue"), 5, CAPACITY_IN_BYTES))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatGetTimesOutOnEmptyQueue() {
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+
+        assertThat(mockQueue.getBatch(10, 5, TimeUnit.MILLISECONDS)).isEmpty();
+        assertThatThrownBy(() -> mockQueue.get(5, true)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatInterruptedProducerParksWhileLockIsTaken() throws Exception {
+        // Arrange
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+        Record record = factory.generateRandomFakeRecord();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        try (FileChannel channel =
+                FileChannel.open(directory.resolve("queue"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, 128).order(ByteOrder.nativeOrder());
+            header.putInt(64, (int) ProcessHandle.current().pid());
+            Thread producer = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                mockQueue.add(record);
+                interruptRestored.set(Thread.currentThread().isInterrupted());
+            });
+
+            // Act
+            producer.start();
+            Thread.sleep(300);
+            long cpuNanoseconds = threads.getThreadCpuTime(producer.getId());
+            header.putInt(64, 0);
+            producer.join(5000);
+
+            // Assert
+            assertThat(cpuNanoseconds).isLessThan(TimeUnit.MILLISECONDS.toNanos(150));
+        }
+        assertThat(interruptRestored.get()).isEqualTo(true);
+        assertThat(mockQueue.get(1000, true)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatBuilderRequiresFile() {
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder().engine(QueueEngine.SHARED_MEMORY);
+
+        assertThatThrownBy(builder::build).isInstanceOf(RuntimeException.class);
+        assertThat(builder.sharedMemoryFile(directory.resolve("queue")).build())
+                .isInstanceOf(SharedMemoryUniqueEventsQueue.class);
+    }
+    // endregion
+
+    // region several processes
+    @Test
+    void testThatRecordsOfSeveralProducerProcessesAreDeduplicated() throws Exception {
+        // Arrange
+        Path file = directory.resolve("queue");
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+        List<Process> producers = new LinkedList<>();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            producers.add(SharedMemoryQueueProcess.start(
+                    file, QUEUE_LIMIT, CAPACITY_IN_BYTES, "produce", Integer.toString(i * 1000), "3000"));
+        }
+        for (Process producer : producers) {
+            assertThat(producer.waitFor(1, TimeUnit.MINUTES)).isEqualTo(true);
+            assertThat(producer.exitValue()).isEqualTo(0);
+        }
+
+        // Assert
+        List<Record> records = mockQueue.getBatch(100_000, 1, TimeUnit.MILLISECONDS);
+        Set<Record> expectedRecords = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            expectedRecords.add(SharedMemoryQueueProcess.record(i));
+        }
+        assertThat(records).hasSize(5000).containsExactlyInAnyOrderElementsOf(expectedRecords);
+    }
+
+    @Test
+    void testThatConsumerProcessesTakeEveryRecordExactlyOnce() throws Exception {
+        // Arrange
+        Path file = directory.resolve("queue");
+        SharedMemoryUniqueEventsQueue mockQueue = createQueue("queue");
+        List<Process> consumers = new LinkedList<>();
+        for (int i = 0; i < 2; i++) {
+            consumers.add(SharedMemoryQueueProcess.start(file, QUEUE_LIMIT, CAPACITY_IN_BYTES, "consume", "2000"));
+        }
+
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            mockQueue.add(SharedMemoryQueueProcess.record(i));
+        }
+        List<String> consumedIds = new LinkedList<>();
+        for (Process consumer : consumers) {
+            consumedIds.addAll(readLines(consumer));
+            assertThat(consumer.waitFor(1, TimeUnit.MINUTES)).isEqualTo(true);
+        }
+
+        // Assert
+        Set<String> expectedIds = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            expectedIds.add(SharedMemoryQueueProcess.record(i).getId());
+        }
+        assertThat(consumedIds).hasSize(20_000).containsExactlyInAnyOrderElementsOf(expectedIds);
+    }
+    // endregion
+
+    private SharedMemoryUniqueEventsQueue createQueue(String fileName) {
+        return new SharedMemoryUniqueEventsQueue(directory.resolve(fileName), QUEUE_LIMIT, CAPACITY_IN_BYTES);
+    }
+
+    private static List<String> readLines(Process process) throws IOException {
+        List<String> lines = new LinkedList<>();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,133 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the publisher view of the queue.
+ */
+class UniqueEventsPublisherUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    @Test
+    void testThatPublisherEmitsNoMoreRecordsThanRequested() {
+        // Arrange
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        mockQueue.addAll(recordList);
+        RecordingSubscriber mockSubscriber = new RecordingSubscriber();
+
+        // Act
+        mockQueue.asPublisher().subscribe(mockSubscriber);
+        mockSubscriber.subscription.request(3);
+
+        // Assert
+        assertThat(mockSubscriber.received).containsExactlyElementsOf(recordList.subList(0, 3));
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(3));
+    }
+
+    @Test
+    void testThatPublisherEmitsRecordsAddedAfterRequest() {
+        // Arrange
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(3);
+        RecordingSubscriber mockSubscriber = new RecordingSubscriber();
+        mockQueue.asPublisher().subscribe(mockSubscriber);
+        mockSubscriber.subscription.request(2);
+
+        // Act
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(1);
+        mockQueue.addAll(recordList);
+
+        // Assert
+        assertThat(mockSubscriber.received).containsExactlyElementsOf(recordList.subList(0, 2));
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(0);
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(2));
+    }
+
+    @Test
+    void testThatCancelledSubscriptionLeavesRecordsInQueue() {
+        // Arrange
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+        RecordingSubscriber mockSubscriber = new RecordingSubscriber();
+        mockQueue.asPublisher().subscribe(mockSubscriber);
+        mockSubscriber.subscription.request(1);
+
+        // Act
+        mockSubscriber.subscription.cancel();
+        mockQueue.add(record);
+
+        // Assert
+        assertThat(mockSubscriber.received).isEmpty();
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(0);
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatSubscriberRequestingOneByOneReceivesAllRecords() {
+        // Arrange
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = factory.generateRandomFakeRecords(1000);
+        RecordingSubscriber mockSubscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Record item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+
+        // Act
+        mockQueue.asPublisher().subscribe(mockSubscriber);
+        mockSubscriber.subscription.request(1);
+        for (Record record : recordList) {
+            mockQueue.add(record);
+        }
+
+        // Assert
+        assertThat(mockSubscriber.received).containsExactlyElementsOf(recordList);
+    }
+
+    @Test
+    void testThatNonPositiveRequestSignalsError() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        mockQueue.add(factory.generateRandomFakeRecord());
+        RecordingSubscriber mockSubscriber = new RecordingSubscriber();
+        mockQueue.asPublisher().subscribe(mockSubscriber);
+
+        mockSubscriber.subscription.request(0);
+        mockSubscriber.subscription.request(1);
+
+        assertThat(mockSubscriber.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(mockSubscriber.received).isEmpty();
+        assertThat(mockQueue.isEmpty()).isEqualTo(false);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Record> {
+        final List<Record> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Record item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {}
+    }
+}
@@ -0,0 +1,76 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class UniqueEventsQueueBuilderUnitTest {
+    @Test
+    void testThatBuilderDefaultsToMonitorEngine() {
+        assertThat(new UniqueEventsQueueBuilder().build()).isInstanceOf(UniqueEventsQueue.class);
+    }
+
+    @Test
+    void testThatBuilderPicksLockFreeEngine() {
+        IUniqueEventsQueue queue =
+                new UniqueEventsQueueBuilder().engine(QueueEngine.LOCK_FREE).build();
+
+        assertThat(queue).isInstanceOf(LockFreeUniqueEventsQueue.class);
+    }
+
+    @Test
+    void testThatBuilderPicksShardedEngineWithShardCount() {
+        IUniqueEventsQueue queue = new UniqueEventsQueueBuilder()
+                .engine(QueueEngine.SHARDED)
+                .shardCount(4)
+                .build();
+
+        assertThat(queue).isInstanceOf(ShardedUniqueEventsQueue.class);
+        assertThat(((ShardedUniqueEventsQueue) queue).shardCount()).isEqualTo(4);
+    }
+
+    @Test
+    void testThatBuilderPicksKeyAffinityEngineWithSlotCount() {
+        IUniqueEventsQueue queue = new UniqueEventsQueueBuilder()
+                .engine(QueueEngine.KEY_AFFINITY)
+                .slotCount(4)
+                .routingKey(id -> id.substring(0, 1))
+                .build();
+
+        assertThat(queue).isInstanceOf(KeyAffinityUniqueEventsQueue.class);
+        assertThat(((KeyAffinityUniqueEventsQueue) queue).slotCount()).isEqualTo(4);
+        assertThat(((KeyAffinityUniqueEventsQueue) queue).slotOf("a1"))
+                .isEqualTo(((KeyAffinityUniqueEventsQueue) queue).slotOf("a2"));
+    }
+
+    @Test
+    void testThatDedupWindowIsRejectedByOtherEngines() {
+        UniqueEventsQueueBuilder builder =
+                new UniqueEventsQueueBuilder().engine(QueueEngine.LOCK_FREE).dedupWindow(1, TimeUnit.MINUTES);
+
+        assertThatThrownBy(builder::build).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatFairModeIsSupportedOnlyByMonitorEngine() {
+        IUniqueEventsQueue queue = new UniqueEventsQueueBuilder().fair(true).build();
+        queue.add(new Record("fair", 1, 1));
+
+        assertThat(queue.get()).isEqualTo(new Record("fair", 1, 1));
+        assertThatThrownBy(() -> new UniqueEventsQueueBuilder()
+                        .engine(QueueEngine.SHARDED)
+                        .fair(true)
+                        .build())
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testThatBuilderValidatesQueueLimit() {
+        UniqueEventsQueueBuilder builder = new UniqueEventsQueueBuilder().queueLimit(0);
+
+        assertThatThrownBy(builder::build).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> builder.engine(QueueEngine.LOCK_FREE).build()).isInstanceOf(RuntimeException.class);
+    }
+}
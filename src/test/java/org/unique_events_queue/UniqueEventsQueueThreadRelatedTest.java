@@ -1,7 +1,9 @@
 package org.unique_events_queue;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -164,4 +166,159 @@ public class UniqueEventsQueueThreadRelatedTest {
         // Finalize
         executor.shutdownNow();
     }
+
+    @Test
+    void testThatAddAllWakesUpWaitingGetBatch() {
+        // Arrange
+        UniqueEventsQueue queue = new UniqueEventsQueue();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Callable<List<Record>> callable = () -> queue.getBatch(10, 5, TimeUnit.SECONDS);
+        Future<List<Record>> future = executor.submit(callable);
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 3; ++i) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+
+        // Act
+        queue.addAll(recordList);
+
+        // Assert
+        assertThat(QueueTestUtilities.getFutureAndHandleExceptions(future)).isNotEmpty();
+
+        // Finalize
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatBlockProducerPolicyMakesAddWaitUntilConsumerTakesRecord() {
+        // Arrange
+        IUniqueEventsQueue queue = new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .evictionPolicy(EvictionPolicy.BLOCK_PRODUCER)
+                .build();
+        Record firstRecord = factory.generateRandomFakeRecord();
+        Record secondRecord = factory.generateRandomFakeRecord();
+        queue.add(firstRecord);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> producer = executor.submit(() -> queue.add(secondRecord));
+
+        // Act
+        assertThatThrownBy(() -> producer.get(50, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        Record takenRecord = queue.get();
+
+        // Assert
+        assertThat(takenRecord).isEqualTo(firstRecord);
+        QueueTestUtilities.getFutureAndHandleExceptions(producer);
+        assertThat(queue.get()).isEqualTo(secondRecord);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatInterruptedBlockedProducerLeavesRecordOut() throws InterruptedException {
+        // Arrange
+        UniqueEventsQueue queue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .evictionPolicy(EvictionPolicy.BLOCK_PRODUCER)
+                .build();
+        Record firstRecord = factory.generateRandomFakeRecord();
+        queue.add(firstRecord);
+        Thread producer = new Thread(() -> queue.add(factory.generateRandomFakeRecord()));
+        producer.start();
+
+        // Act
+        producer.interrupt();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Assert
+        assertThat(producer.isAlive()).isEqualTo(false);
+        assertThat(queue.drainTo(new LinkedList<>(), 10)).isEqualTo(1);
+    }
+
+    @Test
+    void testThatEveryGetWakesUpExactlyOneWaitingPutter() throws InterruptedException {
+        // Arrange
+        UniqueEventsQueue queue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
+        queue.add(factory.generateRandomFakeRecord());
+        int numberOfProducers = 3;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfProducers);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int i = 0; i < numberOfProducers; i++) {
+            Record record = factory.generateRandomFakeRecord();
+            producers.add(executor.submit(() -> {
+                queue.put(record);
+                return null;
+            }));
+        }
+
+        // Act
+        Thread.sleep(50);
+        queue.get();
+        Thread.sleep(50);
+
+        // Assert
+        assertThat(producers.stream().filter(Future::isDone).count()).isEqualTo(1);
+        for (int i = 1; i < numberOfProducers; i++) {
+            queue.get();
+        }
+        for (Future<?> producer : producers) {
+            QueueTestUtilities.getFutureAndHandleExceptions(producer);
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testThatThousandPlatformThreadConsumersAreAllServed() {
+        assertThatEveryConsumerIsServed(1000, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Runs only on the JDKs with virtual threads. A consumer that pinned its carrier thread while waiting
+     * would exhaust the small carrier pool long before all the consumers had lined up.
+     */
+    @Test
+    void testThatHundredThousandVirtualThreadConsumersAreAllServed() {
+        ThreadFactory virtualThreadFactory = QueueTestUtilities.virtualThreadFactoryOrNull();
+        assumeTrue(virtualThreadFactory != null, "The JDK has no virtual threads.");
+
+        assertThatEveryConsumerIsServed(100_000, virtualThreadFactory);
+    }
+
+    private static void assertThatEveryConsumerIsServed(int numberOfConsumers, ThreadFactory threadFactory) {
+        // Arrange
+        UniqueEventsQueue queue = new UniqueEventsQueue();
+        CountDownLatch servedConsumers = new CountDownLatch(numberOfConsumers);
+        List<Thread> consumers = new ArrayList<>(numberOfConsumers);
+        for (int i = 0; i < numberOfConsumers; i++) {
+            Thread consumer = threadFactory.newThread(() -> {
+                if (queue.get() != null) {
+                    servedConsumers.countDown();
+                }
+            });
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        // Act
+        RecordFactory localFactory = new RecordFactory(new RecordFactorySettings());
+        List<Record> batch = new ArrayList<>();
+        for (int i = 0; i < numberOfConsumers; i++) {
+            batch.add(localFactory.generateRandomFakeRecord());
+            if (batch.size() == 1000 || i == numberOfConsumers - 1) {
+                queue.addAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        // Assert
+        try {
+            assertThat(servedConsumers.await(60, TimeUnit.SECONDS)).isEqualTo(true);
+        } catch (InterruptedException e) {
+            fail(QueueErrorMessages.INTERRUPTED.getMessage());
+        } finally {
+            consumers.forEach(Thread::interrupt);
+        }
+        assertThat(queue.isEmpty()).isEqualTo(true);
+        assertThat(queue.waitingThreadsCount()).isEqualTo(0);
+    }
 }
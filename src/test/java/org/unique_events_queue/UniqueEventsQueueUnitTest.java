@@ -3,9 +3,14 @@ package org.unique_events_queue;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.nio.file.Paths;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.junit.jupiter.api.Test;
 import org.testng.collections.Lists;
 
@@ -109,7 +114,8 @@ class UniqueEventsQueueUnitTest {
     @Test
     void testThatQueueTrimsIfQueueLimit1AndTrimInterval1() {
         // Arrange
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, 1);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
         for (int i = 0; i < 10; i++) {
             mockQueue.add(factory.generateRandomFakeRecord());
         }
@@ -124,7 +130,8 @@ class UniqueEventsQueueUnitTest {
     @Test
     void testThatQueueTrimsIfQueueLimit2AndTrimInterval1() {
         // Arrange
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(2, 1);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(2).build();
         for (int i = 0; i < 10; i++) {
             mockQueue.add(factory.generateRandomFakeRecord());
         }
@@ -141,7 +148,8 @@ class UniqueEventsQueueUnitTest {
     void testThatQueueTrimsForAdd() {
         // Arrange
         long numberOfRecords = 50;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
         for (int i = 0; i < numberOfRecords; i++) {
             mockQueue.add(factory.generateRandomFakeRecord());
         }
@@ -154,22 +162,26 @@ class UniqueEventsQueueUnitTest {
     }
 
     @Test
-    void testThatQueueDoesNotTrimWhenTrimIntervalIsNotReachedForAdd() {
+    void testThatQueueKeepsOnlyNewestRecordsBeforeTrimIntervalIsReachedForAdd() {
         long numberOfRecords = 50;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords + 1);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
+        Record lastRecord = null;
 
         for (int i = 0; i < numberOfRecords; i++) {
-            mockQueue.add(factory.generateRandomFakeRecord());
+            lastRecord = factory.generateRandomFakeRecord();
+            mockQueue.add(lastRecord);
         }
 
-        QueueTestUtilities.drainRecords(mockQueue, numberOfRecords);
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(lastRecord);
         assertThat(mockQueue.isEmpty()).isEqualTo(true);
     }
 
     @Test
     void testThatQueueTrimsWhenLimitIsExceededBy1ForAdd() {
         long numberOfRecords = 50;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
 
         for (int i = 0; i < numberOfRecords; i++) {
             mockQueue.add(factory.generateRandomFakeRecord());
@@ -185,7 +197,8 @@ class UniqueEventsQueueUnitTest {
     @Test
     void testThatQueueTrimsForAddAll() {
         long numberOfRecords = 50;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords);
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue)
+                new UniqueEventsQueueBuilder().queueLimit(numberOfRecords).build();
         List<Record> firstRecordList = new LinkedList<>();
         List<Record> secondRecordList = new LinkedList<>();
 
@@ -203,10 +216,11 @@ class UniqueEventsQueueUnitTest {
     }
 
     @Test
-    void testThatQueueDoesNotTrimWhenTrimIntervalIsNotReachedForAddAll() {
+    void testThatQueueKeepsOnlyNewestRecordsBeforeTrimIntervalIsReachedForAddAll() {
         // Arrange
         long numberOfRecords = 25;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords * 2 + 1);
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
         List<Record> recordList1 = new LinkedList<>();
         List<Record> recordList2 = new LinkedList<>();
         for (int i = 0; i < numberOfRecords; i++) {
@@ -217,9 +231,9 @@ class UniqueEventsQueueUnitTest {
         // Act
         mockQueue.addAll(recordList1);
         mockQueue.addAll(recordList2);
-        QueueTestUtilities.drainRecords(mockQueue, numberOfRecords * 2);
 
         // Assert
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList2.get(recordList2.size() - 1));
         assertThat(mockQueue.isEmpty()).isEqualTo(true);
     }
 
@@ -227,7 +241,8 @@ class UniqueEventsQueueUnitTest {
     void testThatQueueTrimsWhenLimitIsExceededBy1ForAddAll() {
         // Arrange
         long numberOfRecords = 25;
-        UniqueEventsQueue mockQueue = new UniqueEventsQueue(1, numberOfRecords * 2);
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue)
+                new UniqueEventsQueueBuilder().queueLimit(numberOfRecords).build();
         List<Record> recordList1 = new LinkedList<>();
         List<Record> recordList2 = new LinkedList<>();
         for (int i = 0; i < numberOfRecords; i++) {
@@ -248,6 +263,436 @@ class UniqueEventsQueueUnitTest {
 
     // endregion
 
+    // region eviction policies
+    @Test
+    void testThatAddAllOfDuplicatesEvictsNothing() {
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(2).build();
+        List<Record> recordList =
+                Lists.newArrayList(factory.generateRandomFakeRecord(), factory.generateRandomFakeRecord());
+        mockQueue.addAll(recordList);
+
+        mockQueue.addAll(Lists.newArrayList(new Record(recordList.get(0)), new Record(recordList.get(1))));
+
+        assertThat(mockQueue.drainTo(new LinkedList<>(), 10)).isEqualTo(2);
+    }
+
+    @Test
+    void testThatRejectNewestPolicyKeepsQueuedRecordsAndNotifiesListener() {
+        // Arrange
+        List<Record> evictedRecords = new LinkedList<>();
+        List<EvictionPolicy.Action> evictionActions = new LinkedList<>();
+        IUniqueEventsQueue mockQueue = new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .evictionPolicy(EvictionPolicy.REJECT_NEWEST)
+                .evictionListener((record, action) -> {
+                    evictedRecords.add(record);
+                    evictionActions.add(action);
+                })
+                .build();
+        Record queuedRecord = factory.generateRandomFakeRecord();
+        Record rejectedRecord = factory.generateRandomFakeRecord();
+
+        // Act
+        mockQueue.add(queuedRecord);
+        mockQueue.add(rejectedRecord);
+
+        // Assert
+        assertThat(evictedRecords).containsExactly(rejectedRecord);
+        assertThat(evictionActions).containsExactly(EvictionPolicy.Action.REJECT_INCOMING);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(queuedRecord);
+    }
+
+    @Test
+    void testThatDropOldestPolicyNotifiesListenerOfEvictedRecords() {
+        List<Record> evictedRecords = new LinkedList<>();
+        IUniqueEventsQueue mockQueue = new UniqueEventsQueueBuilder()
+                .queueLimit(2)
+                .evictionListener((record, action) -> evictedRecords.add(record))
+                .build();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+
+        mockQueue.addAll(recordList);
+
+        assertThat(evictedRecords).containsExactlyElementsOf(recordList.subList(0, 3));
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(recordList.subList(3, 5));
+    }
+
+    @Test
+    void testThatCustomPolicyIsAskedOnlyForRecordsThatDoNotFit() {
+        List<Record> askedRecords = new LinkedList<>();
+        IUniqueEventsQueue mockQueue = new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .evictionPolicy(incoming -> {
+                    askedRecords.add(incoming);
+                    return EvictionPolicy.Action.EVICT_OLDEST;
+                })
+                .build();
+        Record firstRecord = factory.generateRandomFakeRecord();
+        Record secondRecord = factory.generateRandomFakeRecord();
+
+        mockQueue.add(firstRecord);
+        mockQueue.add(new Record(firstRecord));
+        mockQueue.add(secondRecord);
+
+        assertThat(askedRecords).containsExactly(secondRecord);
+        assertThat(mockQueue.get()).isEqualTo(secondRecord);
+    }
+    // endregion
+
+    // region offer(), put() and offerAll()
+    @Test
+    void testThatOfferReturnsImmediatelyForDuplicateInFullQueue() throws InterruptedException {
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
+        Record record = factory.generateRandomFakeRecord();
+        mockQueue.add(record);
+
+        long start = System.nanoTime();
+        boolean wasInserted = mockQueue.offer(new Record(record), 10, TimeUnit.SECONDS);
+
+        assertThat(wasInserted).isEqualTo(false);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void testThatOfferTimesOutWithoutEvictingWhenQueueIsFull() throws InterruptedException {
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(1).build();
+        Record record = factory.generateRandomFakeRecord();
+        mockQueue.add(record);
+
+        boolean wasInserted = mockQueue.offer(factory.generateRandomFakeRecord(), 1, TimeUnit.MILLISECONDS);
+
+        assertThat(wasInserted).isEqualTo(false);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(record);
+    }
+
+    @Test
+    void testThatOfferAllTakesOnlyAsManyRecordsAsFit() {
+        // Arrange
+        UniqueEventsQueue mockQueue =
+                (UniqueEventsQueue) new UniqueEventsQueueBuilder().queueLimit(3).build();
+        Record queuedRecord = factory.generateRandomFakeRecord();
+        mockQueue.add(queuedRecord);
+        List<Record> recordList = Lists.newArrayList(
+                factory.generateRandomFakeRecord(),
+                new Record(queuedRecord),
+                null,
+                factory.generateRandomFakeRecord(),
+                factory.generateRandomFakeRecord());
+
+        // Act
+        int numberOfItemsTaken = mockQueue.offerAll(recordList);
+
+        // Assert
+        assertThat(numberOfItemsTaken).isEqualTo(4);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                .containsExactly(queuedRecord, recordList.get(0), recordList.get(3));
+    }
+    // endregion
+
+    // region drainTo() and getBatch()
+    @Test
+    void testThatDrainToTakesOldestRecordsUpToLimit() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        mockQueue.addAll(recordList);
+        List<Record> mockOutput = new LinkedList<>();
+
+        int numberOfItemsDrained = mockQueue.drainTo(mockOutput, 3);
+
+        assertThat(numberOfItemsDrained).isEqualTo(3);
+        assertThat(mockOutput).containsExactlyElementsOf(recordList.subList(0, 3));
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(recordList.get(3));
+    }
+
+    @Test
+    void testThatDrainToHandlesEmptyQueueAndNullInput() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> mockOutput = new LinkedList<>();
+
+        assertThat(mockQueue.drainTo(mockOutput, 10)).isEqualTo(0);
+        assertThat(mockQueue.drainTo(null, 10)).isEqualTo(0);
+        assertThat(mockOutput).isEmpty();
+    }
+
+    @Test
+    void testThatGetBatchTakesWholeQueueIfItIsSmallerThanLimit() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 3; i++) {
+            recordList.add(factory.generateRandomFakeRecord());
+        }
+        mockQueue.addAll(recordList);
+
+        List<Record> mockBatch = mockQueue.getBatch(10, 1, TimeUnit.SECONDS);
+
+        assertThat(mockBatch).containsExactlyElementsOf(recordList);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatGetBatchReturnsEmptyListOnTimeout() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).isEmpty();
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(0);
+    }
+    // endregion
+
+    // region getAsync()
+    @Test
+    void testThatGetAsyncIsCompletedImmediatelyIfQueueIsNotEmpty() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+        mockQueue.add(record);
+
+        CompletableFuture<Record> mockFuture = mockQueue.getAsync();
+
+        assertThat(mockFuture.getNow(null)).isEqualTo(record);
+        assertThat(mockQueue.isEmpty()).isEqualTo(true);
+    }
+
+    @Test
+    void testThatPendingGetAsyncFuturesAreCompletedByAddAllInArrivalOrder() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        CompletableFuture<Record> firstFuture = mockQueue.getAsync();
+        CompletableFuture<Record> secondFuture = mockQueue.getAsync();
+        List<Record> recordList =
+                Lists.newArrayList(factory.generateRandomFakeRecord(), factory.generateRandomFakeRecord());
+
+        assertThat(firstFuture.isDone()).isEqualTo(false);
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(2);
+        mockQueue.addAll(recordList);
+
+        assertThat(firstFuture.getNow(null)).isEqualTo(recordList.get(0));
+        assertThat(secondFuture.getNow(null)).isEqualTo(recordList.get(1));
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(0);
+    }
+
+    @Test
+    void testThatCancelledGetAsyncFutureDoesNotTakeRecord() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        CompletableFuture<Record> cancelledFuture = mockQueue.getAsync();
+        CompletableFuture<Record> timedOutFuture = mockQueue.getAsync();
+        Record record = factory.generateRandomFakeRecord();
+
+        assertThat(cancelledFuture.cancel(false)).isEqualTo(true);
+        assertThat(timedOutFuture.completeExceptionally(new TimeoutException())).isEqualTo(true);
+        mockQueue.add(record);
+
+        assertThat(mockQueue.waitingThreadsCount()).isEqualTo(0);
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+    }
+
+    @Test
+    void testThatGetAsyncFutureCannotBeCancelledAfterRecordIsHandedOver() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        CompletableFuture<Record> mockFuture = mockQueue.getAsync();
+        Record record = factory.generateRandomFakeRecord();
+        mockQueue.add(record);
+
+        assertThat(mockFuture.cancel(false)).isEqualTo(false);
+        assertThat(mockFuture.getNow(null)).isEqualTo(record);
+    }
+    // endregion
+
+    // region deduplication window
+    @Test
+    void testThatRetrievedRecordIsRejectedWithinDedupWindow() {
+        IUniqueEventsQueue mockQueue =
+                new UniqueEventsQueueBuilder().dedupWindowCount(100).build();
+        Record record = factory.generateRandomFakeRecord();
+        Record otherRecord = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        mockQueue.get();
+        mockQueue.addAll(Lists.newArrayList(new Record(record), otherRecord));
+        mockQueue.add(record);
+
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(otherRecord);
+    }
+
+    @Test
+    void testThatTrimmedRecordIsAcceptedAgainWithinDedupWindow() {
+        IUniqueEventsQueue mockQueue = new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .dedupWindowCount(100)
+                .build();
+        Record trimmedRecord = factory.generateRandomFakeRecord();
+
+        mockQueue.add(trimmedRecord);
+        mockQueue.add(factory.generateRandomFakeRecord());
+        mockQueue.get();
+        mockQueue.add(trimmedRecord);
+
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(trimmedRecord);
+    }
+
+    @Test
+    void testThatRetrievedRecordIsAcceptedAgainWithoutDedupWindow() {
+        UniqueEventsQueue mockQueue = new UniqueEventsQueue();
+        Record record = factory.generateRandomFakeRecord();
+
+        mockQueue.add(record);
+        QueueTestUtilities.getOrThrow(mockQueue);
+        mockQueue.add(record);
+
+        assertThat(QueueTestUtilities.getOrThrow(mockQueue)).isEqualTo(record);
+    }
+    // endregion
+
+    // region identity key and coalescing
+    @Test
+    void testThatRecordWithQueuedKeyIsSkipped() {
+        IUniqueEventsQueue mockQueue =
+                new UniqueEventsQueueBuilder().identityKey(Record::getId).build();
+        Record record = new Record("price", 1, new Date(1));
+        Record update = new Record("price", 2, new Date(2));
+
+        mockQueue.add(record);
+        mockQueue.add(update);
+
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(record);
+    }
+
+    @Test
+    void testThatCoalescingReplacesQueuedRecordInPlace() {
+        // Arrange
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .identityKey(Record::getId)
+                .coalescing(true)
+                .metrics(true)
+                .build();
+        Record first = new Record("first", 1, new Date(1));
+        Record second = new Record("second", 1, new Date(1));
+        Record firstUpdate = new Record("first", 2, new Date(2));
+
+        // Act
+        mockQueue.addAll(Lists.newArrayList(first, second, firstUpdate, new Record(firstUpdate)));
+
+        // Assert
+        assertThat(mockQueue.metricsSnapshot().getCoalescedCount()).isEqualTo(1);
+        assertThat(mockQueue.metricsSnapshot().getDuplicateCount()).isEqualTo(1);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(firstUpdate, second);
+    }
+
+    @Test
+    void testThatCoalescingIntoFullQueueEvictsNothing() throws InterruptedException {
+        // Arrange
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(1)
+                .identityKey(Record::getId)
+                .coalescing(true)
+                .build();
+        Record update = new Record("price", 2, new Date(2));
+        mockQueue.add(new Record("price", 1, new Date(1)));
+
+        // Act
+        boolean offered = mockQueue.offer(update, 0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertThat(offered).isEqualTo(true);
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(update);
+    }
+
+    @Test
+    void testThatCoalescingIsRejectedWithWriteAheadLog() {
+        UniqueEventsQueueBuilder builder =
+                new UniqueEventsQueueBuilder().coalescing(true).writeAheadLog(Paths.get("unused"), WalSyncPolicy.NEVER);
+
+        assertThatThrownBy(builder::build).isInstanceOf(RuntimeException.class);
+    }
+    // endregion
+
+    // region parallel addAll()
+    @Test
+    void testThatParallelAddAllKeepsSameRecordsInSameOrderAsSerialOne() {
+        // Arrange
+        UniqueEventsQueue serialQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(5000)
+                .parallelAddAllThreshold(Integer.MAX_VALUE)
+                .metrics(true)
+                .build();
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(5000)
+                .parallelAddAllThreshold(1)
+                .metrics(true)
+                .build();
+        List<Record> distinctRecords = new LinkedList<>();
+        for (int i = 0; i < 4000; i++) {
+            distinctRecords.add(factory.generateRandomFakeRecord());
+        }
+        List<Record> recordList = new LinkedList<>();
+        for (int i = 0; i < 10_000; i++) {
+            recordList.add(i % 100 == 0 ? null : new Record(distinctRecords.get((i * 7) % distinctRecords.size())));
+        }
+        serialQueue.add(distinctRecords.get(1));
+        mockQueue.add(distinctRecords.get(1));
+
+        // Act
+        serialQueue.addAll(recordList);
+        mockQueue.addAll(recordList);
+
+        // Assert
+        assertThat(mockQueue.metricsSnapshot().getAddedCount())
+                .isEqualTo(serialQueue.metricsSnapshot().getAddedCount());
+        assertThat(mockQueue.metricsSnapshot().getDuplicateCount())
+                .isEqualTo(serialQueue.metricsSnapshot().getDuplicateCount());
+        assertThat(mockQueue.getBatch(10_000, 1, TimeUnit.MILLISECONDS))
+                .containsExactlyElementsOf(serialQueue.getBatch(10_000, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testThatParallelAddAllCoalescesLatestRecordIntoFirstPosition() {
+        // Arrange
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .identityKey(Record::getId)
+                .coalescing(true)
+                .parallelAddAllThreshold(1)
+                .build();
+        Record queued = new Record("queued", 1, new Date(1));
+        Record queuedUpdate = new Record("queued", 2, new Date(2));
+        Record first = new Record("first", 1, new Date(1));
+        Record second = new Record("second", 1, new Date(1));
+        Record firstUpdate = new Record("first", 2, new Date(2));
+        mockQueue.add(queued);
+
+        // Act
+        mockQueue.addAll(Lists.newArrayList(first, queuedUpdate, second, firstUpdate));
+
+        // Assert
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(queuedUpdate, firstUpdate, second);
+    }
+
+    @Test
+    void testThatParallelAddAllAppliesEvictionPolicyToDistinctRecordsOnly() {
+        // Arrange
+        UniqueEventsQueue mockQueue = (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(2)
+                .evictionPolicy(EvictionPolicy.REJECT_NEWEST)
+                .parallelAddAllThreshold(1)
+                .build();
+        Record first = factory.generateRandomFakeRecord();
+        Record second = factory.generateRandomFakeRecord();
+        Record third = factory.generateRandomFakeRecord();
+
+        // Act
+        mockQueue.addAll(Lists.newArrayList(first, first, second, first, second, third));
+
+        // Assert
+        assertThat(mockQueue.getBatch(10, 1, TimeUnit.MILLISECONDS)).containsExactly(first, second);
+    }
+    // endregion
+
     // region Other tests
     @Test
     void testThatQueueIsEmpty() {
@@ -280,8 +725,10 @@ class UniqueEventsQueueUnitTest {
 
     @Test
     void testThatQueueAcceptsOnlyProperSizeLimit() {
-        assertThatThrownBy(() -> new UniqueEventsQueue(-10, 1)).isInstanceOf(RuntimeException.class);
-        assertThatThrownBy(() -> new UniqueEventsQueue(0, 1)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new UniqueEventsQueueBuilder().queueLimit(-10).build())
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new UniqueEventsQueueBuilder().queueLimit(0).build())
+                .isInstanceOf(RuntimeException.class);
     }
 
     @Test
@@ -0,0 +1,191 @@
+package org.unique_events_queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the write-ahead log on its own and through the queue that restores itself from it.
+ */
+class WriteAheadLogUnitTest {
+    static final RecordFactory factory = new RecordFactory(new RecordFactorySettings());
+
+    @TempDir
+    Path directory;
+
+    // region restoring the queue
+    @Test
+    void testThatQueueRestoresUnconsumedRecordsInOrder() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(5);
+        try (UniqueEventsQueue mockQueue = buildQueue(WalSyncPolicy.EVERY_WRITE)) {
+            mockQueue.addAll(recordList);
+            mockQueue.get();
+            mockQueue.drainTo(new LinkedList<>(), 1);
+        }
+
+        // Act
+        try (UniqueEventsQueue restoredQueue = buildQueue(WalSyncPolicy.EVERY_WRITE)) {
+
+            // Assert
+            assertThat(restoredQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                    .containsExactlyElementsOf(recordList.subList(2, 5));
+        }
+    }
+
+    @Test
+    void testThatQueueRestoresAfterEvictionsAndKeepsLogging() {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(6);
+        try (UniqueEventsQueue mockQueue = buildQueue(WalSyncPolicy.NEVER, 3)) {
+            mockQueue.addAll(recordList.subList(0, 5));
+        }
+        try (UniqueEventsQueue restoredQueue = buildQueue(WalSyncPolicy.NEVER, 3)) {
+            restoredQueue.add(recordList.get(5));
+            restoredQueue.get();
+        }
+
+        // Act
+        try (UniqueEventsQueue restoredAgainQueue = buildQueue(WalSyncPolicy.NEVER, 3)) {
+
+            // Assert
+            assertThat(restoredAgainQueue.getBatch(10, 1, TimeUnit.MILLISECONDS))
+                    .containsExactlyElementsOf(recordList.subList(4, 6));
+        }
+    }
+
+    @Test
+    void testThatQueueRestoresDedupWindow() {
+        // Arrange
+        Record record = factory.generateRandomFakeRecord();
+        try (UniqueEventsQueue mockQueue = buildQueueWithDedupWindow()) {
+            mockQueue.add(record);
+            mockQueue.get();
+        }
+
+        // Act
+        try (UniqueEventsQueue restoredQueue = buildQueueWithDedupWindow()) {
+            restoredQueue.add(new Record(record));
+
+            // Assert
+            assertThat(restoredQueue.isEmpty()).isEqualTo(true);
+        }
+    }
+
+    @Test
+    void testThatConsumedSegmentsAreDeleted() throws IOException {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(200);
+        try (UniqueEventsQueue mockQueue = buildQueue(WalSyncPolicy.NEVER)) {
+
+            // Act
+            for (Record record : recordList) {
+                mockQueue.add(record);
+                mockQueue.get();
+            }
+            mockQueue.add(factory.generateRandomFakeRecord());
+        }
+
+        // Assert
+        assertThat(listSegments().size()).isLessThanOrEqualTo(2);
+    }
+    // endregion
+
+    // region log
+    @Test
+    void testThatReplayStopsAtTornEntry() throws IOException {
+        // Arrange
+        List<Record> recordList = factory.generateRandomFakeRecords(3);
+        try (WriteAheadLog log = new WriteAheadLog(directory, WalSyncPolicy.NEVER, 4096)) {
+            log.replay(null);
+            for (Record record : recordList) {
+                log.appendAdded(record);
+            }
+        }
+        corruptLastByteOfEntry(3);
+
+        // Act
+        List<Record> restoredRecords;
+        try (WriteAheadLog log = new WriteAheadLog(directory, WalSyncPolicy.NEVER, 4096)) {
+            restoredRecords = log.replay(null);
+            log.appendAdded(recordList.get(2));
+        }
+        List<Record> restoredAgainRecords;
+        try (WriteAheadLog log = new WriteAheadLog(directory, WalSyncPolicy.NEVER, 4096)) {
+            restoredAgainRecords = log.replay(null);
+        }
+
+        // Assert
+        assertThat(restoredRecords).containsExactlyElementsOf(recordList.subList(0, 2));
+        assertThat(restoredAgainRecords).containsExactlyElementsOf(recordList);
+    }
+
+    @Test
+    void testThatLogRefusesRecordLargerThanSegment() {
+        StringBuilder longId = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longId.append('x');
+        }
+        try (WriteAheadLog log = new WriteAheadLog(directory, WalSyncPolicy.NEVER, 256)) {
+            log.replay(null);
+
+            assertThatThrownBy(() -> log.appendAdded(new Record(longId.toString(), 1, 1)))
+                    .isInstanceOf(RuntimeException.class);
+        }
+    }
+    // endregion
+
+    private UniqueEventsQueue buildQueue(WalSyncPolicy syncPolicy) {
+        return buildQueue(syncPolicy, UniqueEventsQueue.DEFAULT_QUEUE_LIMIT);
+    }
+
+    private UniqueEventsQueue buildQueue(WalSyncPolicy syncPolicy, long queueLimit) {
+        return (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .queueLimit(queueLimit)
+                .writeAheadLog(directory, syncPolicy)
+                .walSegmentSize(1024)
+                .build();
+    }
+
+    private UniqueEventsQueue buildQueueWithDedupWindow() {
+        return (UniqueEventsQueue) new UniqueEventsQueueBuilder()
+                .writeAheadLog(directory, WalSyncPolicy.NEVER)
+                .walSegmentSize(1024)
+                .dedupWindowCount(100)
+                .build();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Flips the last byte of the given entry of the only segment, as a torn write would leave it.
+     */
+    private void corruptLastByteOfEntry(int entryNumber) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(listSegments().get(0).toFile(), "rw")) {
+            long position = 2 * Integer.BYTES;
+            for (int i = 0; i < entryNumber; i++) {
+                file.seek(position);
+                position += 2 * Integer.BYTES + file.readInt();
+            }
+            file.seek(position - 1);
+            int lastByte = file.read();
+            file.seek(position - 1);
+            file.write(~lastByte);
+        }
+    }
+}